@@ -0,0 +1,49 @@
+package com.ry.example.ffmpeg.chapter03;
+
+/**
+ * 分块并行编码基准测试
+ * 用相同的编码参数分别以单进程和分块并行方式编码同一视频，比较耗时
+ *
+ * 用法: ChunkedEncodeBenchmark [输入文件] [块时长(秒)] [并行度...]
+ * 例如: ChunkedEncodeBenchmark input.mp4 10 2 4 8
+ */
+public class ChunkedEncodeBenchmark {
+
+    public static void main(String[] args) {
+        String inputPath = args.length > 0 ? args[0] : "input.mp4";
+        double chunkSeconds = args.length > 1 ? Double.parseDouble(args[1]) : 10.0;
+        int[] parallelisms;
+        if (args.length > 2) {
+            parallelisms = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                parallelisms[i - 2] = Integer.parseInt(args[i]);
+            }
+        } else {
+            int cores = Runtime.getRuntime().availableProcessors();
+            parallelisms = new int[] {Math.max(2, cores / 4), Math.max(2, cores / 2), cores};
+        }
+
+        String codec = "libx264";
+        int crf = 23;
+        String preset = "medium";
+
+        System.out.println("=== 分块并行编码基准测试 ===");
+        System.out.println("输入: " + inputPath + ", 编码: " + codec + " crf=" + crf + " preset=" + preset);
+
+        long start = System.currentTimeMillis();
+        boolean success = MergeAudioVideo.reencodeVideo(inputPath, "bench_single.mp4", codec, crf, preset);
+        long singleMillis = System.currentTimeMillis() - start;
+        System.out.printf("单进程: %s, 耗时 %.1f 秒%n", success ? "成功" : "失败", singleMillis / 1000.0);
+
+        for (int parallelism : parallelisms) {
+            String outputPath = "bench_chunked_" + parallelism + ".mp4";
+            start = System.currentTimeMillis();
+            success = MergeAudioVideo.reencodeVideoChunked(inputPath, outputPath, codec, crf, preset,
+                    chunkSeconds, parallelism);
+            long chunkedMillis = System.currentTimeMillis() - start;
+            System.out.printf("分块 %.0f秒 x 并行%d: %s, 耗时 %.1f 秒, 加速 %.2fx%n",
+                    chunkSeconds, parallelism, success ? "成功" : "失败",
+                    chunkedMillis / 1000.0, (double) singleMillis / Math.max(1, chunkedMillis));
+        }
+    }
+}
@@ -1,10 +1,19 @@
 package com.ry.example.ffmpeg.chapter03;
 
+import com.ry.example.ffmpeg.common.AbrLadder;
+import com.ry.example.ffmpeg.common.ChunkedEncoder;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.ProgressListener;
+import com.ry.example.ffmpeg.common.Rational;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,9 +54,7 @@ public class MergeAudioVideo {
             command.add(audioCodec);
             command.add(outputPath);
             
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -65,17 +72,64 @@ public class MergeAudioVideo {
      */
     public static boolean reencodeVideo(String inputPath, String outputPath, String codec, 
                                        int crf, String preset) {
+        return reencodeVideo(inputPath, outputPath, codec, crf, preset, null);
+    }
+
+    /**
+     * 重新编码视频流，并回调编码进度
+     * @param inputPath 输入文件路径
+     * @param outputPath 输出文件路径
+     * @param codec 视频编码器 (如 "libx264", "libx265", "libvpx")
+     * @param crf 质量参数 (18-28, 18为最高质量)
+     * @param preset 编码速度预设 (如 "ultrafast", "fast", "medium", "slow")
+     * @param listener 进度监听器（可获取速度倍数、码率、丢帧数和剩余时间），可为null
+     * @return 是否成功
+     */
+    public static boolean reencodeVideo(String inputPath, String outputPath, String codec, 
+                                       int crf, String preset, ProgressListener listener) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-c:v", codec, 
                                "-crf", String.valueOf(crf), "-preset", preset, 
                                "-c:a", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command, listener).isSuccess();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 分块并行重新编码视频流
+     * 在关键帧处把视频切成若干块并行编码，再无损拼接并复用原音频，适合多核机器上的长视频
+     * @param inputPath 输入文件路径
+     * @param outputPath 输出文件路径
+     * @param codec 视频编码器 (如 "libx264", "libx265")
+     * @param crf 质量参数 (18-28, 18为最高质量)
+     * @param preset 编码速度预设 (如 "ultrafast", "fast", "medium", "slow")
+     * @param chunkSeconds 每块的目标时长（秒）
+     * @param parallelism 同时编码的块数
+     * @return 是否成功
+     */
+    public static boolean reencodeVideoChunked(String inputPath, String outputPath, String codec,
+                                              int crf, String preset, double chunkSeconds, int parallelism) {
+        ChunkedEncoder encoder = new ChunkedEncoder(chunkSeconds, parallelism);
+        try {
+            List<String> options = new ArrayList<>();
+            options.add("-c:v");
+            options.add(codec);
+            options.add("-crf");
+            options.add(String.valueOf(crf));
+            options.add("-preset");
+            options.add(preset);
+            boolean success = encoder.encode(inputPath, outputPath, options);
+            System.out.println("分块编码: " + encoder.getLastChunkCount() + " 块, 并行度 " + parallelism
+                    + (success ? "" : "，编码失败"));
+            return success;
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            encoder.shutdown();
         }
     }
 
@@ -92,10 +146,7 @@ public class MergeAudioVideo {
             String scaleFilter = height == -1 ? "scale=" + width + ":-1" : "scale=" + width + ":" + height;
             String[] command = {"ffmpeg", "-i", inputPath, "-vf", scaleFilter, 
                                "-c:v", "libx264", "-c:a", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -115,10 +166,7 @@ public class MergeAudioVideo {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-c:v", videoCodec, 
                                "-c:a", audioCodec, outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -126,24 +174,27 @@ public class MergeAudioVideo {
     }
 
     /**
-     * 使用concat协议合并视频文件
+     * 使用concat解封装器合并视频文件
+     * 文件列表通过标准输入传给 ffmpeg，不在工作目录写列表文件，多个任务同时执行也不会互相覆盖
      * @param videoFiles 视频文件路径数组
      * @param outputPath 输出文件路径
-     * @param copyStream 是否复制流（不重新编码）
+     * @param copyStream 是否复制流（不重新编码）；输入的编码参数不一致时自动改用concat滤镜
      * @return 是否成功
      */
     public static boolean concatVideos(String[] videoFiles, String outputPath, boolean copyStream) {
         try {
+            if (copyStream && !isConcatCompatible(videoFiles)) {
+                System.out.println("输入文件的编码参数不一致，改用concat滤镜重新编码");
+                return concatVideosWithFilter(videoFiles, outputPath);
+            }
+
             // 创建文件列表
-            String fileListPath = "concat_list.txt";
-            FileWriter writer = new FileWriter(fileListPath);
-            
+            StringBuilder fileList = new StringBuilder();
             for (String videoFile : videoFiles) {
-                // 转义文件路径中的特殊字符
-                String escapedPath = videoFile.replace("'", "'\"'\"'");
-                writer.write("file '" + escapedPath + "'\n");
+                // 列表从管道读取，相对路径无法解析，统一使用绝对路径并转义单引号
+                String escapedPath = new File(videoFile).getAbsolutePath().replace("'", "'\\''");
+                fileList.append("file '").append(escapedPath).append("'\n");
             }
-            writer.close();
             
             // 构建命令
             List<String> command = new ArrayList<>();
@@ -152,8 +203,10 @@ public class MergeAudioVideo {
             command.add("concat");
             command.add("-safe");
             command.add("0");
+            command.add("-protocol_whitelist");
+            command.add("file,pipe");
             command.add("-i");
-            command.add(fileListPath);
+            command.add("pipe:0");
             
             if (copyStream) {
                 command.add("-c");
@@ -162,19 +215,66 @@ public class MergeAudioVideo {
             
             command.add(outputPath);
             
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            
-            // 删除临时文件列表
-            new File(fileListPath).delete();
-            
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault()
+                    .execute(command, fileList.toString().getBytes(StandardCharsets.UTF_8)).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * 合并视频文件，自动选择方式：编码参数一致时直接复制流，否则使用concat滤镜重新编码
+     * @param videoFiles 视频文件路径数组
+     * @param outputPath 输出文件路径
+     * @return 是否成功
+     */
+    public static boolean concatVideos(String[] videoFiles, String outputPath) {
+        return concatVideos(videoFiles, outputPath, true);
+    }
+
+    /**
+     * 检查多个文件能否用concat解封装器直接复制流合并：
+     * 音视频流的数量、编码器、profile、分辨率、像素格式、帧率、采样率和声道数都必须一致
+     * @param videoFiles 视频文件路径数组
+     * @return 是否可以直接复制流
+     */
+    public static boolean isConcatCompatible(String[] videoFiles) throws IOException, InterruptedException {
+        String expected = null;
+        for (String videoFile : videoFiles) {
+            String signature = concatSignature(MediaProbe.probe(videoFile));
+            if (expected == null) {
+                expected = signature;
+            } else if (!expected.equals(signature)) {
+                System.out.println("编码参数不一致: " + videoFile + "\n  " + expected + "\n  " + signature);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String concatSignature(MediaInfo info) {
+        StringBuilder signature = new StringBuilder();
+        for (StreamInfo stream : info.getStreams()) {
+            if ("video".equals(stream.getCodecType())) {
+                Rational frameRate = stream.getFrameRate();
+                signature.append("[v ").append(stream.getCodecName())
+                         .append(' ').append(stream.getProperty("profile"))
+                         .append(' ').append(stream.getWidth()).append('x').append(stream.getHeight())
+                         .append(' ').append(stream.getProperty("pix_fmt"))
+                         .append(' ').append(frameRate.getNum()).append('/').append(frameRate.getDen())
+                         .append(']');
+            } else if ("audio".equals(stream.getCodecType())) {
+                signature.append("[a ").append(stream.getCodecName())
+                         .append(' ').append(stream.getProperty("profile"))
+                         .append(' ').append(stream.getSampleRate()).append("Hz")
+                         .append(' ').append(stream.getChannels()).append("ch")
+                         .append(']');
+            }
+        }
+        return signature.toString();
+    }
+
     /**
      * 使用concat滤镜合并视频（适用于不同格式的视频）
      * @param videoFiles 视频文件路径数组
@@ -216,9 +316,7 @@ public class MergeAudioVideo {
             command.add("aac");
             command.add(outputPath);
             
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -240,10 +338,7 @@ public class MergeAudioVideo {
                                "-c:v", "copy", "-c:a", "aac", 
                                "-af", "adelay=" + delayMs + "|" + delayMs, 
                                outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -289,9 +384,7 @@ public class MergeAudioVideo {
             command.add("aac");
             command.add(outputPath);
             
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -299,48 +392,36 @@ public class MergeAudioVideo {
     }
 
     /**
-     * 生成多种分辨率的输出
+     * 生成多种分辨率的输出（1080p/720p/480p）
+     * 只解码一次，用 split 级联缩放后在同一进程内编码全部档位，各档位关键帧对齐
      * @param inputPath 输入文件路径
      * @param outputPrefix 输出文件前缀
      * @return 是否成功
      */
     public static boolean generateMultipleResolutions(String inputPath, String outputPrefix) {
         try {
-            List<String> command = new ArrayList<>();
-            command.add("ffmpeg");
-            command.add("-i");
-            command.add(inputPath);
-            
-            // 1080p
-            command.add("-vf");
-            command.add("scale=1920:1080");
-            command.add("-c:v");
-            command.add("libx264");
-            command.add("-b:v");
-            command.add("5M");
-            command.add(outputPrefix + "_1080p.mp4");
-            
-            // 720p
-            command.add("-vf");
-            command.add("scale=1280:720");
-            command.add("-c:v");
-            command.add("libx264");
-            command.add("-b:v");
-            command.add("2.5M");
-            command.add(outputPrefix + "_720p.mp4");
-            
-            // 480p
-            command.add("-vf");
-            command.add("scale=854:480");
-            command.add("-c:v");
-            command.add("libx264");
-            command.add("-b:v");
-            command.add("1M");
-            command.add(outputPrefix + "_480p.mp4");
-            
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return AbrLadder.defaultLadder().generate(inputPath, outputPrefix, AbrLadder.Format.MP4);
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 生成自适应码率流（HLS 或 DASH）
+     * @param inputPath 输入文件路径
+     * @param outputDir 输出目录，HLS 生成 master.m3u8，DASH 生成 manifest.mpd
+     * @param format 输出格式
+     * @param segmentSeconds 分片时长（秒）
+     * @return 是否成功
+     */
+    public static boolean generateAdaptiveStream(String inputPath, String outputDir,
+                                                 AbrLadder.Format format, double segmentSeconds) {
+        try {
+            AbrLadder ladder = AbrLadder.defaultLadder();
+            ladder.setSegmentSeconds(segmentSeconds);
+            return ladder.generate(inputPath, outputDir, format,
+                    event -> System.out.println("打包进度: " + event));
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -364,7 +445,8 @@ public class MergeAudioVideo {
         
         // 重新编码视频
         String reencodedPath = "reencoded_output.mp4";
-        if (reencodeVideo(mergedPath, reencodedPath, "libx264", 23, "medium")) {
+        if (reencodeVideo(mergedPath, reencodedPath, "libx264", 23, "medium",
+                event -> System.out.println("编码进度: " + event))) {
             System.out.println("视频重新编码成功: " + reencodedPath);
         }
         
@@ -383,7 +465,7 @@ public class MergeAudioVideo {
         // 合并多个视频文件示例
         String[] videoFiles = {"video1.mp4", "video2.mp4", "video3.mp4"};
         String concatenatedPath = "concatenated_output.mp4";
-        if (concatVideos(videoFiles, concatenatedPath, true)) {
+        if (concatVideos(videoFiles, concatenatedPath)) {
             System.out.println("视频合并成功: " + concatenatedPath);
         }
         
@@ -391,5 +473,10 @@ public class MergeAudioVideo {
         if (generateMultipleResolutions(reencodedPath, "multi_resolution")) {
             System.out.println("多分辨率输出生成成功");
         }
+
+        // 生成 HLS 自适应码率流
+        if (generateAdaptiveStream(reencodedPath, "hls_output", AbrLadder.Format.HLS, 4.0)) {
+            System.out.println("HLS 输出生成成功: hls_output/master.m3u8");
+        }
     }
 }
\ No newline at end of file
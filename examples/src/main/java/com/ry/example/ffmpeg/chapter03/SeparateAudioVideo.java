@@ -1,10 +1,19 @@
 package com.ry.example.ffmpeg.chapter03;
 
-import java.io.BufferedReader;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.KeyframeIndex;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * 3.2 分离音视频示例
@@ -21,10 +30,7 @@ public class SeparateAudioVideo {
     public static boolean copyVideoStream(String inputPath, String outputPath) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-c:v", "copy", "-an", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -40,10 +46,7 @@ public class SeparateAudioVideo {
     public static boolean copyAudioStream(String inputPath, String outputPath) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-c:a", "copy", "-vn", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -60,10 +63,7 @@ public class SeparateAudioVideo {
     public static boolean extractAudioToMp3(String inputPath, String outputPath, int quality) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-q:a", String.valueOf(quality), outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -80,10 +80,7 @@ public class SeparateAudioVideo {
     public static boolean extractAudioToAac(String inputPath, String outputPath, String bitrate) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-c:a", "aac", "-b:a", bitrate, outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -100,10 +97,7 @@ public class SeparateAudioVideo {
     public static boolean extractAudioToWav(String inputPath, String outputPath, int sampleRate) {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-ar", String.valueOf(sampleRate), outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -112,6 +106,7 @@ public class SeparateAudioVideo {
 
     /**
      * 切割视频文件（按时间）
+     * 流复制只能从关键帧开始，起点会对齐到之前最近的关键帧，并相应延长时长保证终点不变
      * @param inputPath 输入文件路径
      * @param outputPath 输出文件路径
      * @param startTime 开始时间（秒）
@@ -121,14 +116,31 @@ public class SeparateAudioVideo {
      */
     public static boolean cutVideo(String inputPath, String outputPath, int startTime, int duration, boolean copyStream) {
         try {
+            double start = startTime;
+            double length = duration;
+            if (copyStream) {
+                try {
+                    KeyframeIndex index = KeyframeIndex.forFile(inputPath);
+                    double offset = index.getStartTime();
+                    double keyframe = index.keyframeAtOrBefore(offset + startTime) - offset;
+                    if (keyframe < start) {
+                        System.out.println("起点对齐到关键帧: " + startTime + "s -> " + String.format("%.3f", keyframe) + "s");
+                        length += start - keyframe;
+                        start = Math.max(0.0, keyframe);
+                    }
+                } catch (IOException e) {
+                    System.err.println("无法生成关键帧索引，按原始时间切割: " + e.getMessage());
+                }
+            }
+            
             List<String> command = new ArrayList<>();
             command.add("ffmpeg");
             command.add("-ss");
-            command.add(String.valueOf(startTime));
+            command.add(String.format(Locale.ROOT, "%.3f", start));
             command.add("-i");
             command.add(inputPath);
             command.add("-t");
-            command.add(String.valueOf(duration));
+            command.add(String.format(Locale.ROOT, "%.3f", length));
             
             if (copyStream) {
                 command.add("-c");
@@ -137,15 +149,197 @@ public class SeparateAudioVideo {
             
             command.add(outputPath);
             
-            Process process = new ProcessBuilder(command).start();
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * 智能切割：帧级精确且接近流复制的速度
+     * 起点到第一个关键帧、最后一个关键帧到终点这两段不完整的 GOP 按原视频的编码、像素格式和 profile 重新编码，
+     * 中间完整的 GOP 直接流复制，音频从原文件按时间段流复制后与视频合并。
+     * x264/x265 重新编码出的 SPS/PPS 与原视频并不相同，三段必须带内携带各自的参数集，封装格式按扩展名选择：
+     * .ts/.m2ts/.mts 写 MPEG-TS（参数集本来就随关键帧带内传输）；.mp4/.m4v/.mov 使用允许带内参数集的
+     * avc3/hev1 样本描述（avc1/hvc1 只能在 avcC/hvcC 里存一份参数集）；其他扩展名直接返回失败。
+     * 只支持 H.264/HEVC，其他编码或片段内没有完整 GOP 时改为整段重新编码。
+     * @param inputPath 输入文件路径
+     * @param outputPath 输出文件路径，扩展名为 .ts/.m2ts/.mts/.mp4/.m4v/.mov
+     * @param startTime 开始时间（秒）
+     * @param duration 持续时间（秒）
+     * @return 是否成功
+     */
+    public static boolean smartCutVideo(String inputPath, String outputPath, double startTime, double duration) {
+        String muxer = smartCutMuxer(outputPath);
+        if (muxer == null) {
+            System.err.println("智能切割只支持 .ts/.m2ts/.mts/.mp4/.m4v/.mov 输出: " + outputPath);
+            return false;
+        }
+        File workDir = null;
+        try {
+            StreamInfo video = MediaProbe.probe(inputPath).getVideoStream();
+            String encoder = video == null ? null : smartCutEncoder(video.getCodecName());
+            KeyframeIndex index = KeyframeIndex.forFile(inputPath);
+            double offset = index.getStartTime();
+            double endTime = startTime + duration;
+            double firstKeyframe = index.keyframeAtOrAfter(offset + startTime) - offset;
+            double lastKeyframe = index.keyframeAtOrBefore(offset + endTime) - offset;
+            
+            if (encoder == null || firstKeyframe < startTime || lastKeyframe <= firstKeyframe) {
+                System.out.println("无法智能切割，整段重新编码");
+                return reencodeRange(inputPath, outputPath, startTime, duration, null);
+            }
+            
+            workDir = Files.createTempDirectory("smartcut").toFile();
+            List<String> encodeOptions = new ArrayList<>();
+            encodeOptions.add("-c:v");
+            encodeOptions.add(encoder);
+            String pixelFormat = video.getProperty("pix_fmt");
+            if (pixelFormat != null) {
+                encodeOptions.add("-pix_fmt");
+                encodeOptions.add(pixelFormat);
+            }
+            String profile = video.getProperty("profile");
+            if (profile != null && !profile.isEmpty()) {
+                encodeOptions.add("-profile:v");
+                encodeOptions.add(profile.toLowerCase(Locale.ROOT).replace("constrained ", "").replace(" ", ""));
+            }
+            encodeOptions.add("-crf");
+            encodeOptions.add("18");
+            
+            // 首段和中间段的结束时间内缩 1ms，避免浮点误差把关键帧本身划进前一段；
+            // 尾段从最后一个关键帧精确定位开始，正好接上中间段，不丢帧也不重复
+            List<File> pieces = new ArrayList<>();
+            if (firstKeyframe > startTime) {
+                File head = new File(workDir, "head.ts");
+                if (!reencodeRange(inputPath, head.getPath(), startTime, firstKeyframe - startTime - 0.001, encodeOptions)) {
+                    return false;
+                }
+                pieces.add(head);
+            }
+            File middle = new File(workDir, "middle.ts");
+            List<String> copyCommand = new ArrayList<>();
+            copyCommand.add("ffmpeg");
+            copyCommand.add("-ss");
+            copyCommand.add(String.format(Locale.ROOT, "%.6f", firstKeyframe + 0.001));
+            copyCommand.add("-i");
+            copyCommand.add(inputPath);
+            copyCommand.add("-t");
+            copyCommand.add(String.format(Locale.ROOT, "%.6f", lastKeyframe - firstKeyframe - 0.001));
+            copyCommand.add("-an");
+            copyCommand.add("-c:v");
+            copyCommand.add("copy");
+            copyCommand.add(middle.getPath());
+            if (!FFmpegExecutor.getDefault().execute(copyCommand).isSuccess()) {
+                return false;
+            }
+            pieces.add(middle);
+            if (endTime > lastKeyframe) {
+                File tail = new File(workDir, "tail.ts");
+                if (!reencodeRange(inputPath, tail.getPath(), lastKeyframe, endTime - lastKeyframe, encodeOptions)) {
+                    return false;
+                }
+                pieces.add(tail);
+            }
+            
+            File list = new File(workDir, "pieces.txt");
+            try (PrintWriter writer = new PrintWriter(list, "UTF-8")) {
+                for (File piece : pieces) {
+                    writer.println("file '" + piece.getAbsolutePath().replace("'", "'\\''") + "'");
+                }
+            }
+            
+            List<String> command = new ArrayList<>(Arrays.asList("ffmpeg", "-y", "-f", "concat", "-safe", "0",
+                    "-i", list.getPath(), "-ss", String.format(Locale.ROOT, "%.6f", startTime),
+                    "-t", String.format(Locale.ROOT, "%.6f", duration), "-i", inputPath,
+                    "-map", "0:v:0", "-map", "1:a?", "-c", "copy",
+                    "-t", String.format(Locale.ROOT, "%.6f", duration)));
+            if (!"mpegts".equals(muxer)) {
+                command.add("-tag:v");
+                command.add("h264".equals(video.getCodecName()) ? "avc3" : "hev1");
+            }
+            command.add("-f");
+            command.add(muxer);
+            command.add(outputPath);
+            boolean success = FFmpegExecutor.getDefault().execute(command).isSuccess();
+            if (success) {
+                System.out.println("智能切割完成，重新编码 " + String.format("%.2f", (firstKeyframe - startTime) + (endTime - lastKeyframe))
+                        + " 秒，流复制 " + String.format("%.2f", lastKeyframe - firstKeyframe) + " 秒");
+            }
+            return success;
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (workDir != null) {
+                File[] files = workDir.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        file.delete();
+                    }
+                }
+                workDir.delete();
+            }
+        }
+    }
+
+    /**
+     * 按扩展名选择智能切割结果的封装格式，只接受能带内携带参数集的格式，其他返回 null
+     */
+    private static String smartCutMuxer(String outputPath) {
+        String name = outputPath.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".ts") || name.endsWith(".m2ts") || name.endsWith(".mts")) {
+            return "mpegts";
+        }
+        if (name.endsWith(".mp4") || name.endsWith(".m4v")) {
+            return "mp4";
+        }
+        if (name.endsWith(".mov")) {
+            return "mov";
+        }
+        return null;
+    }
+
+    /**
+     * 智能切割使用的编码器，只支持可在 MPEG-TS 中带内携带参数集的 H.264/HEVC
+     */
+    private static String smartCutEncoder(String codecName) {
+        switch (codecName) {
+            case "h264":
+                return "libx264";
+            case "hevc":
+                return "libx265";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 精确定位并重新编码一段视频
+     * @param encodeOptions 视频编码参数，为null时使用默认编码并保留音频
+     */
+    private static boolean reencodeRange(String inputPath, String outputPath, double startTime, double duration,
+                                         List<String> encodeOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("ffmpeg");
+        command.add("-y");
+        // 输入端定位后解码丢弃目标时间之前的帧，保证片段从指定时间的那一帧开始
+        command.add("-accurate_seek");
+        command.add("-ss");
+        command.add(String.format(Locale.ROOT, "%.6f", startTime));
+        command.add("-i");
+        command.add(inputPath);
+        command.add("-t");
+        command.add(String.format(Locale.ROOT, "%.6f", duration));
+        if (encodeOptions != null) {
+            command.add("-an");
+            command.addAll(encodeOptions);
+        }
+        command.add(outputPath);
+        return FFmpegExecutor.getDefault().execute(command).isSuccess();
+    }
+
     /**
      * 分段切割视频
      * @param inputPath 输入文件路径
@@ -158,10 +352,7 @@ public class SeparateAudioVideo {
             String[] command = {"ffmpeg", "-i", inputPath, "-f", "segment", 
                                "-segment_time", String.valueOf(segmentDuration), 
                                "-c", "copy", outputPrefix + "_%03d.mp4"};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -180,10 +371,7 @@ public class SeparateAudioVideo {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-map", "0:" + streamType + ":" + streamIndex, 
                                "-c", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -197,23 +385,22 @@ public class SeparateAudioVideo {
      */
     public static String getStreamInfo(String inputPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-show_entries", 
-                               "stream=index,codec_name,codec_type,language", 
-                               "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            MediaInfo mediaInfo = MediaProbe.probe(inputPath);
             StringBuilder info = new StringBuilder();
-            String line;
             
             info.append("=== 流信息 ===\n");
-            while ((line = reader.readLine()) != null) {
-                info.append(line).append("\n");
+            for (StreamInfo stream : mediaInfo.getStreams()) {
+                info.append(stream.getIndex()).append(",")
+                    .append(stream.getCodecName()).append(",")
+                    .append(stream.getCodecType());
+                if (!stream.getLanguage().isEmpty()) {
+                    info.append(",").append(stream.getLanguage());
+                }
+                info.append("\n");
             }
-            reader.close();
             
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "获取流信息失败";
         }
@@ -227,15 +414,98 @@ public class SeparateAudioVideo {
      * @return 成功切割的片段数量
      */
     public static int batchCutVideo(String inputPath, int[][] segments, String outputPrefix) {
-        int successCount = 0;
+        return batchCutVideo(inputPath, segments, outputPrefix, true);
+    }
+
+    /**
+     * 批量切割视频为多个片段
+     * 所有片段在一次 ffmpeg 运行中输出：输入只解封装（重新编码时只解码）一次，
+     * 每个输出用自己的 -ss/-t 截取，片段之间可以重叠。
+     * 输入先跳到最早的片段起点，流复制时各片段起点对齐到之前最近的关键帧。
+     * 整体运行失败时，对没有生成的片段逐个重新切割。
+     * @param inputPath 输入文件路径
+     * @param segments 切割片段数组，每个元素为 [开始时间, 持续时间]
+     * @param outputPrefix 输出文件前缀
+     * @param copyStream 是否复制流（不重新编码）
+     * @return 成功切割的片段数量
+     */
+    public static int batchCutVideo(String inputPath, int[][] segments, String outputPrefix, boolean copyStream) {
+        if (segments.length == 0) {
+            return 0;
+        }
+        
+        double[] starts = new double[segments.length];
+        double[] durations = new double[segments.length];
+        KeyframeIndex index = null;
+        if (copyStream) {
+            try {
+                index = KeyframeIndex.forFile(inputPath);
+            } catch (IOException | InterruptedException e) {
+                System.err.println("无法生成关键帧索引，按原始时间切割: " + e.getMessage());
+            }
+        }
+        double inputSeek = Double.MAX_VALUE;
+        for (int i = 0; i < segments.length; i++) {
+            starts[i] = segments[i][0];
+            durations[i] = segments[i][1];
+            if (index != null) {
+                double offset = index.getStartTime();
+                double keyframe = Math.max(0.0, index.keyframeAtOrBefore(offset + starts[i]) - offset);
+                if (keyframe < starts[i]) {
+                    durations[i] += starts[i] - keyframe;
+                    starts[i] = keyframe;
+                }
+            }
+            inputSeek = Math.min(inputSeek, starts[i]);
+        }
+        
+        List<String> command = new ArrayList<>();
+        command.add("ffmpeg");
+        command.add("-y");
+        command.add("-ss");
+        command.add(floorMillis(inputSeek));
+        command.add("-i");
+        command.add(inputPath);
+        String[] outputPaths = new String[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            outputPaths[i] = outputPrefix + "_segment_" + (i + 1) + ".mp4";
+            new File(outputPaths[i]).delete();
+            // 只取视频和音频：数据、时间码、字幕、附件流放不进 MP4，会让整条命令失败
+            command.add("-map");
+            command.add("0:v:0");
+            command.add("-map");
+            command.add("0:a?");
+            command.add("-ss");
+            command.add(floorMillis(starts[i] - Math.floor(inputSeek * 1000) / 1000));
+            command.add("-t");
+            command.add(String.format(Locale.ROOT, "%.3f", durations[i]));
+            if (copyStream) {
+                command.add("-c");
+                command.add("copy");
+            }
+            command.add(outputPaths[i]);
+        }
+        
+        try {
+            if (!FFmpegExecutor.getDefault().execute(command).isSuccess()) {
+                System.err.println("批量切割未全部成功，检查各片段输出");
+            }
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+        }
         
+        int successCount = 0;
         for (int i = 0; i < segments.length; i++) {
-            String outputPath = outputPrefix + "_segment_" + (i + 1) + ".mp4";
-            boolean success = cutVideo(inputPath, outputPath, segments[i][0], segments[i][1], true);
+            File output = new File(outputPaths[i]);
+            boolean success = isValidOutput(output);
+            if (!success) {
+                // 只重新切割没有生成或损坏的片段，避免一个片段的错误影响其他片段
+                success = cutVideo(inputPath, outputPaths[i], segments[i][0], segments[i][1], copyStream);
+            }
             
             if (success) {
                 successCount++;
-                System.out.println("成功切割片段 " + (i + 1) + ": " + outputPath);
+                System.out.println("成功切割片段 " + (i + 1) + ": " + outputPaths[i]);
             } else {
                 System.out.println("切割片段 " + (i + 1) + " 失败");
             }
@@ -244,6 +514,28 @@ public class SeparateAudioVideo {
         return successCount;
     }
 
+    /**
+     * 片段输出是否可用：文件非空且 ffprobe 能读出至少一个流
+     */
+    private static boolean isValidOutput(File output) {
+        if (!output.isFile() || output.length() == 0) {
+            return false;
+        }
+        try {
+            MediaInfo info = MediaProbe.probe(output.getPath());
+            return info.hasVideo() || info.hasAudio();
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 流复制时的 -ss 取值：向下截断到毫秒，四舍五入可能越过关键帧的 pts 而丢掉关键帧
+     */
+    private static String floorMillis(double seconds) {
+        return String.format(Locale.ROOT, "%.3f", Math.floor(Math.max(0.0, seconds) * 1000) / 1000);
+    }
+
     /**
      * 主方法示例
      */
@@ -287,5 +579,10 @@ public class SeparateAudioVideo {
         };
         int successCount = batchCutVideo(inputPath, segments, "batch_cut");
         System.out.println("批量切割完成，成功 " + successCount + " 个片段");
+        
+        // 智能切割：帧级精确，只重新编码首尾不完整的GOP
+        if (smartCutVideo(inputPath, "smart_cut.mp4", 12.4, 20.0)) {
+            System.out.println("智能切割成功");
+        }
     }
 }
\ No newline at end of file
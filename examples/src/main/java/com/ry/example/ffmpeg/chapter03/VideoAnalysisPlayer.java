@@ -1,12 +1,21 @@
 package com.ry.example.ffmpeg.chapter03;
 
-import java.io.BufferedReader;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.FrameInfo;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.PacketInfo;
+import com.ry.example.ffmpeg.common.ProbeStreams;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * 3.4 视频浏览与格式分析示例
@@ -107,21 +116,23 @@ public class VideoAnalysisPlayer {
      */
     public static String getBasicInfo(String videoPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-show_format", "-show_streams", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            MediaInfo mediaInfo = MediaProbe.probe(videoPath);
             StringBuilder info = new StringBuilder();
-            String line;
             
             info.append("=== 基本信息 ===\n");
-            while ((line = reader.readLine()) != null) {
-                info.append(line).append("\n");
+            for (StreamInfo stream : mediaInfo.getStreams()) {
+                info.append("[STREAM]\n");
+                appendProperties(info, stream.getProperties(), "");
+                appendProperties(info, stream.getTags(), "TAG:");
+                info.append("[/STREAM]\n");
             }
-            reader.close();
+            info.append("[FORMAT]\n");
+            appendProperties(info, mediaInfo.getFormatProperties(), "");
+            appendProperties(info, mediaInfo.getFormatTags(), "TAG:");
+            info.append("[/FORMAT]\n");
             
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "获取基本信息失败";
         }
@@ -134,21 +145,14 @@ public class VideoAnalysisPlayer {
      */
     public static String getFormatInfo(String videoPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-show_format", "-of", "csv=p=0", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            MediaInfo mediaInfo = MediaProbe.probe(videoPath);
             StringBuilder info = new StringBuilder();
-            String line;
             
             info.append("=== 容器格式信息 ===\n");
-            while ((line = reader.readLine()) != null) {
-                info.append(line).append("\n");
-            }
-            reader.close();
+            info.append(String.join(",", mediaInfo.getFormatProperties().values())).append("\n");
             
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "获取格式信息失败";
         }
@@ -161,21 +165,16 @@ public class VideoAnalysisPlayer {
      */
     public static String getStreamInfo(String videoPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-show_streams", "-of", "csv=p=0", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            MediaInfo mediaInfo = MediaProbe.probe(videoPath);
             StringBuilder info = new StringBuilder();
-            String line;
             
             info.append("=== 流信息 ===\n");
-            while ((line = reader.readLine()) != null) {
-                info.append(line).append("\n");
+            for (StreamInfo stream : mediaInfo.getStreams()) {
+                info.append(String.join(",", stream.getProperties().values())).append("\n");
             }
-            reader.close();
             
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "获取流信息失败";
         }
@@ -183,30 +182,18 @@ public class VideoAnalysisPlayer {
 
     /**
      * 获取视频的帧信息
+     * 只让 ffprobe 读取需要的数据包，读够后立即结束进程
      * @param videoPath 视频文件路径
      * @param frameCount 要获取的帧数
      * @return 帧信息
      */
     public static String getFrameInfo(String videoPath, int frameCount) {
-        try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", "v:0", 
-                               "-show_frames", "-of", "csv=p=0", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder info = new StringBuilder();
-            String line;
-            int count = 0;
-            
-            info.append("=== 视频帧信息 (前").append(frameCount).append("帧) ===\n");
-            while ((line = reader.readLine()) != null && count < frameCount) {
-                info.append(line).append("\n");
-                count++;
-            }
-            reader.close();
-            
+        StringBuilder info = new StringBuilder();
+        info.append("=== 视频帧信息 (前").append(frameCount).append("帧) ===\n");
+        try (Stream<FrameInfo> frames = ProbeStreams.frames(videoPath, frameCount)) {
+            frames.forEach(frame -> info.append(frame).append("\n"));
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
             return "获取帧信息失败";
         }
@@ -214,29 +201,18 @@ public class VideoAnalysisPlayer {
 
     /**
      * 获取视频的数据包信息
+     * 只让 ffprobe 读取需要的数据包，读够后立即结束进程
      * @param videoPath 视频文件路径
      * @param packetCount 要获取的数据包数
      * @return 数据包信息
      */
     public static String getPacketInfo(String videoPath, int packetCount) {
-        try {
-            String[] command = {"ffprobe", "-v", "quiet", "-show_packets", "-of", "csv=p=0", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder info = new StringBuilder();
-            String line;
-            int count = 0;
-            
-            info.append("=== 数据包信息 (前").append(packetCount).append("包) ===\n");
-            while ((line = reader.readLine()) != null && count < packetCount) {
-                info.append(line).append("\n");
-                count++;
-            }
-            reader.close();
-            
+        StringBuilder info = new StringBuilder();
+        info.append("=== 数据包信息 (前").append(packetCount).append("包) ===\n");
+        try (Stream<PacketInfo> packets = ProbeStreams.packets(videoPath, packetCount)) {
+            packets.forEach(packet -> info.append(packet).append("\n"));
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
             return "获取数据包信息失败";
         }
@@ -249,50 +225,43 @@ public class VideoAnalysisPlayer {
      */
     public static String parseVideoParams(String videoPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", "v:0", 
-                               "-show_entries", "stream=width,height,bit_rate,r_frame_rate,duration", 
-                               "-of", "csv=p=0", videoPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            MediaInfo mediaInfo = MediaProbe.probe(videoPath);
+            StreamInfo video = mediaInfo.getVideoStream();
             StringBuilder info = new StringBuilder();
-            String line;
             
             info.append("=== 视频参数解析 ===\n");
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("=");
-                if (parts.length == 2) {
-                    String key = parts[0];
-                    String value = parts[1];
-                    
-                    switch (key) {
-                        case "width":
-                            info.append("视频宽度: ").append(value).append(" 像素\n");
-                            break;
-                        case "height":
-                            info.append("视频高度: ").append(value).append(" 像素\n");
-                            break;
-                        case "bit_rate":
-                            info.append("视频比特率: ").append(value).append(" bps\n");
-                            break;
-                        case "r_frame_rate":
-                            info.append("帧率: ").append(value).append(" fps\n");
-                            break;
-                        case "duration":
-                            info.append("时长: ").append(value).append(" 秒\n");
-                            break;
-                    }
-                }
+            if (video == null) {
+                info.append("未找到视频流\n");
+                return info.toString();
+            }
+            info.append("视频宽度: ").append(video.getWidth()).append(" 像素\n");
+            info.append("视频高度: ").append(video.getHeight()).append(" 像素\n");
+            long bitRate = video.getBitRate() > 0 ? video.getBitRate() : mediaInfo.getBitRate();
+            if (bitRate > 0) {
+                info.append("视频比特率: ").append(bitRate).append(" bps\n");
+            }
+            info.append("帧率: ").append(video.getFrameRate()).append(" fps\n");
+            double duration = video.getDurationSeconds() > 0 ? video.getDurationSeconds() : mediaInfo.getDurationSeconds();
+            if (duration > 0) {
+                info.append("时长: ").append(duration).append(" 秒\n");
             }
-            reader.close();
             
             return info.toString();
-        } catch (IOException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "解析视频参数失败";
         }
     }
 
+    /**
+     * 按 ffprobe 默认格式输出 key=value
+     */
+    private static void appendProperties(StringBuilder info, Map<String, String> properties, String prefix) {
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            info.append(prefix).append(entry.getKey()).append("=").append(entry.getValue()).append("\n");
+        }
+    }
+
     /**
      * 将H.264裸流封装为MP4格式
      * @param h264Path H.264文件路径
@@ -304,10 +273,7 @@ public class VideoAnalysisPlayer {
         try {
             String[] command = {"ffmpeg", "-i", h264Path, "-r", String.valueOf(frameRate), 
                                "-c:v", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -324,10 +290,7 @@ public class VideoAnalysisPlayer {
         try {
             String[] command = {"ffmpeg", "-fflags", "+genpts", "-i", h264Path, 
                                "-r", "25", "-c:v", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -345,10 +308,7 @@ public class VideoAnalysisPlayer {
         try {
             String[] command = {"ffmpeg", "-i", h264Path, "-i", audioPath, 
                                "-r", "25", "-c:v", "copy", "-c:a", "aac", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -1,8 +1,13 @@
 package com.ry.example.ffmpeg.chapter03;
 
-import java.io.BufferedReader;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.FrameCount;
+import com.ry.example.ffmpeg.common.FrameCounter;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,16 +24,9 @@ public class VideoAudioTime {
      */
     public static String getVideoFrameRate(String inputPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", "v:0", 
-                               "-show_entries", "stream=r_frame_rate", "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String frameRate = reader.readLine();
-            reader.close();
-            
-            return frameRate != null ? frameRate.trim() : "Unknown";
-        } catch (IOException e) {
+            StreamInfo video = MediaProbe.probe(inputPath).getVideoStream();
+            return video != null ? video.getFrameRate().toString() : "Unknown";
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "Error";
         }
@@ -41,16 +39,9 @@ public class VideoAudioTime {
      */
     public static String getAudioSampleRate(String inputPath) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", "a:0", 
-                               "-show_entries", "stream=sample_rate", "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String sampleRate = reader.readLine();
-            reader.close();
-            
-            return sampleRate != null ? sampleRate.trim() : "Unknown";
-        } catch (IOException e) {
+            StreamInfo audio = MediaProbe.probe(inputPath).getAudioStream();
+            return audio != null ? String.valueOf(audio.getSampleRate()) : "Unknown";
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "Error";
         }
@@ -64,16 +55,10 @@ public class VideoAudioTime {
      */
     public static String getTimeBase(String inputPath, String streamType) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", streamType + ":0", 
-                               "-show_entries", "stream=time_base", "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String timeBase = reader.readLine();
-            reader.close();
-            
-            return timeBase != null ? timeBase.trim() : "Unknown";
-        } catch (IOException e) {
+            MediaInfo mediaInfo = MediaProbe.probe(inputPath);
+            StreamInfo stream = "a".equals(streamType) ? mediaInfo.getAudioStream() : mediaInfo.getVideoStream();
+            return stream != null ? stream.getTimeBase().toString() : "Unknown";
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return "Error";
         }
@@ -86,18 +71,8 @@ public class VideoAudioTime {
      */
     public static double getVideoDuration(String inputPath) {
         try {
-            String[] command = {"ffprobe", "-v", "error", "-show_entries", 
-                               "format=duration", "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String durationStr = reader.readLine();
-            reader.close();
-            
-            if (durationStr != null && !durationStr.isEmpty()) {
-                return Double.parseDouble(durationStr.trim());
-            }
-        } catch (IOException | NumberFormatException e) {
+            return Math.max(0.0, MediaProbe.probeMetadata(inputPath).getDurationSeconds());
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
         }
         return 0.0;
@@ -105,24 +80,27 @@ public class VideoAudioTime {
 
     /**
      * 计算视频总帧数
+     * 优先使用容器记录的帧数或数据包计数，拿不到时才逐帧解码
      * @param inputPath 视频文件路径
      * @return 总帧数
      */
     public static int getTotalFrames(String inputPath) {
+        return getTotalFrames(inputPath, false);
+    }
+
+    /**
+     * 计算视频总帧数
+     * @param inputPath 视频文件路径
+     * @param exactDecode 是否逐帧解码统计（准确但很慢）
+     * @return 总帧数
+     */
+    public static int getTotalFrames(String inputPath, boolean exactDecode) {
         try {
-            String[] command = {"ffprobe", "-v", "quiet", "-select_streams", "v:0", 
-                               "-count_frames", "-show_entries", "stream=nb_frames", 
-                               "-of", "csv=p=0", inputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            String framesStr = reader.readLine();
-            reader.close();
-            
-            if (framesStr != null && !framesStr.isEmpty()) {
-                return Integer.parseInt(framesStr.trim());
+            FrameCount frameCount = FrameCounter.count(inputPath, exactDecode);
+            if (frameCount.isKnown()) {
+                return (int) frameCount.getFrames();
             }
-        } catch (IOException | NumberFormatException e) {
+        } catch (IOException | InterruptedException e) {
             e.printStackTrace();
         }
         return 0;
@@ -168,10 +146,7 @@ public class VideoAudioTime {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-r", String.valueOf(targetFrameRate), 
                                "-c:v", "libx264", "-c:a", "copy", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -189,10 +164,7 @@ public class VideoAudioTime {
         try {
             String[] command = {"ffmpeg", "-i", inputPath, "-ar", String.valueOf(targetSampleRate), 
                                "-c:v", "copy", "-c:a", "aac", outputPath};
-            Process process = new ProcessBuilder(command).start();
-            
-            int exitCode = process.waitFor();
-            return exitCode == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (IOException | InterruptedException e) {
             e.printStackTrace();
             return false;
@@ -205,24 +177,56 @@ public class VideoAudioTime {
      * @return 时间信息字符串
      */
     public static String getTimeInfo(String inputPath) {
+        try {
+            return getTimeInfo(MediaProbe.probe(inputPath));
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            return "获取时间信息失败: " + inputPath;
+        }
+    }
+
+    /**
+     * 根据已探测的媒体信息生成时间信息；容器没有记录帧数时用 {@link FrameCounter} 统计数据包
+     * @param mediaInfo 媒体信息
+     * @return 时间信息字符串
+     */
+    public static String getTimeInfo(MediaInfo mediaInfo) {
         StringBuilder info = new StringBuilder();
         
-        String videoFrameRate = getVideoFrameRate(inputPath);
-        String audioSampleRate = getAudioSampleRate(inputPath);
-        String videoTimeBase = getTimeBase(inputPath, "v");
-        String audioTimeBase = getTimeBase(inputPath, "a");
-        double duration = getVideoDuration(inputPath);
-        int totalFrames = getTotalFrames(inputPath);
+        StreamInfo video = mediaInfo.getVideoStream();
+        StreamInfo audio = mediaInfo.getAudioStream();
+        String videoFrameRate = video != null ? video.getFrameRate().toString() : "Unknown";
+        String audioSampleRate = audio != null ? String.valueOf(audio.getSampleRate()) : "Unknown";
+        String videoTimeBase = video != null ? video.getTimeBase().toString() : "Unknown";
+        String audioTimeBase = audio != null ? audio.getTimeBase().toString() : "Unknown";
+        double duration = Math.max(0.0, mediaInfo.getDurationSeconds());
+        // 优先使用容器记录的帧数；MKV/WebM 等没有 nb_frames 时改为统计数据包，不做全量解码
+        long totalFrames = 0;
+        FrameCount.Method frameCountMethod = FrameCount.Method.UNKNOWN;
+        if (video != null && video.getNbFrames() > 0) {
+            totalFrames = video.getNbFrames();
+            frameCountMethod = FrameCount.Method.CONTAINER;
+        } else if (video != null) {
+            try {
+                FrameCount frameCount = FrameCounter.count(mediaInfo.getPath(), false);
+                if (frameCount.isKnown()) {
+                    totalFrames = frameCount.getFrames();
+                    frameCountMethod = frameCount.getMethod();
+                }
+            } catch (IOException | InterruptedException e) {
+                System.err.println("统计帧数失败: " + e.getMessage());
+            }
+        }
         double actualFrameRate = parseFrameRate(videoFrameRate);
         
         info.append("=== 音视频时间信息 ===\n");
-        info.append("文件路径: ").append(inputPath).append("\n");
+        info.append("文件路径: ").append(mediaInfo.getPath()).append("\n");
         info.append("视频帧率: ").append(videoFrameRate).append(" (").append(actualFrameRate).append(" fps)\n");
         info.append("音频采样率: ").append(audioSampleRate).append(" Hz\n");
         info.append("视频时间基准: ").append(videoTimeBase).append("\n");
         info.append("音频时间基准: ").append(audioTimeBase).append("\n");
         info.append("总时长: ").append(String.format("%.2f", duration)).append(" 秒\n");
-        info.append("总帧数: ").append(totalFrames).append("\n");
+        info.append("总帧数: ").append(totalFrames).append(" (").append(frameCountMethod).append(")\n");
         
         if (actualFrameRate > 0) {
             double calculatedDuration = totalFrames / actualFrameRate;
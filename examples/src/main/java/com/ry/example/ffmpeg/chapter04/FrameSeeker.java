@@ -0,0 +1,26 @@
+package com.ry.example.ffmpeg.chapter04;
+
+import com.ry.example.ffmpeg.common.KeyframeIndex;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+
+/**
+ * 按帧号定位抓取器，供本章的图像处理器共用
+ */
+final class FrameSeeker {
+
+    private FrameSeeker() {
+    }
+
+    /**
+     * 有关键帧索引时按该帧的准确时间戳跳转（可变帧率的视频不会偏移），否则退回按帧号跳转
+     */
+    static void seekToFrame(FFmpegFrameGrabber grabber, String inputVideo, int frameIndex) throws Exception {
+        long timestamp = KeyframeIndex.frameTimestampMicros(inputVideo, frameIndex);
+        if (timestamp >= 0) {
+            grabber.setTimestamp(timestamp);
+        } else {
+            grabber.setVideoFrameNumber(frameIndex);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter04;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.Java2DFrameConverter;
@@ -104,10 +107,9 @@ public class ImageFormatConverter {
                 "ffmpeg -i %s -vf fps=%d,scale=%d:%d:flags=lanczos,split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse -loop 0 %s",
                 inputVideo, fps, width, height, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("GIF动画创建成功: " + outputFile);
             } else {
                 System.err.println("GIF动画创建失败");
@@ -129,19 +131,17 @@ public class ImageFormatConverter {
                 "ffmpeg -i %s -vf fps=%d,scale=%d:%d:flags=lanczos,palettegen -y %s",
                 inputVideo, fps, width, height, paletteFile);
             
-            Process paletteProcess = Runtime.getRuntime().exec(paletteCommand);
-            paletteProcess.waitFor();
+            JobResult paletteResult = FFmpegExecutor.getDefault().execute(paletteCommand);
             
-            if (paletteProcess.exitValue() == 0) {
+            if (paletteResult.isSuccess()) {
                 // 使用调色板创建GIF
                 String gifCommand = String.format(
                     "ffmpeg -i %s -i %s -lavfi fps=%d,scale=%d:%d:flags=lanczos[x];[x][1:v]paletteuse -y %s",
                     inputVideo, paletteFile, fps, width, height, outputFile);
                 
-                Process gifProcess = Runtime.getRuntime().exec(gifCommand);
-                gifProcess.waitFor();
+                JobResult gifResult = FFmpegExecutor.getDefault().execute(gifCommand);
                 
-                if (gifProcess.exitValue() == 0) {
+                if (gifResult.isSuccess()) {
                     System.out.println("高质量GIF创建成功: " + outputFile);
                     // 删除临时调色板文件
                     new File(paletteFile).delete();
@@ -215,10 +215,9 @@ public class ImageFormatConverter {
                     break;
             }
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("图像优化完成: " + outputFile);
                 
                 // 显示文件大小对比
@@ -242,10 +241,9 @@ public class ImageFormatConverter {
                 "ffmpeg -i %s -ss %d -t %d -vf fps=%d,scale=320:-1:flags=lanczos,split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse -loop 0 %s",
                 inputVideo, startTime, duration, fps, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("循环GIF创建成功: " + outputFile);
             } else {
                 System.err.println("循环GIF创建失败");
@@ -265,10 +263,9 @@ public class ImageFormatConverter {
                 "ffmpeg -i %s -vf drawtext=text='%s':fontfile=arial.ttf:x=10:y=10:fontsize=24:fontcolor=white %s",
                 inputGIF, text, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("添加文字到GIF成功: " + outputFile);
             } else {
                 System.err.println("添加文字到GIF失败");
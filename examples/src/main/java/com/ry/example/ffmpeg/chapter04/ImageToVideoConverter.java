@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter04;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.Java2DFrameConverter;
@@ -89,10 +92,9 @@ public class ImageToVideoConverter {
                 "ffmpeg -i %s -vf \"fade=in:0:30,fade=out:30:30\" -c:a copy %s",
                 outputFile.replace(".mp4", "_basic.mp4"), outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("带转场效果的视频创建成功: " + outputFile);
                 // 删除临时文件
                 new File(outputFile.replace(".mp4", "_basic.mp4")).delete();
@@ -117,8 +119,7 @@ public class ImageToVideoConverter {
                 "ffmpeg -framerate %d -i %s -c:v libx264 -preset slow -crf 18 -pix_fmt yuv420p -s %dx%d %s",
                 frameRate, inputPattern, width, height, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
         } catch (Exception e) {
             System.err.println("创建基础视频失败: " + e.getMessage());
@@ -141,10 +142,9 @@ public class ImageToVideoConverter {
                 "ffmpeg -i %s -i %s -c:v copy -c:a aac -b:a 192k -shortest %s",
                 outputFile.replace(".mp4", "_silent.mp4"), musicFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("带背景音乐的视频创建成功: " + outputFile);
                 // 删除临时文件
                 new File(outputFile.replace(".mp4", "_silent.mp4")).delete();
@@ -173,10 +173,9 @@ public class ImageToVideoConverter {
                 "ffmpeg -i %s -i %s -filter_complex overlay=W-w-10:H-h-10 -c:a copy %s",
                 outputFile.replace(".mp4", "_basic.mp4"), watermarkFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("带水印的视频创建成功: " + outputFile);
                 // 删除临时文件
                 new File(outputFile.replace(".mp4", "_basic.mp4")).delete();
@@ -214,10 +213,9 @@ public class ImageToVideoConverter {
                     return;
             }
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("幻灯片视频创建成功，效果: " + effect + ", 文件: " + outputFile);
             } else {
                 System.err.println("创建幻灯片视频失败");
@@ -245,10 +243,9 @@ public class ImageToVideoConverter {
                 String command = String.format("ffmpeg -i %s -s %dx%d -q:v 2 %s", 
                     inputPath, width, height, outputPath);
                 
-                Process process = Runtime.getRuntime().exec(command);
-                process.waitFor();
+                JobResult result = FFmpegExecutor.getDefault().execute(command);
                 
-                if (process.exitValue() == 0) {
+                if (result.isSuccess()) {
                     normalizedPaths.add(outputPath);
                     System.out.println("图片尺寸调整完成: " + outputPath);
                 }
@@ -1,5 +1,7 @@
 package com.ry.example.ffmpeg.chapter04;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
@@ -30,8 +32,8 @@ public class JPEGImageProcessor {
             grabber.start();
             
             // 跳转到指定帧
-            grabber.setVideoFrameNumber(frameIndex);
-            Frame frame = grabber.grab();
+            FrameSeeker.seekToFrame(grabber, inputVideo, frameIndex);
+            Frame frame = grabber.grabImage();
             
             if (frame != null && frame.image != null) {
                 saveFrameAsJPEG(frame, outputFile, quality);
@@ -151,7 +153,7 @@ public class JPEGImageProcessor {
             // 使用FFmpeg创建渐进式JPEG
             String command = String.format("ffmpeg -i %s -q:v 2 -progressive %s", 
                 inputFile, outputFile);
-            Runtime.getRuntime().exec(command);
+            FFmpegExecutor.getDefault().execute(command);
             System.out.println("创建渐进式JPEG: " + outputFile);
         } catch (Exception e) {
             System.err.println("创建渐进式JPEG失败: " + e.getMessage());
@@ -194,7 +196,7 @@ public class JPEGImageProcessor {
                     throw new IllegalArgumentException("不支持的操作: " + operation);
             }
             
-            Runtime.getRuntime().exec(command);
+            FFmpegExecutor.getDefault().execute(command);
             System.out.println("图像处理完成: " + operation);
         } catch (Exception e) {
             System.err.println("图像处理失败: " + e.getMessage());
@@ -209,7 +211,7 @@ public class JPEGImageProcessor {
         try {
             String command = String.format("ffmpeg -i %s -i %s -filter_complex overlay=%d:%d -q:v 2 %s", 
                 inputFile, watermarkFile, x, y, outputFile);
-            Runtime.getRuntime().exec(command);
+            FFmpegExecutor.getDefault().execute(command);
             System.out.println("添加水印完成: " + outputFile);
         } catch (Exception e) {
             System.err.println("添加水印失败: " + e.getMessage());
@@ -2,6 +2,7 @@ package com.ry.example.ffmpeg.chapter04;
 
 import org.bytedeco.ffmpeg.ffmpeg;
 import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
@@ -27,8 +28,8 @@ public class YUVImageProcessor {
             grabber.start();
             
             // 跳转到指定帧
-            grabber.setVideoFrameNumber(frameIndex);
-            Frame frame = grabber.grab();
+            FrameSeeker.seekToFrame(grabber, inputVideo, frameIndex);
+            Frame frame = grabber.grabImage();
             
             if (frame != null && frame.image != null) {
                 // 保存为原始YUV格式
@@ -46,7 +47,7 @@ public class YUVImageProcessor {
     /**
      * 保存YUV文件
      */
-    private static void saveYUVFile(Frame frame, String outputFile, int width, height) throws IOException {
+    private static void saveYUVFile(Frame frame, String outputFile, int width, int height) throws IOException {
         // 这里简化处理，实际YUV格式转换需要更复杂的逻辑
         try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(outputFile, width, height)) {
             recorder.setVideoCodec(avcodec.AV_CODEC_ID_RAWVIDEO);
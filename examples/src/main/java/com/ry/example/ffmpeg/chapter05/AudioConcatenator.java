@@ -1,9 +1,22 @@
 package com.ry.example.ffmpeg.chapter05;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.PcmConcatenator;
+import com.ry.example.ffmpeg.common.PcmEffectChain;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * 音频拼接器
@@ -16,29 +29,14 @@ public class AudioConcatenator {
      */
     public static void concatenateAudioSimple(String audio1, String audio2, String outputFile) {
         try {
-            // 创建临时列表文件
-            String listFile = "temp_audio_list.txt";
-            try (PrintWriter writer = new PrintWriter(listFile)) {
-                writer.println("file '" + audio1 + "'");
-                writer.println("file '" + audio2 + "'");
-            }
-            
-            String command = String.format(
-                "ffmpeg -f concat -safe 0 -i %s -c copy %s",
-                listFile, outputFile);
-            
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = concatDemuxer(List.of(audio1, audio2), outputFile);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("简单音频拼接完成: " + outputFile);
             } else {
                 System.err.println("简单音频拼接失败");
             }
             
-            // 删除临时文件
-            new File(listFile).delete();
-            
         } catch (Exception e) {
             System.err.println("简单音频拼接异常: " + e.getMessage());
             e.printStackTrace();
@@ -63,16 +61,25 @@ public class AudioConcatenator {
                 "ffmpeg -i %s -af afade=t=out:st=%.2f:d=%.2f %s",
                 audio1, duration1 - fadeOutDuration, fadeOutDuration, temp1);
             
-            Process fadeOutProcess = Runtime.getRuntime().exec(fadeOutCommand);
-            fadeOutProcess.waitFor();
+            JobResult fadeOutResult = FFmpegExecutor.getDefault().execute(fadeOutCommand);
+            if (!fadeOutResult.isSuccess()) {
+                System.err.println("淡出处理失败: " + fadeOutResult.getStderr());
+                new File(temp1).delete();
+                return;
+            }
             
             // 为第二段音频添加淡入效果
             String fadeInCommand = String.format(
                 "ffmpeg -i %s -af afade=t=in:st=0:d=%.2f %s",
                 audio2, fadeInDuration, temp2);
             
-            Process fadeInProcess = Runtime.getRuntime().exec(fadeInCommand);
-            fadeInProcess.waitFor();
+            JobResult fadeInResult = FFmpegExecutor.getDefault().execute(fadeInCommand);
+            if (!fadeInResult.isSuccess()) {
+                System.err.println("淡入处理失败: " + fadeInResult.getStderr());
+                new File(temp1).delete();
+                new File(temp2).delete();
+                return;
+            }
             
             // 拼接处理后的音频
             concatenateAudioSimple(temp1, temp2, outputFile);
@@ -99,10 +106,9 @@ public class AudioConcatenator {
                 "ffmpeg -i %s -i %s -filter_complex \"[0:a][1:a]acrossfade=d=%.2f:c1=tri:c2=tri[audio]\" -map \"[audio]\" %s",
                 audio1, audio2, crossfadeDuration, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("交叉淡化音频拼接完成: " + outputFile);
                 System.out.println("交叉淡化时长: " + crossfadeDuration + " 秒");
             } else {
@@ -117,43 +123,18 @@ public class AudioConcatenator {
     
     /**
      * 音频无缝拼接
+     * 在同一个滤镜图中统一采样率和声道数后拼接，不生成中间文件
      */
     public static void concatenateAudioSeamless(String audio1, String audio2, String outputFile) {
         try {
-            // 首先统一音频参数
-            String temp1 = "temp_seamless1.wav";
-            String temp2 = "temp_seamless2.wav";
-            
-            // 统一采样率和声道数
-            String unifyCommand1 = String.format(
-                "ffmpeg -i %s -ar 44100 -ac 2 %s", audio1, temp1);
-            String unifyCommand2 = String.format(
-                "ffmpeg -i %s -ar 44100 -ac 2 %s", audio2, temp2);
-            
-            Process process1 = Runtime.getRuntime().exec(unifyCommand1);
-            Process process2 = Runtime.getRuntime().exec(unifyCommand2);
+            JobResult concatResult = FFmpegExecutor.getDefault().execute(seamlessCommand(List.of(audio1, audio2), outputFile));
             
-            process1.waitFor();
-            process2.waitFor();
-            
-            // 使用高质量拼接
-            String concatenateCommand = String.format(
-                "ffmpeg -i %s -i %s -filter_complex \"[0:a][1:a]concat=n=2:v=0:a=1[out]\" -map \"[out]\" %s",
-                temp1, temp2, outputFile);
-            
-            Process concatProcess = Runtime.getRuntime().exec(concatenateCommand);
-            concatProcess.waitFor();
-            
-            if (concatProcess.exitValue() == 0) {
+            if (concatResult.isSuccess()) {
                 System.out.println("音频无缝拼接完成: " + outputFile);
             } else {
-                System.err.println("音频无缝拼接失败");
+                System.err.println("音频无缝拼接失败: " + concatResult.getStderr());
             }
             
-            // 清理临时文件
-            new File(temp1).delete();
-            new File(temp2).delete();
-            
         } catch (Exception e) {
             System.err.println("音频无缝拼接异常: " + e.getMessage());
             e.printStackTrace();
@@ -192,30 +173,14 @@ public class AudioConcatenator {
      */
     private static void concatenateMultipleSimple(List<String> audioFiles, String outputFile) {
         try {
-            // 创建临时列表文件
-            String listFile = "temp_multi_audio_list.txt";
-            try (PrintWriter writer = new PrintWriter(listFile)) {
-                for (String audioFile : audioFiles) {
-                    writer.println("file '" + audioFile + "'");
-                }
-            }
-            
-            String command = String.format(
-                "ffmpeg -f concat -safe 0 -i %s -c copy %s",
-                listFile, outputFile);
+            JobResult result = concatDemuxer(audioFiles, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("多文件简单拼接完成: " + outputFile);
             } else {
                 System.err.println("多文件简单拼接失败");
             }
             
-            // 删除临时文件
-            new File(listFile).delete();
-            
         } catch (Exception e) {
             System.err.println("多文件简单拼接异常: " + e.getMessage());
             e.printStackTrace();
@@ -224,6 +189,8 @@ public class AudioConcatenator {
     
     /**
      * 多文件交叉淡化拼接
+     * 格式一致的WAV文件在JVM内流式拼接，只混合淡化窗口；其他格式用一个 ffmpeg 进程、
+     * 一条 acrossfade 链处理所有输入，只编码一次
      */
     private static void concatenateMultipleCrossfade(List<String> audioFiles, String outputFile, 
                                                    double crossfadeDuration) {
@@ -233,29 +200,48 @@ public class AudioConcatenator {
                 return;
             }
             
-            // 递归处理多个文件
-            List<String> tempFiles = new ArrayList<>();
+            if (isWavOutput(outputFile) && PcmConcatenator.isWavCompatible(audioFiles)) {
+                PcmConcatenator concatenator = new PcmConcatenator().crossfade(crossfadeDuration);
+                long frames = concatenator.concat(audioFiles, outputFile);
+                printClampedCrossfade(crossfadeDuration, concatenator.getAppliedCrossfade());
+                System.out.println("多文件交叉淡化拼接完成（流式）: " + outputFile + ", " + frames + " 帧");
+                return;
+            }
             
-            for (int i = 0; i < audioFiles.size() - 1; i++) {
-                String tempFile = "temp_crossfade_" + i + ".wav";
-                concatenateAudioWithCrossfade(audioFiles.get(i), audioFiles.get(i + 1), 
-                                             tempFile, crossfadeDuration);
-                tempFiles.add(tempFile);
+            double duration = clampCrossfade(audioFiles, crossfadeDuration);
+            List<String> command = new ArrayList<>();
+            command.add("ffmpeg");
+            for (String audioFile : audioFiles) {
+                command.add("-i");
+                command.add(audioFile);
             }
             
-            // 如果有两个以上的文件，需要进一步处理
-            if (tempFiles.size() > 1) {
-                concatenateMultipleSimple(tempFiles, outputFile);
-                // 清理临时文件
-                for (String tempFile : tempFiles) {
-                    new File(tempFile).delete();
+            // [0:a][1:a]acrossfade[x1];[x1][2:a]acrossfade[x2];...
+            StringBuilder filter = new StringBuilder();
+            String previous = "[0:a]";
+            for (int i = 1; i < audioFiles.size(); i++) {
+                String label = "[x" + i + "]";
+                if (i > 1) {
+                    filter.append(';');
                 }
-            } else if (tempFiles.size() == 1) {
-                // 只有一个临时文件，重命名为输出文件
-                new File(tempFiles.get(0)).renameTo(new File(outputFile));
+                filter.append(previous).append('[').append(i).append(":a]")
+                      .append(String.format(Locale.ROOT, "acrossfade=d=%.3f:c1=tri:c2=tri", duration))
+                      .append(label);
+                previous = label;
             }
+            command.add("-filter_complex");
+            command.add(filter.toString());
+            command.add("-map");
+            command.add(previous);
+            command.add(outputFile);
             
-            System.out.println("多文件交叉淡化拼接完成: " + outputFile);
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
+            
+            if (result.isSuccess()) {
+                System.out.println("多文件交叉淡化拼接完成: " + outputFile);
+            } else {
+                System.err.println("多文件交叉淡化拼接失败: " + result.getStderr());
+            }
             
         } catch (Exception e) {
             System.err.println("多文件交叉淡化拼接异常: " + e.getMessage());
@@ -265,78 +251,128 @@ public class AudioConcatenator {
     
     /**
      * 多文件无缝拼接
+     * 格式一致的WAV文件在JVM内直接复制采样；其他格式在一个 ffmpeg 进程中统一参数后拼接，不生成中间文件
      */
     private static void concatenateMultipleSeamless(List<String> audioFiles, String outputFile) {
         try {
-            // 统一所有文件的参数
-            List<String> unifiedFiles = new ArrayList<>();
-            
-            for (int i = 0; i < audioFiles.size(); i++) {
-                String tempFile = "temp_unified_" + i + ".wav";
-                String command = String.format(
-                    "ffmpeg -i %s -ar 44100 -ac 2 %s", 
-                    audioFiles.get(i), tempFile);
-                
-                Process process = Runtime.getRuntime().exec(command);
-                process.waitFor();
-                
-                unifiedFiles.add(tempFile);
-            }
-            
-            // 构建concat过滤器
-            StringBuilder filter = new StringBuilder();
-            for (int i = 0; i < unifiedFiles.size(); i++) {
-                filter.append("[").append(i).append(":a]");
-            }
-            filter.append("concat=n=").append(unifiedFiles.size()).append(":v=0:a=1[out]");
-            
-            StringBuilder inputParams = new StringBuilder();
-            for (String unifiedFile : unifiedFiles) {
-                inputParams.append("-i ").append(unifiedFile).append(" ");
+            if (isWavOutput(outputFile) && PcmConcatenator.isWavCompatible(audioFiles)) {
+                long frames = new PcmConcatenator().concat(audioFiles, outputFile);
+                System.out.println("多文件无缝拼接完成（流式）: " + outputFile + ", " + frames + " 帧");
+                return;
             }
             
-            String command = String.format(
-                "ffmpeg %s -filter_complex \"%s\" -map \"[out]\" %s",
-                inputParams.toString(), filter.toString(), outputFile);
+            JobResult result = FFmpegExecutor.getDefault().execute(seamlessCommand(audioFiles, outputFile));
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("多文件无缝拼接完成: " + outputFile);
             } else {
                 System.err.println("多文件无缝拼接失败");
             }
             
-            // 清理临时文件
-            for (String tempFile : unifiedFiles) {
-                new File(tempFile).delete();
+        } catch (Exception e) {
+            System.err.println("多文件无缝拼接异常: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 原始PCM文件拼接，可交叉淡化（所有文件的采样率和声道数相同，s16le）
+     */
+    public static void concatenatePCM(List<String> pcmFiles, String outputFile, int sampleRate, int channels,
+                                      double crossfadeDuration) {
+        try {
+            PcmConcatenator concatenator = new PcmConcatenator()
+                    .rawFormat(sampleRate, channels, PcmEffectChain.SampleFormat.S16LE)
+                    .crossfade(crossfadeDuration);
+            long frames = concatenator.concat(pcmFiles, outputFile);
+            if (pcmFiles.size() > 1) {
+                printClampedCrossfade(crossfadeDuration, concatenator.getAppliedCrossfade());
             }
+            System.out.println("PCM拼接完成: " + outputFile + ", " + frames + " 帧");
             
         } catch (Exception e) {
-            System.err.println("多文件无缝拼接异常: " + e.getMessage());
+            System.err.println("PCM拼接异常: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
     /**
-     * 获取音频时长
+     * concat解封装器直接复制流；文件列表通过标准输入传给 ffmpeg，并行执行时不会互相覆盖列表文件
+     */
+    private static JobResult concatDemuxer(List<String> audioFiles, String outputFile)
+            throws IOException, InterruptedException {
+        StringBuilder fileList = new StringBuilder();
+        for (String audioFile : audioFiles) {
+            // 列表从管道读取，相对路径无法解析，统一使用绝对路径并转义单引号
+            String escapedPath = new File(audioFile).getAbsolutePath().replace("'", "'\\''");
+            fileList.append("file '").append(escapedPath).append("'\n");
+        }
+        List<String> command = List.of("ffmpeg", "-f", "concat", "-safe", "0",
+                "-protocol_whitelist", "file,pipe", "-i", "pipe:0", "-c", "copy", outputFile);
+        return FFmpegExecutor.getDefault().execute(command, fileList.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * 每个输入先统一为 44100Hz 立体声再用 concat 滤镜拼接
+     */
+    private static List<String> seamlessCommand(List<String> audioFiles, String outputFile) {
+        List<String> command = new ArrayList<>();
+        command.add("ffmpeg");
+        StringBuilder filter = new StringBuilder();
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < audioFiles.size(); i++) {
+            command.add("-i");
+            command.add(audioFiles.get(i));
+            filter.append('[').append(i).append(":a]aresample=44100,aformat=channel_layouts=stereo[a")
+                  .append(i).append("];");
+            labels.append("[a").append(i).append(']');
+        }
+        filter.append(labels).append("concat=n=").append(audioFiles.size()).append(":v=0:a=1[out]");
+        command.add("-filter_complex");
+        command.add(filter.toString());
+        command.add("-map");
+        command.add("[out]");
+        command.add(outputFile);
+        return command;
+    }
+    
+    /**
+     * 交叉淡化时长按 {@link PcmConcatenator#maxCrossfade(double[])} 限制（时长来自探测缓存）
+     */
+    private static double clampCrossfade(List<String> audioFiles, double crossfadeDuration) {
+        double[] durations = new double[audioFiles.size()];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = getAudioDuration(audioFiles.get(i));
+        }
+        double limit = PcmConcatenator.maxCrossfade(durations);
+        if (crossfadeDuration > limit) {
+            System.out.println("交叉淡化时长超过输入时长，缩短为 " + String.format("%.3f", limit) + " 秒");
+            return limit;
+        }
+        return crossfadeDuration;
+    }
+    
+    /**
+     * 交叉淡化被缩短时提示（容差 1ms，忽略换算成整数帧的舍入）
+     */
+    private static void printClampedCrossfade(double requested, double applied) {
+        if (applied + 0.001 < requested) {
+            System.out.println("交叉淡化时长超过输入长度，缩短为 " + String.format("%.3f", applied) + " 秒");
+        }
+    }
+    
+    private static boolean isWavOutput(String outputFile) {
+        return outputFile.toLowerCase(Locale.ROOT).endsWith(".wav");
+    }
+    
+    /**
+     * 获取音频时长：WAV/RF64/AIFF 只读文件头，其他格式使用探测缓存
      */
     private static double getAudioDuration(String audioFile) {
         try {
-            String command = String.format(
-                "ffprobe -v quiet -show_entries format=duration -of csv=p=0 %s",
-                audioFile);
-            
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
-                String line = reader.readLine();
-                if (line != null && !line.isEmpty()) {
-                    return Double.parseDouble(line.trim());
-                }
+            double duration = MediaProbe.probeMetadata(audioFile).getDurationSeconds();
+            if (duration > 0) {
+                return duration;
             }
             
         } catch (Exception e) {
@@ -371,21 +407,9 @@ public class AudioConcatenator {
             
             // 获取详细信息
             try {
-                String command = String.format(
-                    "ffprobe -v quiet -show_entries stream=sample_rate,channels,duration -of csv=p=0 %s",
-                    audioFile);
-                
-                Process process = Runtime.getRuntime().exec(command);
-                process.waitFor();
-                
-                try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                        new java.io.InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        if (!line.trim().isEmpty()) {
-                            System.out.println("流信息: " + line.trim());
-                        }
-                    }
+                for (StreamInfo stream : MediaProbe.probe(audioFile).getStreams()) {
+                    System.out.println("流信息: " + stream.getSampleRate() + "," + stream.getChannels()
+                            + "," + stream.getDurationSeconds());
                 }
                 
             } catch (Exception e) {
@@ -396,24 +420,45 @@ public class AudioConcatenator {
     
     /**
      * 批量音频处理脚本
+     * 每一对在工作线程中处理，ffmpeg 进程的并发数仍由 {@link FFmpegExecutor} 限制
      */
     public static void batchConcatenateAudio(String[] audioPairs, String outputDir, ConcatMethod method) {
-        for (int i = 0; i < audioPairs.length; i += 2) {
-            if (i + 1 < audioPairs.length) {
+        int pairs = audioPairs.length / 2;
+        if (pairs == 0) {
+            return;
+        }
+        ExecutorService workers = Executors.newFixedThreadPool(
+                Math.min(pairs, Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i + 1 < audioPairs.length; i += 2) {
+                String audio1 = audioPairs[i];
+                String audio2 = audioPairs[i + 1];
                 String outputFile = outputDir + "/concatenated_" + (i / 2 + 1) + ".wav";
                 
-                switch (method) {
-                    case SIMPLE:
-                        concatenateAudioSimple(audioPairs[i], audioPairs[i + 1], outputFile);
-                        break;
-                    case CROSSFADE:
-                        concatenateAudioWithCrossfade(audioPairs[i], audioPairs[i + 1], outputFile, 1.0);
-                        break;
-                    case SEAMLESS:
-                        concatenateAudioSeamless(audioPairs[i], audioPairs[i + 1], outputFile);
-                        break;
-                }
+                futures.add(workers.submit(() -> {
+                    switch (method) {
+                        case SIMPLE:
+                            concatenateAudioSimple(audio1, audio2, outputFile);
+                            break;
+                        case CROSSFADE:
+                            concatenateAudioWithCrossfade(audio1, audio2, outputFile, 1.0);
+                            break;
+                        case SEAMLESS:
+                            concatenateAudioSeamless(audio1, audio2, outputFile);
+                            break;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("批量音频拼接异常: " + e.getCause());
+        } finally {
+            workers.shutdownNow();
         }
         
         System.out.println("批量音频拼接完成，输出目录: " + outputDir);
@@ -463,6 +508,8 @@ public class AudioConcatenator {
                                ConcatMethod.SIMPLE, 1.0);
         concatenateMultipleAudio(multipleFiles, outputDir + "multi_crossfade.wav", 
                                ConcatMethod.CROSSFADE, 1.5);
+        concatenateMultipleAudio(multipleFiles, outputDir + "multi_seamless.wav", 
+                               ConcatMethod.SEAMLESS, 0);
         
         System.out.println("音频拼接演示完成！");
     }
@@ -1,5 +1,13 @@
 package com.ry.example.ffmpeg.chapter05;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.LoudnessCache;
+import com.ry.example.ffmpeg.common.LoudnessMeasurement;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
@@ -8,6 +16,7 @@ import org.bytedeco.javacv.Frame;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * 音频格式转换器
@@ -74,10 +83,9 @@ public class AudioFormatConverter {
                     break;
             }
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("高质量WAV转换完成: " + outputFile);
                 System.out.println("位深度: " + bitDepth + "位");
             } else {
@@ -115,10 +123,9 @@ public class AudioFormatConverter {
                     break;
             }
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("AAC转换完成: " + outputFile);
                 System.out.println("比特率: " + bitrate + " kbps, 配置: " + profile);
             } else {
@@ -142,10 +149,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -ar %d -ac %d %s",
                 inputFile, outputSampleRate, outputChannels, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("音频重采样完成: " + outputFile);
                 System.out.println("输入: " + inputSampleRate + "Hz " + inputChannels + "声道");
                 System.out.println("输出: " + outputSampleRate + "Hz " + outputChannels + "声道");
@@ -169,10 +175,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -af aresample=out_sample_rate=%d:out_channel_layout=%s:resampler=soxr %s",
                 inputFile, outputSampleRate, getChannelLayout(outputChannels), outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("高质量重采样完成: " + outputFile);
             } else {
                 System.err.println("高质量重采样失败");
@@ -193,10 +198,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -ac %d %s",
                 inputFile, channels, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("声道转换完成: " + outputFile);
                 System.out.println("声道数: " + channels);
             } else {
@@ -218,10 +222,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -af \"pan=stereo|FL<FL+0.707*FC+0.707*LFE|FR<FR+0.707*FC+0.707*LFE\" %s",
                 inputFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("5.1声道转立体声完成: " + outputFile);
             } else {
                 System.err.println("5.1声道转立体声失败");
@@ -285,10 +288,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -af loudnorm=I=%.1f:TP=%.1f:LRA=11 %s",
                 inputFile, targetLUFS, truePeak, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("音频标准化完成: " + outputFile);
                 System.out.println("目标LUFS: " + targetLUFS);
             } else {
@@ -300,7 +302,44 @@ public class AudioFormatConverter {
             e.printStackTrace();
         }
     }
-    
+
+    /**
+     * 两遍音频标准化
+     * 第一遍用 loudnorm 测量积分响度、LRA 和真峰值（结果按文件内容哈希缓存，同一素材换目标响度时跳过测量），
+     * 第二遍只施加一个线性增益，不做动态处理，比单遍 loudnorm 更快且不改变动态范围。
+     * 增益会使真峰值超过上限时以上限为准，此时输出响度低于目标。
+     */
+    public static void normalizeAudioTwoPass(String inputFile, String outputFile,
+                                           double targetLUFS, double truePeak) {
+        try {
+            LoudnessCache cache = LoudnessCache.getDefault();
+            long misses = cache.getMissCount();
+            LoudnessMeasurement measurement = cache.get(inputFile);
+            System.out.println((cache.getMissCount() == misses ? "响度测量(缓存): " : "响度测量: ") + measurement);
+
+            double gain = measurement.gainFor(targetLUFS, truePeak);
+            String[] command = {"ffmpeg", "-i", inputFile,
+                               "-af", String.format(Locale.ROOT, "volume=%.2fdB", gain), outputFile};
+
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
+
+            if (result.isSuccess()) {
+                System.out.println("音频标准化完成: " + outputFile);
+                System.out.printf("目标LUFS: %.1f, 增益: %.2f dB%n", targetLUFS, gain);
+                double wanted = targetLUFS - measurement.getIntegratedLoudness();
+                if (!Double.isInfinite(wanted) && gain < wanted) {
+                    System.out.println("受真峰值上限 " + truePeak + " dBTP 限制，未达到目标响度");
+                }
+            } else {
+                System.err.println("音频标准化失败: " + result.getStderr());
+            }
+
+        } catch (Exception e) {
+            System.err.println("音频标准化异常: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     /**
      * 音频降噪
      */
@@ -310,10 +349,9 @@ public class AudioFormatConverter {
                 "ffmpeg -i %s -af afftdn=nf=%.1f %s",
                 inputFile, noiseLevel, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("音频降噪完成: " + outputFile);
                 System.out.println("降噪级别: " + noiseLevel + " dB");
             } else {
@@ -373,21 +411,10 @@ public class AudioFormatConverter {
             System.out.println("文件大小: " + fileSize + " bytes (" + String.format("%.2f", fileSize / 1024.0 / 1024.0) + " MB)");
             
             // 使用FFprobe获取详细信息
-            String command = String.format("ffprobe -v quiet -print_format json -show_format -show_streams %s", audioFile);
-            Process process = Runtime.getRuntime().exec(command);
-            
-            StringBuilder output = new StringBuilder();
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line);
-                }
-            }
-            
-            process.waitFor();
-            
-            if (process.exitValue() == 0) {
-                System.out.println("流信息: " + output.toString());
+            MediaInfo info = MediaProbe.probe(audioFile);
+            System.out.println("时长: " + String.format("%.2f", info.getDurationSeconds()) + " 秒");
+            for (StreamInfo stream : info.getStreams()) {
+                System.out.println("流信息: " + stream);
             }
             
         } catch (Exception e) {
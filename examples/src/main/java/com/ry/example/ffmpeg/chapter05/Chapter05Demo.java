@@ -164,6 +164,10 @@ public class Chapter05Demo {
             
             // 音频标准化
             AudioFormatConverter.normalizeAudio(inputAudio, "output/audio/audio_normalized.wav", -16.0, -1.5);
+
+            // 两遍标准化：第二次换目标响度时直接使用缓存的测量结果
+            AudioFormatConverter.normalizeAudioTwoPass(inputAudio, "output/audio/audio_normalized_16.wav", -16.0, -1.5);
+            AudioFormatConverter.normalizeAudioTwoPass(inputAudio, "output/audio/audio_normalized_23.wav", -23.0, -1.0);
             
             // 音频降噪
             AudioFormatConverter.denoiseAudio(inputAudio, "output/audio/audio_denoised.wav", -25.0);
@@ -1,13 +1,23 @@
 package com.ry.example.ffmpeg.chapter05;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.Id3Tag;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+import com.ry.example.ffmpeg.common.Mp3Splicer;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * MP3音频处理器
@@ -120,10 +130,9 @@ public class MP3AudioProcessor {
                 "ffmpeg -i %s -c:a libmp3lame -b:a %dk %s",
                 inputFile, bitrate, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("MP3转换完成: " + outputFile);
                 System.out.println("比特率: " + bitrate + " kbps");
             } else {
@@ -145,10 +154,9 @@ public class MP3AudioProcessor {
                 "ffmpeg -i %s -c:a libmp3lame -q:a %d -vbr on %s",
                 inputFile, quality, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("VBR MP3转换完成: " + outputFile);
                 System.out.println("VBR质量: " + quality + " (0-9, 0为最高质量)");
             } else {
@@ -170,10 +178,9 @@ public class MP3AudioProcessor {
                 "ffmpeg -i %s -c:a libmp3lame -b:a %dk -abr 1 %s",
                 inputFile, bitrate, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("ABR MP3转换完成: " + outputFile);
                 System.out.println("ABR比特率: " + bitrate + " kbps");
             } else {
@@ -195,10 +202,9 @@ public class MP3AudioProcessor {
                 "ffmpeg -i %s -af loudnorm=I=-16:TP=-1.5:LRA=11 -c:a libmp3lame -q:a 2 %s",
                 inputFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("MP3音量标准化完成: " + outputFile);
             } else {
                 System.err.println("MP3音量标准化失败");
@@ -212,8 +218,22 @@ public class MP3AudioProcessor {
     
     /**
      * 连接多个MP3文件
+     * 参数（版本、采样率、声道数）一致时由 {@link Mp3Splicer} 逐帧拼接并重写 Xing 信息帧，
+     * 不能直接拼接时回退到 ffmpeg concat
      */
     public static void concatenateMP3Files(List<String> inputFiles, String outputFile) {
+        try {
+            int frames = Mp3Splicer.concat(inputFiles, outputFile);
+            System.out.println("MP3文件连接完成: " + outputFile);
+            System.out.println("连接文件数量: " + inputFiles.size() + ", 帧数: " + frames);
+            return;
+        } catch (IOException e) {
+            System.out.println("无法逐帧拼接，改用ffmpeg: " + e.getMessage());
+        }
+        concatenateMP3FilesWithFFmpeg(inputFiles, outputFile);
+    }
+
+    private static void concatenateMP3FilesWithFFmpeg(List<String> inputFiles, String outputFile) {
         try {
             // 创建临时列表文件
             String listFile = "temp_mp3_list.txt";
@@ -227,10 +247,9 @@ public class MP3AudioProcessor {
                 "ffmpeg -f concat -safe 0 -i %s -c copy %s",
                 listFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("MP3文件连接完成: " + outputFile);
                 System.out.println("连接文件数量: " + inputFiles.size());
             } else {
@@ -248,18 +267,30 @@ public class MP3AudioProcessor {
     
     /**
      * 添加MP3标签信息
+     * 由 {@link Id3Tag} 直接写 ID3v2 标签：输出与输入相同且原标签的填充足够时原地修改，
+     * 否则流式复制音频数据；标签不能解析（如 ID3v2.2）时回退到 ffmpeg
      */
     public static void addMP3Tags(String inputFile, String outputFile, 
                                  String title, String artist, String album) {
+        try {
+            boolean inPlace = Id3Tag.read(inputFile)
+                    .setText(Id3Tag.TITLE, title)
+                    .setText(Id3Tag.ARTIST, artist)
+                    .setText(Id3Tag.ALBUM, album)
+                    .write(inputFile, outputFile);
+            System.out.println("MP3标签添加完成: " + outputFile + (inPlace ? "（原地修改）" : ""));
+            return;
+        } catch (IOException e) {
+            System.out.println("无法直接写入ID3标签，改用ffmpeg: " + e.getMessage());
+        }
         try {
             String command = String.format(
                 "ffmpeg -i %s -c copy -metadata title=\"%s\" -metadata artist=\"%s\" -metadata album=\"%s\" %s",
                 inputFile, title, artist, album, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("MP3标签添加完成: " + outputFile);
             } else {
                 System.err.println("MP3标签添加失败");
@@ -271,20 +302,59 @@ public class MP3AudioProcessor {
         }
     }
     
+    /**
+     * 批量修改MP3标签（原地修改，值为 null 时删除该帧）
+     * 第一次需要扩大标签的文件会重写一次并留出填充，之后的批量修改只写文件开头的标签；
+     * 写回后重新读取，确认修改后的每一帧（包括封面等未修改的帧）都还在
+     * @param frames 帧 ID（如 {@link Id3Tag#ARTIST}）到文本的映射
+     */
+    public static void batchUpdateMP3Tags(List<String> files, Map<String, String> frames) {
+        int inPlace = 0;
+        int rewritten = 0;
+        for (String file : files) {
+            try {
+                Id3Tag tag = Id3Tag.read(file);
+                for (Map.Entry<String, String> frame : frames.entrySet()) {
+                    tag.setText(frame.getKey(), frame.getValue());
+                }
+                if (tag.write(file)) {
+                    inPlace++;
+                } else {
+                    rewritten++;
+                }
+                List<String> written = Id3Tag.read(file).getFrameIds();
+                if (!written.containsAll(tag.getFrameIds())) {
+                    System.err.println("MP3标签写回后缺少帧: " + file + ", 期望 " + tag.getFrameIds() + ", 实际 " + written);
+                }
+            } catch (IOException e) {
+                System.err.println("MP3标签修改失败: " + file + ", " + e.getMessage());
+            }
+        }
+        System.out.println("批量修改MP3标签完成: 原地修改 " + inPlace + " 个, 重写 " + rewritten + " 个, 共 " + files.size() + " 个");
+    }
+
     /**
      * 截取MP3片段
+     * 由 {@link Mp3Splicer} 在帧边界上剪切（不重新编码，处理比特池前导帧），不是可解析的 MP3 时回退到 ffmpeg
      */
     public static void cutMP3Segment(String inputFile, String outputFile, 
                                    int startTime, int duration) {
+        try {
+            int frames = Mp3Splicer.cut(inputFile, outputFile, startTime, duration);
+            System.out.println("MP3片段截取完成: " + outputFile);
+            System.out.println("起始时间: " + startTime + "秒, 时长: " + duration + "秒, 帧数: " + frames);
+            return;
+        } catch (IOException e) {
+            System.out.println("无法逐帧剪切，改用ffmpeg: " + e.getMessage());
+        }
         try {
             String command = String.format(
                 "ffmpeg -i %s -ss %d -t %d -c copy %s",
                 inputFile, startTime, duration, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("MP3片段截取完成: " + outputFile);
                 System.out.println("起始时间: " + startTime + "秒, 时长: " + duration + "秒");
             } else {
@@ -310,21 +380,18 @@ public class MP3AudioProcessor {
             System.out.println("文件大小: " + fileSize + " bytes (" + String.format("%.2f", fileSize / 1024.0 / 1024.0) + " MB)");
             
             // 使用FFprobe获取详细信息
-            String command = String.format("ffprobe -v quiet -print_format json -show_format -show_streams %s", mp3File);
-            Process process = Runtime.getRuntime().exec(command);
-            
-            StringBuilder output = new StringBuilder();
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line);
-                }
+            MediaInfo info = MediaProbe.probe(mp3File);
+            StreamInfo audio = info.getAudioStream();
+            if (audio != null) {
+                System.out.println("编码: " + audio.getCodecName());
+                System.out.println("采样率: " + audio.getSampleRate() + " Hz");
+                System.out.println("声道数: " + audio.getChannels());
+                long bitRate = audio.getBitRate() > 0 ? audio.getBitRate() : info.getBitRate();
+                System.out.println("比特率: " + (bitRate / 1000) + " kbps");
             }
-            
-            process.waitFor();
-            
-            if (process.exitValue() == 0) {
-                System.out.println("详细信息: " + output.toString());
+            System.out.println("时长: " + String.format("%.2f", info.getDurationSeconds()) + " 秒");
+            for (Map.Entry<String, String> tag : info.getFormatTags().entrySet()) {
+                System.out.println("标签 " + tag.getKey() + ": " + tag.getValue());
             }
             
         } catch (Exception e) {
@@ -395,6 +462,12 @@ public class MP3AudioProcessor {
         mp3Files.add(outputDir + "audio_segment.mp3");
         concatenateMP3Files(mp3Files, outputDir + "audio_concatenated.mp3");
         
+        // 批量修改标签
+        List<String> taggedFiles = new ArrayList<>();
+        taggedFiles.add(outputDir + "audio_tagged.mp3");
+        taggedFiles.add(outputDir + "audio_concatenated.mp3");
+        batchUpdateMP3Tags(taggedFiles, Map.of(Id3Tag.ALBUM, "批量专辑", Id3Tag.GENRE, "Podcast"));
+        
         // 获取MP3信息
         getMP3Info(outputDir + "audio_high.mp3");
         
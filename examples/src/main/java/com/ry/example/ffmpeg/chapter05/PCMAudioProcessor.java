@@ -1,5 +1,19 @@
 package com.ry.example.ffmpeg.chapter05;
 
+import com.ry.example.ffmpeg.common.AudioHeader;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.PcmAnalyzer;
+import com.ry.example.ffmpeg.common.PcmChannelMixer;
+import com.ry.example.ffmpeg.common.PcmConsumer;
+import com.ry.example.ffmpeg.common.PcmEffectChain;
+import com.ry.example.ffmpeg.common.PcmPipeline;
+import com.ry.example.ffmpeg.common.PcmResampler;
+import com.ry.example.ffmpeg.common.PcmStats;
+import com.ry.example.ffmpeg.common.SignalGenerator;
+import com.ry.example.ffmpeg.common.WaveformBuilder;
+import com.ry.example.ffmpeg.common.WaveformPeaks;
+
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
@@ -8,10 +22,9 @@ import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.Java2DFrameConverter;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
 
 /**
  * PCM音频处理器
@@ -121,71 +134,139 @@ public class PCMAudioProcessor {
     }
     
     /**
-     * 分析PCM音频数据
+     * 分析PCM音频数据（原始PCM按 s16le 处理）
      */
     public static void analyzePCMAudio(String pcmFile, int sampleRate, int channels) {
+        analyzePCMAudio(pcmFile, sampleRate, channels, "s16le");
+    }
+    
+    /**
+     * 分析PCM音频数据
+     * WAV/RF64/AIFF 文件按文件头中的格式处理，声明的参数只用于不带文件头的原始PCM
+     * @param sampleFormat 原始PCM的采样格式（ffmpeg 格式名，如 s16le、s24le、f32le）
+     */
+    public static void analyzePCMAudio(String pcmFile, int sampleRate, int channels, String sampleFormat) {
         try {
-            File file = new File(pcmFile);
-            long fileSize = file.length();
+            AudioHeader header = AudioHeader.readOrRaw(pcmFile, sampleRate, channels, sampleFormat);
             
             System.out.println("=== PCM音频分析 ===");
             System.out.println("文件路径: " + pcmFile);
-            System.out.println("文件大小: " + fileSize + " bytes");
-            System.out.println("采样率: " + sampleRate + " Hz");
-            System.out.println("声道数: " + channels);
+            System.out.println("文件大小: " + new File(pcmFile).length() + " bytes");
+            System.out.println("容器: " + header.getContainer() + ", 数据偏移: " + header.getDataOffset());
+            System.out.println("采样格式: " + header.getEncoding().getFormatName());
+            System.out.println("采样率: " + header.getSampleRate() + " Hz");
+            System.out.println("声道数: " + header.getChannels()
+                    + (header.getChannelLayout().isEmpty() ? "" : " (" + header.getChannelLayout() + ")"));
+            System.out.println("样本总数: " + header.getFrameCount());
+            System.out.println("音频时长: " + String.format("%.2f", header.getDurationSeconds()) + " 秒");
             
-            // 计算音频时长（假设16位PCM）
-            int bytesPerSample = 2; // 16位 = 2字节
-            int samplesPerFrame = channels * bytesPerSample;
-            long totalSamples = fileSize / samplesPerFrame;
-            double duration = (double) totalSamples / sampleRate;
+            if (header.getEncoding() == AudioHeader.Encoding.S16LE) {
+                analyzePCMData(header);
+            } else {
+                System.out.println("电平统计只支持 s16le，跳过");
+            }
             
-            System.out.println("样本总数: " + totalSamples);
-            System.out.println("音频时长: " + String.format("%.2f", duration) + " 秒");
+        } catch (Exception e) {
+            System.err.println("分析PCM音频失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 流式解码：grabber 取出的采样直接送入内存流水线，不生成中间的 .pcm 文件
+     * 采样统一转换为 s16 交错格式并按需重采样；每个消费者在独立线程中与解码并行运行，
+     * 最慢的消费者处理不过来时解码会等待
+     * @param inputFile 音频或视频文件
+     * @param sampleRate 输出采样率
+     * @param channels 输出声道数
+     * @param consumers 消费者（分析、写文件等）
+     * @return 是否成功
+     */
+    public static boolean streamPCM(String inputFile, int sampleRate, int channels, PcmConsumer... consumers) {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(inputFile);
+        try (PcmPipeline pipeline = new PcmPipeline(sampleRate, channels)) {
+            grabber.setSampleFormat(avutil.AV_SAMPLE_FMT_S16);
+            grabber.setSampleRate(sampleRate);
+            grabber.setAudioChannels(channels);
+            grabber.start();
             
-            // 读取部分数据进行分析
-            analyzePCMData(pcmFile, sampleRate, channels);
+            for (PcmConsumer consumer : consumers) {
+                pipeline.addConsumer(consumer);
+            }
+            pipeline.start();
+            
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples != null) {
+                    pipeline.write((ShortBuffer) frame.samples[0]);
+                }
+            }
+            pipeline.finish();
+            return true;
             
         } catch (Exception e) {
-            System.err.println("分析PCM音频失败: " + e.getMessage());
+            System.err.println("流式解码PCM失败: " + e.getMessage());
             e.printStackTrace();
+            return false;
+        } finally {
+            try {
+                grabber.release();
+            } catch (Exception e) {
+                // 释放失败不影响结果
+            }
         }
     }
     
     /**
-     * 分析PCM数据内容
+     * 直接分析音频或视频文件中的音频，解码与统计并行进行，不落盘
+     * @return 统计结果，失败时返回null
      */
-    private static void analyzePCMData(String pcmFile, int sampleRate, int channels) {
+    public static PcmStats analyzeAudioStream(String inputFile, int sampleRate, int channels) {
+        PcmAnalyzer.Streaming analyzer = PcmAnalyzer.streaming();
+        if (!streamPCM(inputFile, sampleRate, channels, analyzer)) {
+            return null;
+        }
+        PcmStats stats = analyzer.getStats();
+        System.out.println("=== 流式音频分析 ===");
+        System.out.println("文件路径: " + inputFile);
+        System.out.println(stats);
+        return stats;
+    }
+    
+    /**
+     * 解码一遍生成波形峰值金字塔文件（默认每点 256/1024/4096 帧），
+     * 解码过程中即可用 {@link WaveformPeaks} 打开已完成的部分
+     * @return 是否成功
+     */
+    public static boolean generateWaveform(String inputFile, String waveformFile, int sampleRate, int channels) {
+        WaveformBuilder builder = new WaveformBuilder(waveformFile);
+        if (!streamPCM(inputFile, sampleRate, channels, builder)) {
+            return false;
+        }
+        System.out.println("波形文件生成完成: " + waveformFile);
+        System.out.println("帧数: " + builder.getTotalFrames() + ", 级别: "
+                + Arrays.toString(builder.getSamplesPerBin()));
+        return true;
+    }
+    
+    /**
+     * 分析PCM数据内容：内存映射后并行统计每个声道的峰值、RMS、直流偏移、削波和直方图
+     */
+    private static void analyzePCMData(AudioHeader header) {
+        int channels = header.getChannels();
         try {
-            File file = new File(pcmFile);
-            byte[] buffer = new byte[4096];
+            PcmStats stats = PcmAnalyzer.analyze(header);
             
-            try (FileInputStream fis = new FileInputStream(file)) {
-                int bytesRead;
-                long maxSample = 0;
-                long minSample = 0;
-                int sampleCount = 0;
-                
-                while ((bytesRead = fis.read(buffer)) != null && bytesRead > 0) {
-                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, bytesRead);
-                    byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-                    
-                    while (byteBuffer.remaining() >= 2) {
-                        short sample = byteBuffer.getShort();
-                        if (sample > maxSample) maxSample = sample;
-                        if (sample < minSample) minSample = sample;
-                        sampleCount++;
-                    }
-                }
-                
-                System.out.println("最大采样值: " + maxSample);
-                System.out.println("最小采样值: " + minSample);
-                System.out.println("采样点总数: " + sampleCount);
-                System.out.println("动态范围: " + (maxSample - minSample));
-                
-                // 计算平均音量
-                double avgVolume = (maxSample - minSample) / 2.0 / 32768.0 * 100;
-                System.out.println("平均音量: " + String.format("%.2f", avgVolume) + "%");
+            System.out.println("采样点总数: " + stats.getFrameCount() * channels);
+            for (int c = 0; c < channels; c++) {
+                System.out.println("声道 " + c + ":");
+                System.out.println("  最大采样值: " + stats.getMax(c));
+                System.out.println("  最小采样值: " + stats.getMin(c));
+                System.out.println("  动态范围: " + (stats.getMax(c) - stats.getMin(c)));
+                System.out.println("  峰值电平: " + String.format("%.2f", stats.getPeakDbfs(c)) + " dBFS");
+                System.out.println("  RMS电平: " + String.format("%.2f", stats.getRmsDbfs(c)) + " dBFS");
+                System.out.println("  直流偏移: " + String.format("%.5f", stats.getDcOffset(c)));
+                System.out.println("  削波采样数: " + stats.getClippedSamples(c));
             }
             
         } catch (IOException e) {
@@ -194,61 +275,95 @@ public class PCMAudioProcessor {
     }
     
     /**
-     * 生成正弦波PCM文件
+     * 生成正弦波PCM文件（s16le单声道），分块流式写入，时长不受内存限制
      */
     public static void generateSineWavePCM(String outputFile, int sampleRate, int frequency, 
                                          int duration, double amplitude) {
+        generateSignal(outputFile, SignalGenerator.Waveform.SINE, sampleRate, 1, frequency, duration, amplitude, false);
+    }
+    
+    /**
+     * 生成测试信号（s16le）
+     * @param waveform 正弦、方波、扫频（frequency 到 20kHz）或白噪声
+     * @param channels 声道数
+     * @param wavHeader 是否写入WAV文件头
+     */
+    public static void generateSignal(String outputFile, SignalGenerator.Waveform waveform, int sampleRate,
+                                      int channels, double frequency, double duration, double amplitude,
+                                      boolean wavHeader) {
         try {
-            int channels = 1; // 单声道
-            int bitsPerSample = 16;
-            int bytesPerSample = bitsPerSample / 8;
-            int totalSamples = sampleRate * duration;
-            int bufferSize = totalSamples * channels * bytesPerSample;
-            
-            byte[] buffer = new byte[bufferSize];
-            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
-            byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-            
-            for (int i = 0; i < totalSamples; i++) {
-                double time = (double) i / sampleRate;
-                double angle = 2 * Math.PI * frequency * time;
-                short sample = (short) (amplitude * Short.MAX_VALUE * Math.sin(angle));
-                
-                byteBuffer.putShort(sample);
-            }
-            
-            try (FileOutputStream fos = new FileOutputStream(outputFile)) {
-                fos.write(buffer);
-            }
+            long frames = new SignalGenerator(waveform, sampleRate, channels)
+                    .frequency(frequency)
+                    .amplitude(amplitude)
+                    .wavHeader(wavHeader)
+                    .generate(outputFile, duration);
             
-            System.out.println("正弦波PCM生成完成: " + outputFile);
-            System.out.println("频率: " + frequency + "Hz, 时长: " + duration + "秒");
+            System.out.println("测试信号生成完成: " + outputFile);
+            System.out.println("类型: " + waveform + ", 频率: " + frequency + "Hz, 时长: " + duration
+                    + "秒, 帧数: " + frames);
             
         } catch (IOException e) {
-            System.err.println("生成正弦波PCM失败: " + e.getMessage());
+            System.err.println("生成测试信号失败: " + e.getMessage());
         }
     }
     
     /**
-     * PCM格式转换
+     * PCM格式转换（s16le采样率和声道数），在JVM内用声道混合矩阵和多相FIR重采样完成，不启动ffmpeg
+     * 声道减少时先混合再重采样，声道增加时先重采样再混合，重采样的数据量较小；
+     * {@link PcmChannelMixer} 没有内置矩阵的声道组合仍由 ffmpeg 转换
      */
     public static void convertPCMFormat(String inputFile, String outputFile, 
                                       int inputSampleRate, int outputSampleRate, 
                                       int inputChannels, int outputChannels) {
+        if (!PcmChannelMixer.hasStandardMatrix(inputChannels, outputChannels)) {
+            // 没有内置混合矩阵的组合（如 2 -> 6）交给 ffmpeg 的声道布局转换
+            convertPCMFormatWithFFmpeg(inputFile, outputFile, inputSampleRate, outputSampleRate,
+                    inputChannels, outputChannels);
+            return;
+        }
+        try (PcmPipeline pipeline = new PcmPipeline(inputSampleRate, inputChannels)) {
+            PcmConsumer writer = PcmConsumer.writeTo(outputFile);
+            PcmConsumer stage;
+            if (outputChannels <= inputChannels) {
+                stage = PcmChannelMixer.forChannels(inputChannels, outputChannels,
+                        new PcmResampler(outputSampleRate, writer));
+            } else {
+                stage = new PcmResampler(outputSampleRate,
+                        PcmChannelMixer.forChannels(inputChannels, outputChannels, writer));
+            }
+            pipeline.addConsumer(stage).start();
+            pipeline.writeFile(inputFile);
+            pipeline.finish();
+            
+            System.out.println("PCM格式转换完成: " + outputFile);
+            System.out.println("输入: " + inputSampleRate + "Hz " + inputChannels + "声道");
+            System.out.println("输出: " + outputSampleRate + "Hz " + outputChannels + "声道");
+            
+        } catch (Exception e) {
+            System.err.println("PCM格式转换异常: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * 用 ffmpeg 转换 s16le 的采样率和声道数
+     */
+    private static void convertPCMFormatWithFFmpeg(String inputFile, String outputFile,
+                                                   int inputSampleRate, int outputSampleRate,
+                                                   int inputChannels, int outputChannels) {
         try {
             String command = String.format(
                 "ffmpeg -f s16le -ar %d -ac %d -i %s -ar %d -ac %d -f s16le %s",
                 inputSampleRate, inputChannels, inputFile, outputSampleRate, outputChannels, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
-                System.out.println("PCM格式转换完成: " + outputFile);
+            if (result.isSuccess()) {
+                System.out.println("PCM格式转换完成（ffmpeg）: " + outputFile);
                 System.out.println("输入: " + inputSampleRate + "Hz " + inputChannels + "声道");
                 System.out.println("输出: " + outputSampleRate + "Hz " + outputChannels + "声道");
             } else {
-                System.err.println("PCM格式转换失败");
+                System.err.println("PCM格式转换失败: " + result.getStderr());
             }
             
         } catch (Exception e) {
@@ -274,41 +389,47 @@ public class PCMAudioProcessor {
     }
     
     /**
-     * 添加PCM效果
+     * 添加PCM效果（s16le、44100Hz、双声道）
      */
     public static void applyPCMEffect(String inputFile, String outputFile, String effect) {
+        applyPCMEffect(inputFile, outputFile, effect, 44100, 2);
+    }
+    
+    /**
+     * 添加PCM效果，在JVM内直接处理采样，不启动ffmpeg
+     * @param effect amplify（放大一倍）、fade（最后1秒淡出）、reverse（反转）、
+     *               normalize（峰值标准化到-1dBFS）、dcremove（去直流）
+     * @param sampleRate 采样率
+     * @param channels 声道数
+     */
+    public static void applyPCMEffect(String inputFile, String outputFile, String effect,
+                                      int sampleRate, int channels) {
         try {
-            String command;
+            PcmEffectChain chain = new PcmEffectChain(sampleRate, channels, PcmEffectChain.SampleFormat.S16LE);
             
             switch (effect.toLowerCase()) {
                 case "amplify":
-                    command = String.format(
-                        "ffmpeg -f s16le -ar 44100 -ac 2 -i %s -af volume=2.0 -f s16le %s",
-                        inputFile, outputFile);
+                    chain.gain(20 * Math.log10(2.0));
                     break;
                 case "fade":
-                    command = String.format(
-                        "ffmpeg -f s16le -ar 44100 -ac 2 -i %s -af afade=t=out:st=3:d=1 -f s16le %s",
-                        inputFile, outputFile);
+                    chain.fadeOut(1.0, PcmEffectChain.FadeCurve.LINEAR);
                     break;
                 case "reverse":
-                    command = String.format(
-                        "ffmpeg -f s16le -ar 44100 -ac 2 -i %s -af areverse -f s16le %s",
-                        inputFile, outputFile);
+                    chain.reverse();
+                    break;
+                case "normalize":
+                    chain.normalize(-1.0);
+                    break;
+                case "dcremove":
+                    chain.removeDc();
                     break;
                 default:
                     System.err.println("不支持的效果: " + effect);
                     return;
             }
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            if (process.exitValue() == 0) {
-                System.out.println("PCM效果应用完成: " + effect);
-            } else {
-                System.err.println("应用PCM效果失败");
-            }
+            chain.apply(inputFile, outputFile);
+            System.out.println("PCM效果应用完成: " + effect);
             
         } catch (Exception e) {
             System.err.println("应用PCM效果异常: " + e.getMessage());
@@ -334,15 +455,30 @@ public class PCMAudioProcessor {
         // 分析PCM音频
         analyzePCMAudio(outputDir + "audio.pcm", 44100, 2);
         
+        // 流式分析：边解码边统计，不生成中间文件
+        analyzeAudioStream(inputVideo, 44100, 2);
+        
+        // 一次解码同时统计和保存PCM
+        PcmAnalyzer.Streaming analyzer = PcmAnalyzer.streaming();
+        if (streamPCM(inputAudio, 44100, 2, analyzer, PcmConsumer.writeTo(outputDir + "audio_stream.pcm"))) {
+            System.out.println(analyzer.getStats());
+        }
+        
+        // 生成波形峰值金字塔，供时间线按缩放级别绘制
+        generateWaveform(inputAudio, outputDir + "audio.wfp", 44100, 2);
+        
         // 生成测试正弦波
         generateSineWavePCM(outputDir + "sine_440hz.pcm", 44100, 440, 3, 0.8);
         
+        // 生成10分钟立体声扫频测试音（WAV）
+        generateSignal(outputDir + "sweep.wav", SignalGenerator.Waveform.SWEEP, 48000, 2, 20, 600, 0.5, true);
+        
         // PCM格式转换
         convertPCMFormat(outputDir + "audio.pcm", outputDir + "audio_converted.pcm", 
                         44100, 22050, 2, 1);
         
         // 应用效果
-        applyPCMEffect(outputDir + "sine_440hz.pcm", outputDir + "sine_fade.pcm", "fade");
+        applyPCMEffect(outputDir + "sine_440hz.pcm", outputDir + "sine_fade.pcm", "fade", 44100, 1);
         
         // 批量转换
         batchConvertToPCM("input_audio/", outputDir + "batch/", 44100, 2, "s16le");
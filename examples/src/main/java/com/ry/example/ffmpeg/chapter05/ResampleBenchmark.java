@@ -0,0 +1,97 @@
+package com.ry.example.ffmpeg.chapter05;
+
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.PcmConsumer;
+import com.ry.example.ffmpeg.common.PcmPipeline;
+import com.ry.example.ffmpeg.common.PcmResampler;
+import com.ry.example.ffmpeg.common.SignalGenerator;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 重采样基准测试
+ * 用正弦测试音分别经 PcmResampler（JVM内）和 ffmpeg（swresample）重采样，
+ * 比较耗时（含进程启动）和相对理想正弦波的信噪比
+ *
+ * 用法: ResampleBenchmark [输入采样率] [输出采样率] [时长(秒)] [测试频率(Hz)]
+ * 例如: ResampleBenchmark 44100 16000 60 1000
+ */
+public class ResampleBenchmark {
+
+    private static final double AMPLITUDE = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        int inputRate = args.length > 0 ? Integer.parseInt(args[0]) : 44100;
+        int outputRate = args.length > 1 ? Integer.parseInt(args[1]) : 16000;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 60.0;
+        double frequency = args.length > 3 ? Double.parseDouble(args[3]) : 1000.0;
+
+        String input = "bench_resample_in.pcm";
+        String javaOutput = "bench_resample_java.pcm";
+        String ffmpegOutput = "bench_resample_ffmpeg.pcm";
+        new SignalGenerator(SignalGenerator.Waveform.SINE, inputRate, 1)
+                .frequency(frequency).amplitude(AMPLITUDE).generate(input, seconds);
+
+        System.out.println("=== 重采样基准测试 ===");
+        System.out.println(inputRate + "Hz -> " + outputRate + "Hz, " + seconds + "秒, " + frequency + "Hz 正弦波");
+
+        // 预热一次，避免把JIT编译时间算进去
+        resampleInJava(input, javaOutput, inputRate, outputRate);
+
+        long start = System.nanoTime();
+        resampleInJava(input, javaOutput, inputRate, outputRate);
+        report("PcmResampler", System.nanoTime() - start, seconds, javaOutput, outputRate, frequency);
+
+        String[] command = {"ffmpeg", "-y", "-f", "s16le", "-ar", String.valueOf(inputRate), "-ac", "1",
+                           "-i", input, "-ar", String.valueOf(outputRate), "-f", "s16le", ffmpegOutput};
+        start = System.nanoTime();
+        JobResult result = FFmpegExecutor.getDefault().execute(command);
+        if (result.isSuccess()) {
+            report("ffmpeg swresample", System.nanoTime() - start, seconds, ffmpegOutput, outputRate, frequency);
+        } else {
+            System.err.println("ffmpeg重采样失败: " + result.getStderr());
+        }
+    }
+
+    private static void resampleInJava(String input, String output, int inputRate, int outputRate)
+            throws IOException, InterruptedException {
+        try (PcmPipeline pipeline = new PcmPipeline(inputRate, 1)) {
+            pipeline.addConsumer(new PcmResampler(outputRate, PcmConsumer.writeTo(output))).start();
+            pipeline.writeFile(input);
+            pipeline.finish();
+        }
+    }
+
+    private static void report(String name, long nanos, double seconds, String output, int outputRate,
+                               double frequency) throws IOException {
+        double elapsed = nanos / 1e9;
+        System.out.printf("%-18s 耗时 %.3f 秒, %.0f 倍实时, 信噪比 %.1f dB%n",
+                name, elapsed, seconds / elapsed, snr(output, outputRate, frequency));
+    }
+
+    /**
+     * 相对理想正弦波的信噪比；跳过首尾各0.1秒的滤波器过渡
+     */
+    private static double snr(String path, int sampleRate, double frequency) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ShortBuffer samples = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            int skip = sampleRate / 10;
+            double signal = 0;
+            double noise = 0;
+            for (int i = skip; i < samples.limit() - skip; i++) {
+                double expected = AMPLITUDE * 32768 * Math.sin(2 * Math.PI * frequency * i / sampleRate);
+                double error = samples.get(i) - expected;
+                signal += expected * expected;
+                noise += error * error;
+            }
+            return 10 * Math.log10(signal / noise);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter06;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -267,10 +270,9 @@ public class Chapter06Demo {
                 "ffmpeg -i %s -filter_complex \"%s\" -map \"[v]\" -map \"[a]\" -c:v libx264 -crf 23 -preset veryfast -c:a aac -b:a 128k %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("复杂滤镜链应用完成: " + outputFile);
             } else {
                 System.err.println("复杂滤镜链应用失败");
@@ -396,10 +398,9 @@ public class Chapter06Demo {
         try {
             // 创建一个彩条测试视频
             String command = "ffmpeg -f lavfi -i testsrc=duration=10:size=640x480:rate=30 -c:v libx264 -preset veryfast -crf 23 input.mp4";
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("演示视频创建完成: input.mp4");
             } else {
                 System.err.println("演示视频创建失败");
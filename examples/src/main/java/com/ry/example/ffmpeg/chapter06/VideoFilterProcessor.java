@@ -1,5 +1,10 @@
 package com.ry.example.ffmpeg.chapter06;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.MediaProbe;
+
 import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.ffmpeg.global.avutil;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
@@ -9,6 +14,7 @@ import org.bytedeco.javacv.Frame;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 视频滤镜处理器
@@ -29,10 +35,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("色彩调整完成: " + outputFile);
                 System.out.println("亮度: " + brightness + ", 对比度: " + contrast + ", 饱和度: " + saturation);
             } else {
@@ -78,10 +83,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("图像变换完成: " + outputFile);
                 System.out.println("变换类型: " + transformType);
             } else {
@@ -124,10 +128,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("滤镜效果应用完成: " + outputFile);
                 System.out.println("滤镜类型: " + filterType + ", 强度: " + strength);
             } else {
@@ -152,10 +155,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("色彩空间转换完成: " + outputFile);
                 System.out.println("转换: " + inputSpace + " -> " + outputSpace);
             } else {
@@ -178,10 +180,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -f lavfi -i color=c=%s:size=%dx%d -i %s -filter_complex \"[0:v][1:v]overlay=x=(W-w)/2:y=(H-h)/2\" -c:v libx264 -crf 23 -preset veryfast %s",
                 color, width, height, inputFile, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("渐变背景添加完成: " + outputFile);
                 System.out.println("背景颜色: " + color + ", 尺寸: " + width + "x" + height);
             } else {
@@ -206,10 +207,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("色彩替换完成: " + outputFile);
                 System.out.println("颜色: " + color + ", 相似度: " + similarity + ", 混合度: " + blend);
             } else {
@@ -235,10 +235,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("明暗对比调整完成: " + outputFile);
                 System.out.println("亮度: " + brightness + ", 对比度: " + contrast + ", Gamma: " + gamma);
             } else {
@@ -278,10 +277,9 @@ public class VideoFilterProcessor {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("淡入淡出效果应用完成: " + outputFile);
                 System.out.println("效果类型: " + fadeType + ", 起始帧: " + startFrame + ", 持续时间: " + duration);
             } else {
@@ -325,19 +323,12 @@ public class VideoFilterProcessor {
      */
     public static void getVideoInfo(String videoFile) {
         try {
-            String command = String.format(
-                "ffprobe -v quiet -print_format json -show_format -show_streams %s", videoFile);
-            
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
-                String line;
-                System.out.println("=== 视频信息: " + videoFile + " ===");
-                while ((line = reader.readLine()) != null) {
-                    System.out.println(line);
-                }
+            MediaInfo info = MediaProbe.probe(videoFile);
+            
+            System.out.println("=== 视频信息: " + videoFile + " ===");
+            System.out.println(info);
+            for (Map.Entry<String, String> entry : info.getFormatProperties().entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
             }
             
         } catch (Exception e) {
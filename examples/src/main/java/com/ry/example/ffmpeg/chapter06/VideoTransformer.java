@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter06;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,10 +22,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"scale=%d:%d\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, width, height, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频缩放完成: " + outputFile);
                 System.out.println("新尺寸: " + width + "x" + height);
             } else {
@@ -44,10 +46,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"scale=%d:%d:force_original_aspect_ratio=decrease,pad=%d:%d:(ow-iw)/2:(oh-ih)/2\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, width, height, width, height, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频比例缩放完成: " + outputFile);
                 System.out.println("目标尺寸: " + width + "x" + height);
             } else {
@@ -70,10 +71,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"crop=%d:%d:%d:%d\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, cropWidth, cropHeight, x, y, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频裁剪完成: " + outputFile);
                 System.out.println("裁剪区域: " + cropWidth + "x" + cropHeight + " at (" + x + "," + y + ")");
             } else {
@@ -95,10 +95,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"crop=%d:%d:(iw-%d)/2:(ih-%d)/2\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, width, height, width, height, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频居中裁剪完成: " + outputFile);
                 System.out.println("裁剪尺寸: " + width + "x" + height);
             } else {
@@ -121,10 +120,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"pad=%d:%d:%d:%d:%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, newWidth, newHeight, x, y, color, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频填充完成: " + outputFile);
                 System.out.println("新尺寸: " + newWidth + "x" + newHeight + ", 颜色: " + color);
             } else {
@@ -163,10 +161,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频旋转完成: " + outputFile);
                 System.out.println("旋转类型: " + rotationType);
             } else {
@@ -190,10 +187,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频自定义旋转完成: " + outputFile);
                 System.out.println("旋转角度: " + Math.toDegrees(angleRadians) + " 度");
             } else {
@@ -232,10 +228,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("视频翻转完成: " + outputFile);
                 System.out.println("翻转类型: " + flipType);
             } else {
@@ -261,10 +256,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("组合变换完成: " + outputFile);
                 System.out.println("目标尺寸: " + targetWidth + "x" + targetHeight);
             } else {
@@ -330,10 +324,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("镜头移动效果添加完成: " + outputFile);
             } else {
                 System.err.println("镜头移动效果添加失败");
@@ -359,10 +352,9 @@ public class VideoTransformer {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("缩放镜头效果添加完成: " + outputFile);
             } else {
                 System.err.println("缩放镜头效果添加失败");
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter06;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,10 +24,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("基础怀旧效果应用完成: " + outputFile);
             } else {
                 System.err.println("基础怀旧效果应用失败");
@@ -51,10 +53,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -filter_complex \"%s\" -map \"[v]\" -map 0:a? -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("完整怀旧效果应用完成: " + outputFile);
             } else {
                 System.err.println("完整怀旧效果应用失败");
@@ -79,10 +80,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("褐色怀旧效果应用完成: " + outputFile);
             } else {
                 System.err.println("褐色怀旧效果应用失败");
@@ -111,10 +111,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -filter_complex \"%s\" -map \"[v]\" -map 0:a? -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("80年代录像带效果应用完成: " + outputFile);
             } else {
                 System.err.println("80年代录像带效果应用失败");
@@ -144,10 +143,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -filter_complex \"%s\" -map \"[v]\" -map 0:a? -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("老电影胶片效果应用完成: " + outputFile);
             } else {
                 System.err.println("老电影胶片效果应用失败");
@@ -176,10 +174,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -filter_complex \"%s\" -map \"[v]\" -map \"[a]\" -c:v libx264 -crf 23 -preset veryfast -c:a aac -b:a 128k %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("黑白默片效果应用完成: " + outputFile);
             } else {
                 System.err.println("黑白默片效果应用失败");
@@ -210,10 +207,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("复古棕褐色调应用完成: " + outputFile);
                 System.out.println("强度: " + intensity);
             } else {
@@ -237,10 +233,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("胶片颗粒效果添加完成: " + outputFile);
                 System.out.println("颗粒强度: " + grainStrength);
             } else {
@@ -270,10 +265,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("怀旧边框添加完成: " + outputFile);
             } else {
                 System.err.println("怀旧边框添加失败");
@@ -376,10 +370,9 @@ public class VintageEffectGenerator {
                 "ffmpeg -i %s -vf \"%s\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, filter.toString(), outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("自定义怀旧效果应用完成: " + outputFile);
             } else {
                 System.err.println("自定义怀旧效果应用失败");
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter06;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -25,10 +28,14 @@ public class VintageFilmProject {
             System.out.println("正在创建老电影效果...");
             System.out.println("滤镜链: " + filterChain);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command, event -> {
+                if (event.getPercent() >= 0) {
+                    System.out.printf("处理进度: %.1f%%, 速度: %.2fx, 剩余: %.0f 秒%n",
+                            event.getPercent(), event.getSpeed(), event.getEtaSeconds());
+                }
+            });
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("老电影效果创建完成: " + outputFile);
                 System.out.println("风格类型: " + style);
             } else {
@@ -130,10 +137,9 @@ public class VintageFilmProject {
                 "ffmpeg -i %s -i %s -filter_complex \"[0:v]%s[main];[main][1:v]overlay=format=auto:repeat_last=0\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, scratchMask, vintageFilter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("带划痕的老电影效果创建完成: " + outputFile);
             } else {
                 System.err.println("带划痕的老电影效果创建失败");
@@ -157,8 +163,7 @@ public class VintageFilmProject {
                 "ffmpeg -f lavfi -i \"geq=random(1)*255:128:128:128\" -frames:v 1 -s 1920x1080 %s",
                 outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
         } catch (Exception e) {
             System.err.println("创建划痕蒙版失败: " + e.getMessage());
@@ -201,10 +206,9 @@ public class VintageFilmProject {
                 "ffmpeg -i %s -filter_complex \"[0:v]split=2[original][vintage];[vintage]%s[vintage_filtered];[original]scale=960:540[orig_scaled];[vintage_filtered]scale=960:540[vint_scaled];[orig_scaled][vint_scaled]hstack\" -c:v libx264 -crf 23 -preset veryfast %s",
                 inputFile, vintageFilter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("对比效果创建完成: " + outputFile);
             } else {
                 System.err.println("对比效果创建失败");
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter07;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -267,10 +270,9 @@ public class Chapter07Demo {
                 "ffmpeg -i %s -vf \"drawtext=text='综合演示':x=w/2-text_w/2:y=50:fontsize=48:fontcolor=white:shadowx=3:shadowy=3:shadowcolor=black\" -c:a copy %s",
                 inputVideo, outputDir + "16_comprehensive_demo.mp4");
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("综合演示效果创建成功");
             }
             
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter07;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -22,10 +25,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -i %s -filter_complex \"[0:v][1:v]overlay=x=%d:y=%d:format=auto,alpha=%.2f\" -codec:a copy %s",
                 inputVideo, watermarkImage, x, y, opacity, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("图片水印添加成功: " + outputVideo);
                 System.out.println("位置: (" + x + ", " + y + "), 透明度: " + opacity);
             } else {
@@ -47,10 +49,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -i %s -filter_complex \"[0:v][1:v]overlay=W-w-%d:H-h-%d:format=auto,alpha=%.2f\" -codec:a copy %s",
                 inputVideo, watermarkImage, margin, margin, opacity, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("右下角水印添加成功: " + outputVideo);
             } else {
                 System.err.println("右下角水印添加失败");
@@ -71,10 +72,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"boxblur=%d:1:enable='between(x,%d,%d)*between(y,%d,%d)'\" -c:a copy %s",
                 inputVideo, (int)blurStrength, x, x + width, y, y + height, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("区域模糊处理成功: " + outputVideo);
                 System.out.println("区域: (" + x + ", " + y + ", " + width + ", " + height + ")");
             } else {
@@ -96,10 +96,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"delogo=x=%d:y=%d:w=%d:h=%d:show=0\" -c:a copy %s",
                 inputVideo, x, y, width, height, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("Logo清除成功: " + outputVideo);
             } else {
                 System.err.println("Logo清除失败");
@@ -122,19 +121,17 @@ public class ImageTextProcessor {
                 "ffmpeg -ss %d -t %d -i %s -vf \"fps=%d,scale=%d:-1:flags=lanczos,palettegen\" %s",
                 startTime, duration, inputVideo, fps, width, paletteFile);
             
-            Process paletteProcess = Runtime.getRuntime().exec(paletteCommand);
-            paletteProcess.waitFor();
+            JobResult paletteResult = FFmpegExecutor.getDefault().execute(paletteCommand);
             
-            if (paletteProcess.exitValue() == 0) {
+            if (paletteResult.isSuccess()) {
                 // 使用调色板生成GIF
                 String gifCommand = String.format(
                     "ffmpeg -ss %d -t %d -i %s -i %s -filter_complex \"fps=%d,scale=%d:-1:flags=lanczos[x];[x][1:v]paletteuse\" %s",
                     startTime, duration, inputVideo, paletteFile, fps, width, outputGIF);
                 
-                Process gifProcess = Runtime.getRuntime().exec(gifCommand);
-                gifProcess.waitFor();
+                JobResult gifResult = FFmpegExecutor.getDefault().execute(gifCommand);
                 
-                if (gifProcess.exitValue() == 0) {
+                if (gifResult.isSuccess()) {
                     System.out.println("高质量GIF生成成功: " + outputGIF);
                     System.out.println("参数: fps=" + fps + ", width=" + width + ", duration=" + duration + "s");
                 } else {
@@ -164,10 +161,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"drawtext=text='%s':%s:x=%d:y=%d:fontsize=%d:fontcolor=%s\" -codec:a copy %s",
                 inputVideo, escapedText, positionStr, x, y, fontSize, color, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("英文文本添加成功: " + outputVideo);
                 System.out.println("文本: \"" + text + "\", 位置: (" + x + ", " + y + ")");
             } else {
@@ -193,10 +189,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"drawtext=text='%s':fontfile=%s:x=%d:y=%d:fontsize=%d:fontcolor=%s%s\" -codec:a copy %s",
                 inputVideo, escapedText, fontFile, x, y, fontSize, color, shadowFilter, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("中文文本添加成功: " + outputVideo);
                 System.out.println("文本: \"" + text + "\", 字体: " + fontFile);
             } else {
@@ -221,10 +216,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"drawtext=text='%s':fontfile=%s:x=w-tw-10*t:y=%d:fontsize=%d:fontcolor=%s\" -codec:a copy %s",
                 inputVideo, escapedText, fontFile, yPosition, fontSize, color, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("滚动文本添加成功: " + outputVideo);
                 System.out.println("滚动文本: \"" + text + "\"");
             } else {
@@ -246,10 +240,9 @@ public class ImageTextProcessor {
                 "ffmpeg -i %s -vf \"drawtext=text='时间\: %%{pts\\:hms}':x=%d:y=%d:fontsize=%d:fontcolor=%s\" -codec:a copy %s",
                 inputVideo, x, y, fontSize, color, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("时间戳添加成功: " + outputVideo);
             } else {
                 System.err.println("时间戳添加失败");
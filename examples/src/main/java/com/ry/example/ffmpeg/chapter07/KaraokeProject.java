@@ -1,5 +1,10 @@
 package com.ry.example.ffmpeg.chapter07;
 
+import com.ry.example.ffmpeg.chapter05.PCMAudioProcessor;
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+import com.ry.example.ffmpeg.common.OnsetDetector;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -12,6 +17,15 @@ import java.util.List;
  */
 public class KaraokeProject {
     
+    /** 歌词对齐时的分析采样率，人声频段以内足够 */
+    private static final int ANALYSIS_SAMPLE_RATE = 22050;
+    
+    /** 相邻两行歌词开始时间的最短间隔（秒） */
+    private static final double MIN_LINE_SECONDS = 1.0;
+    
+    /** 一行歌词在下一行开始前结束的间隔（秒） */
+    private static final double LINE_GAP_SECONDS = 0.1;
+    
     /**
      * 创建完整的卡拉OK视频
      */
@@ -29,10 +43,9 @@ public class KaraokeProject {
             System.out.println("正在创建卡拉OK视频...");
             System.out.println("歌词数量: " + lyrics.size());
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("卡拉OK视频创建成功: " + outputVideo);
             } else {
                 System.err.println("卡拉OK视频创建失败");
@@ -189,10 +202,9 @@ public class KaraokeProject {
             
             System.out.println("正在创建音乐视频...");
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("音乐视频创建成功: " + outputVideo);
             } else {
                 System.err.println("音乐视频创建失败");
@@ -220,10 +232,9 @@ public class KaraokeProject {
             
             System.out.println("正在创建多语言卡拉OK视频...");
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("多语言卡拉OK视频创建成功: " + outputVideo);
             } else {
                 System.err.println("多语言卡拉OK视频创建失败");
@@ -282,35 +293,37 @@ public class KaraokeProject {
     
     /**
      * 分析音频节奏并同步歌词
+     * 音频经 {@link PCMAudioProcessor#streamPCM} 解码为 22050Hz 单声道 PCM，边解码边交给 {@link OnsetDetector}
+     * 计算短时能量和频谱通量起音点，不落盘。每行歌词的开始时间对齐到停顿之后的人声起音，
+     * 结束时间为下一行开始前 {@link #LINE_GAP_SECONDS} 秒（不会晚于下一行开始），最后一行到有声部分结束。
+     * 时长也来自解码结果，不再单独调用 ffprobe。
+     * @return 同步后的歌词，解码失败时为空列表
      */
     public static List<KaraokeLyric> analyzeAudioAndSync(String audioFile, 
                                                         List<String> lyrics) {
         List<KaraokeLyric> syncedLyrics = new ArrayList<>();
+        if (lyrics.isEmpty()) {
+            return syncedLyrics;
+        }
         
         try {
-            // 简化实现：平均分配时间
-            // 实际应用中应该使用音频分析库
-            String command = String.format(
-                "ffprobe -v quiet -show_entries format=duration -of default=noprint_wrappers=1:nokey=1 %s",
-                audioFile);
-            
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
-            
-            double totalDuration = 5.0; // 默认5秒
-            try {
-                String durationStr = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream())).readLine();
-                totalDuration = Double.parseDouble(durationStr.trim());
-            } catch (Exception e) {
-                System.err.println("无法获取音频时长，使用默认值");
+            long begin = System.currentTimeMillis();
+            OnsetDetector detector = new OnsetDetector();
+            if (!PCMAudioProcessor.streamPCM(audioFile, ANALYSIS_SAMPLE_RATE, 1, detector)) {
+                System.err.println("音频解码失败: " + audioFile);
+                return syncedLyrics;
             }
             
-            double segmentDuration = totalDuration / lyrics.size();
+            double[] starts = detector.alignSegments(lyrics.size(), MIN_LINE_SECONDS);
+            double voicedEnd = detector.getVoicedEnd();
             
             for (int i = 0; i < lyrics.size(); i++) {
-                double startTime = i * segmentDuration;
-                double endTime = (i + 1) * segmentDuration;
+                double startTime = starts[i];
+                // 间隔很短时也不能越过下一行的开始时间，避免两行同时显示
+                double endTime = i + 1 < lyrics.size()
+                    ? Math.min(starts[i + 1],
+                               Math.max(startTime + MIN_LINE_SECONDS / 2, starts[i + 1] - LINE_GAP_SECONDS))
+                    : Math.max(startTime + MIN_LINE_SECONDS, voicedEnd);
                 
                 syncedLyrics.add(new KaraokeLyric(
                     lyrics.get(i), 
@@ -320,7 +333,10 @@ public class KaraokeProject {
                 ));
             }
             
+            double elapsed = (System.currentTimeMillis() - begin) / 1000.0;
             System.out.println("音频分析完成，同步了 " + syncedLyrics.size() + " 行歌词");
+            System.out.println(String.format("音频时长 %.1f 秒，检测到 %d 个起音点，耗时 %.2f 秒",
+                detector.getDurationSeconds(), detector.getOnsetTimes().length, elapsed));
             
         } catch (Exception e) {
             System.err.println("音频分析失败: " + e.getMessage());
@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter07;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -22,10 +25,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -i %s -c:v copy -c:a copy -c:s mov_text -map 0:v:0 -map 0:a:0 -map 1:s:0 %s",
                 inputVideo, subtitleFile, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("SRT字幕添加成功: " + outputVideo);
                 System.out.println("字幕类型: 软字幕（可切换）");
             } else {
@@ -47,10 +49,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -vf \"subtitles=%s:force_style='Fontname=%s,Fontsize=%d,PrimaryColour=&H00ffffff,OutlineColour=&H000000,Bold=0'\" -c:a copy %s",
                 inputVideo, subtitleFile, fontName, fontSize, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("字幕烧录成功: " + outputVideo);
                 System.out.println("字幕类型: 硬字幕（烧录到视频）");
                 System.out.println("字体: " + fontName + ", 字号: " + fontSize);
@@ -73,10 +74,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -vf \"ass=%s\" -c:a copy %s",
                 inputVideo, assFile, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("ASS字幕添加成功: " + outputVideo);
             } else {
                 System.err.println("ASS字幕添加失败");
@@ -99,10 +99,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -vf \"subtitles=%s:force_style='%s'\" -c:a copy %s",
                 inputVideo, subtitleFile, forceStyle, outputVideo);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("样式字幕添加成功: " + outputVideo);
                 System.out.println("字幕样式: " + style.name());
             } else {
@@ -226,10 +225,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -c:s %s %s",
                 inputFile, outputFormat.toLowerCase(), outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("字幕格式转换成功: " + outputFile);
                 System.out.println("转换: " + inputFormat + " -> " + outputFormat);
             } else {
@@ -251,10 +249,9 @@ public class SubtitleProcessor {
                 "ffmpeg -i %s -map 0:s:%d %s",
                 inputVideo, subtitleStreamIndex, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("字幕提取成功: " + outputFile);
                 System.out.println("字幕流索引: " + subtitleStreamIndex);
             } else {
@@ -1,5 +1,7 @@
 package com.ry.example.ffmpeg.chapter08;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -213,8 +215,7 @@ public class FFmpegCompiler {
      */
     private static boolean checkCommand(String command) {
         try {
-            Process process = Runtime.getRuntime().exec(command);
-            return process.waitFor() == 0;
+            return FFmpegExecutor.getDefault().execute(command).isSuccess();
         } catch (Exception e) {
             return false;
         }
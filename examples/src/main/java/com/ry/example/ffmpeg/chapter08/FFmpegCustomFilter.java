@@ -1,5 +1,8 @@
 package com.ry.example.ffmpeg.chapter08;
 
+import com.ry.example.ffmpeg.common.FFmpegExecutor;
+import com.ry.example.ffmpeg.common.JobResult;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -35,10 +38,9 @@ public class FFmpegCustomFilter {
             System.out.println("过渡宽度: " + transitionWidth + "px");
             System.out.println("最大模糊强度: " + maxBlur);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("侧边模糊效果应用成功: " + outputFile);
             } else {
                 System.err.println("侧边模糊效果应用失败");
@@ -67,10 +69,9 @@ public class FFmpegCustomFilter {
                 "ffmpeg -i %s -vf \"%s\" -c:a copy %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("模拟侧边模糊效果应用成功: " + outputFile);
             } else {
                 System.err.println("模拟侧边模糊效果应用失败");
@@ -97,10 +98,9 @@ public class FFmpegCustomFilter {
             
             System.out.println("应用自定义模糊锐化滤镜...");
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("自定义模糊锐化效果应用成功: " + outputFile);
             } else {
                 System.err.println("自定义模糊锐化效果应用失败");
@@ -125,10 +125,9 @@ public class FFmpegCustomFilter {
                 "ffmpeg -i %s -vf \"%s\" -c:a copy %s",
                 inputFile, filter, outputFile);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("模拟模糊锐化效果应用成功: " + outputFile);
             } else {
                 System.err.println("模拟模糊锐化效果应用失败");
@@ -173,10 +172,9 @@ public class FFmpegCustomFilter {
             
             System.out.println("应用自定义翻转滤镜...");
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("自定义翻转效果应用成功: " + outputFile);
             } else {
                 System.err.println("自定义翻转效果应用失败");
@@ -242,10 +240,9 @@ public class FFmpegCustomFilter {
             System.out.println("应用复杂滤镜链...");
             System.out.println("滤镜链: " + filterChain.toString());
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            if (process.exitValue() == 0) {
+            if (result.isSuccess()) {
                 System.out.println("复杂滤镜链应用成功: " + outputFile);
             } else {
                 System.err.println("复杂滤镜链应用失败");
@@ -263,10 +260,9 @@ public class FFmpegCustomFilter {
         try {
             String command = String.format("ffmpeg -filters | grep %s", filterName);
             
-            Process process = Runtime.getRuntime().exec(command);
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute(command);
             
-            return process.exitValue() == 0;
+            return result.isSuccess();
             
         } catch (Exception e) {
             System.err.println("检查滤镜支持失败: " + e.getMessage());
@@ -281,11 +277,10 @@ public class FFmpegCustomFilter {
         Map<String, String> filters = new HashMap<>();
         
         try {
-            Process process = Runtime.getRuntime().exec("ffmpeg -filters");
-            process.waitFor();
+            JobResult result = FFmpegExecutor.getDefault().execute("ffmpeg -filters");
             
             try (java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()))) {
+                    new java.io.StringReader(result.getStdout()))) {
                 
                 String line;
                 boolean inFilterList = false;
@@ -372,8 +367,7 @@ public class FFmpegCustomFilter {
                     "ffmpeg -i %s -vf \"%s\" -t 10 %s -y",
                     inputFile, filter, outputFile);
                 
-                Process process = Runtime.getRuntime().exec(command);
-                process.waitFor();
+                JobResult result = FFmpegExecutor.getDefault().execute(command);
                 
                 long endTime = System.currentTimeMillis();
                 long duration = endTime - startTime;
@@ -1,7 +1,12 @@
 package com.ry.example.ffmpeg.chapter12;
 
+import com.ry.example.ffmpeg.common.MediaInfo;
+import com.ry.example.ffmpeg.common.Mp4Reader;
+import com.ry.example.ffmpeg.common.StreamInfo;
+
 import android.media.MediaMetadataRetriever;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * 视频片段类
@@ -27,6 +32,13 @@ public class VideoClip {
         this.title = new File(filePath).getName();
         this.startTime = 0;
         
+        this.trimStart = 0;
+        
+        // MP4/MOV 直接解析 moov 获取时长和旋转角度，其他格式再使用 MediaMetadataRetriever
+        if (readMp4Metadata(filePath)) {
+            return;
+        }
+        
         // 获取视频信息
         MediaMetadataRetriever retriever = new MediaMetadataRetriever();
         try {
@@ -48,6 +60,29 @@ public class VideoClip {
         }
     }
     
+    /**
+     * 从MP4/MOV文件头读取时长和旋转角度
+     * @return 是否读取成功
+     */
+    private boolean readMp4Metadata(String filePath) {
+        try {
+            MediaInfo info = Mp4Reader.read(filePath);
+            if (info == null) {
+                return false;
+            }
+            this.duration = Math.round(info.getDurationSeconds() * 1000);
+            this.trimEnd = this.duration;
+            StreamInfo video = info.getVideoStream();
+            if (video != null) {
+                this.rotation = video.getRotation();
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // 损坏的 box 可能抛出 BufferUnderflowException 等运行时异常，同样回退到 MediaMetadataRetriever
+            return false;
+        }
+    }
+    
     /**
      * 获取裁剪后的实际时长
      * @return 实际时长（毫秒）
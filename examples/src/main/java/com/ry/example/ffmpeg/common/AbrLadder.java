@@ -0,0 +1,289 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 自适应码率（ABR）阶梯生成器
+ * 一个 ffmpeg 进程只解码一次输入，用 filter_complex 的 split 级联缩放（1080→720→480，
+ * 每一级从上一级缩放而不是从原始分辨率缩放），各档位在同一进程内同时编码，
+ * 可以输出为独立的 MP4 文件，也可以直接打包为 HLS 或 DASH。
+ *
+ * 所有档位按固定间隔强制插入关键帧并关闭场景切换检测，保证各档位的分片边界对齐，
+ * 播放器切换码率时不会错位。
+ */
+public class AbrLadder {
+
+    /**
+     * 输出格式
+     */
+    public enum Format {
+        MP4,   // 每个档位一个MP4文件
+        HLS,   // HLS 多码率（master.m3u8 + 每档一个子播放列表）
+        DASH   // DASH（manifest.mpd）
+    }
+
+    /**
+     * 阶梯中的一档
+     */
+    public static class Rung {
+        private final int width;
+        private final int height;
+        private final String videoBitrate;
+        private final String profile;
+
+        /**
+         * @param width 宽度，小于等于0时按高度等比缩放
+         * @param height 高度
+         * @param videoBitrate 视频码率，如 "5M"、"2.5M"、"800k"
+         * @param profile H.264 profile，如 "high"、"main"
+         */
+        public Rung(int width, int height, String videoBitrate, String profile) {
+            this.width = width;
+            this.height = height;
+            this.videoBitrate = videoBitrate;
+            this.profile = profile;
+        }
+
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public String getVideoBitrate() { return videoBitrate; }
+        public String getProfile() { return profile; }
+
+        /**
+         * 峰值码率与缓冲区大小以目标码率为基准（1.5倍 / 2倍）
+         */
+        String scaledBitrate(double factor) {
+            String value = videoBitrate.trim();
+            char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+            double number = Character.isLetter(unit)
+                    ? Double.parseDouble(value.substring(0, value.length() - 1)) : Double.parseDouble(value);
+            String suffix = unit == 'm' ? "M" : unit == 'k' ? "k" : "";
+            return String.format(Locale.ROOT, "%.0f", number * factor * (suffix.equals("M") ? 1000 : 1))
+                    + (suffix.isEmpty() ? "" : "k");
+        }
+
+        @Override
+        public String toString() {
+            return height + "p@" + videoBitrate;
+        }
+    }
+
+    private final List<Rung> rungs;
+    private String videoCodec = "libx264";
+    private String audioBitrate = "128k";
+    private double segmentSeconds = 4.0;
+
+    /**
+     * @param rungs 档位列表，内部按高度从高到低排列
+     */
+    public AbrLadder(List<Rung> rungs) {
+        if (rungs.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个档位");
+        }
+        List<Rung> sorted = new ArrayList<>(rungs);
+        sorted.sort(Comparator.comparingInt(Rung::getHeight).reversed());
+        this.rungs = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * 常用的三档：1080p 5M / 720p 2.5M / 480p 1M
+     */
+    public static AbrLadder defaultLadder() {
+        List<Rung> rungs = new ArrayList<>();
+        rungs.add(new Rung(1920, 1080, "5M", "high"));
+        rungs.add(new Rung(1280, 720, "2.5M", "main"));
+        rungs.add(new Rung(854, 480, "1M", "main"));
+        return new AbrLadder(rungs);
+    }
+
+    public void setVideoCodec(String videoCodec) { this.videoCodec = videoCodec; }
+    public void setAudioBitrate(String audioBitrate) { this.audioBitrate = audioBitrate; }
+    /** 分片时长（秒），也是关键帧间隔，默认4秒 */
+    public void setSegmentSeconds(double segmentSeconds) { this.segmentSeconds = segmentSeconds; }
+    public List<Rung> getRungs() { return rungs; }
+
+    /**
+     * 生成全部档位
+     * @param inputPath 输入文件路径
+     * @param output MP4 为输出文件前缀（生成 前缀_720p.mp4 等），HLS/DASH 为输出目录
+     * @param format 输出格式
+     * @return 是否成功
+     */
+    public boolean generate(String inputPath, String output, Format format) throws IOException, InterruptedException {
+        return generate(inputPath, output, format, null);
+    }
+
+    /**
+     * 生成全部档位，并回调编码进度
+     */
+    public boolean generate(String inputPath, String output, Format format, ProgressListener listener)
+            throws IOException, InterruptedException {
+        boolean hasAudio = MediaProbe.probe(inputPath).hasAudio();
+        List<String> command = new ArrayList<>();
+        command.add("ffmpeg");
+        command.add("-y");
+        command.add("-i");
+        command.add(inputPath);
+        command.add("-filter_complex");
+        command.add(buildFilterGraph());
+
+        switch (format) {
+            case MP4:
+                addMp4Outputs(command, output, hasAudio);
+                break;
+            case HLS:
+                addHlsOutput(command, output, hasAudio);
+                break;
+            case DASH:
+                addDashOutput(command, output, hasAudio);
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的格式: " + format);
+        }
+        return FFmpegExecutor.getDefault().execute(command, listener).isSuccess();
+    }
+
+    /**
+     * 级联缩放的滤镜图：
+     * [0:v]scale=1920:1080,split=2[v0][s0];[s0]scale=1280:720,split=2[v1][s1];[s1]scale=854:480[v2]
+     */
+    public String buildFilterGraph() {
+        StringBuilder graph = new StringBuilder();
+        String source = "[0:v]";
+        for (int i = 0; i < rungs.size(); i++) {
+            Rung rung = rungs.get(i);
+            if (i > 0) {
+                graph.append(';');
+            }
+            graph.append(source).append("scale=")
+                 .append(rung.getWidth() > 0 ? rung.getWidth() : -2).append(':').append(rung.getHeight());
+            if (i < rungs.size() - 1) {
+                graph.append(",split=2[v").append(i).append("][s").append(i).append(']');
+                source = "[s" + i + "]";
+            } else {
+                graph.append("[v").append(i).append(']');
+            }
+        }
+        return graph.toString();
+    }
+
+    private void addMp4Outputs(List<String> command, String outputPrefix, boolean hasAudio) {
+        for (int i = 0; i < rungs.size(); i++) {
+            Rung rung = rungs.get(i);
+            command.add("-map");
+            command.add("[v" + i + "]");
+            if (hasAudio) {
+                command.add("-map");
+                command.add("0:a:0");
+                command.add("-c:a");
+                command.add("aac");
+                command.add("-b:a");
+                command.add(audioBitrate);
+            }
+            addVideoOptions(command, rung, "");
+            command.add("-movflags");
+            command.add("+faststart");
+            command.add(outputPrefix + "_" + rung.getHeight() + "p.mp4");
+        }
+    }
+
+    private void addHlsOutput(List<String> command, String outputDir, boolean hasAudio) {
+        StringBuilder streamMap = new StringBuilder();
+        for (int i = 0; i < rungs.size(); i++) {
+            command.add("-map");
+            command.add("[v" + i + "]");
+            if (hasAudio) {
+                command.add("-map");
+                command.add("0:a:0");
+            }
+            addVideoOptions(command, rungs.get(i), ":" + i);
+            if (i > 0) {
+                streamMap.append(' ');
+            }
+            streamMap.append("v:").append(i);
+            if (hasAudio) {
+                streamMap.append(",a:").append(i);
+            }
+            streamMap.append(",name:").append(rungs.get(i).getHeight()).append('p');
+        }
+        addAudioOptions(command, hasAudio);
+        new File(outputDir).mkdirs();
+        command.add("-f");
+        command.add("hls");
+        command.add("-hls_time");
+        command.add(String.format(Locale.ROOT, "%.3f", segmentSeconds));
+        command.add("-hls_playlist_type");
+        command.add("vod");
+        command.add("-hls_segment_filename");
+        command.add(outputDir + "/%v/segment_%05d.ts");
+        command.add("-master_pl_name");
+        command.add("master.m3u8");
+        command.add("-var_stream_map");
+        command.add(streamMap.toString());
+        command.add(outputDir + "/%v/index.m3u8");
+    }
+
+    private void addDashOutput(List<String> command, String outputDir, boolean hasAudio) {
+        for (int i = 0; i < rungs.size(); i++) {
+            command.add("-map");
+            command.add("[v" + i + "]");
+            addVideoOptions(command, rungs.get(i), ":" + i);
+        }
+        if (hasAudio) {
+            command.add("-map");
+            command.add("0:a:0");
+        }
+        addAudioOptions(command, hasAudio);
+        new File(outputDir).mkdirs();
+        command.add("-f");
+        command.add("dash");
+        command.add("-seg_duration");
+        command.add(String.format(Locale.ROOT, "%.3f", segmentSeconds));
+        command.add("-use_template");
+        command.add("1");
+        command.add("-use_timeline");
+        command.add("1");
+        command.add("-adaptation_sets");
+        command.add(hasAudio ? "id=0,streams=v id=1,streams=a" : "id=0,streams=v");
+        command.add(outputDir + "/manifest.mpd");
+    }
+
+    /**
+     * 单档的视频编码参数
+     * @param specifier 流说明符后缀：单独输出时为空，多档位共用一个输出时为 ":序号"
+     */
+    private void addVideoOptions(List<String> command, Rung rung, String specifier) {
+        command.add("-c:v" + specifier);
+        command.add(videoCodec);
+        command.add("-b:v" + specifier);
+        command.add(rung.getVideoBitrate());
+        command.add("-maxrate:v" + specifier);
+        command.add(rung.scaledBitrate(1.5));
+        command.add("-bufsize:v" + specifier);
+        command.add(rung.scaledBitrate(2.0));
+        if (rung.getProfile() != null) {
+            command.add("-profile:v" + specifier);
+            command.add(rung.getProfile());
+        }
+        // 固定间隔的关键帧，各档位分片边界一致
+        command.add("-force_key_frames:v" + specifier);
+        command.add(String.format(Locale.ROOT, "expr:gte(t,n_forced*%.3f)", segmentSeconds));
+        command.add("-sc_threshold:v" + specifier);
+        command.add("0");
+    }
+
+    private void addAudioOptions(List<String> command, boolean hasAudio) {
+        if (hasAudio) {
+            command.add("-c:a");
+            command.add("aac");
+            command.add("-b:a");
+            command.add(audioBitrate);
+        }
+    }
+}
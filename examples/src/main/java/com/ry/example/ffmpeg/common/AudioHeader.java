@@ -0,0 +1,456 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 无压缩音频文件头读取器
+ * 在进程内解析 RIFF/WAVE（含 WAVE_FORMAT_EXTENSIBLE）、RF64/BW64、AIFF/AIFC 的文件头，
+ * 只读取几十到几百字节，得到采样格式、声道布局、数据偏移和时长（微秒），不启动 ffprobe；
+ * 不带文件头的原始 PCM 用 {@link #raw} 按声明的参数计算。
+ *
+ * 压缩编码的 WAV（如 ADPCM、MP3）或无法识别的文件返回 null，由调用方改用 ffprobe。
+ */
+public final class AudioHeader {
+
+    /**
+     * 容器格式
+     */
+    public enum Container {
+        WAV,   // RIFF/WAVE
+        RF64,  // RF64/BW64，超过 4GB 的 WAV
+        AIFF,  // AIFF/AIFC
+        RAW    // 不带文件头的 PCM
+    }
+
+    /**
+     * 采样编码，名称与 ffmpeg 的原始 PCM 格式一致（小写后即为 -f 参数，加 pcm_ 前缀为编码器名）
+     */
+    public enum Encoding {
+        U8(1, false, false),
+        S8(1, false, false),
+        S16LE(2, false, false),
+        S16BE(2, false, true),
+        S24LE(3, false, false),
+        S24BE(3, false, true),
+        S32LE(4, false, false),
+        S32BE(4, false, true),
+        F32LE(4, true, false),
+        F32BE(4, true, true),
+        F64LE(8, true, false),
+        F64BE(8, true, true),
+        ALAW(1, false, false),
+        MULAW(1, false, false);
+
+        private final int bytes;
+        private final boolean floatingPoint;
+        private final boolean bigEndian;
+
+        Encoding(int bytes, boolean floatingPoint, boolean bigEndian) {
+            this.bytes = bytes;
+            this.floatingPoint = floatingPoint;
+            this.bigEndian = bigEndian;
+        }
+
+        public int getBytes() { return bytes; }
+        public boolean isFloatingPoint() { return floatingPoint; }
+        public boolean isBigEndian() { return bigEndian; }
+
+        /** ffmpeg 的格式名，如 s16le */
+        public String getFormatName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /** ffmpeg 的编码器名，如 pcm_s16le */
+        public String getCodecName() {
+            return "pcm_" + getFormatName();
+        }
+
+        /**
+         * 按 ffmpeg 的格式名查找，如 "s16le"
+         * @throws IllegalArgumentException 不支持的格式
+         */
+        public static Encoding fromFormatName(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final int RIFF = 0x52494646;
+    private static final int RF64 = 0x52463634;
+    private static final int BW64 = 0x42573634;
+    private static final int WAVE = 0x57415645;
+    private static final int FORM = 0x464F524D;
+    private static final int AIFF = 0x41494646;
+    private static final int AIFC = 0x41494643;
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_ALAW = 6;
+    private static final int WAVE_FORMAT_MULAW = 7;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /** 在此范围内找不到数据块时放弃（正常文件的数据块都在前几 KB） */
+    private static final long MAX_HEADER_BYTES = 1024 * 1024;
+
+    private final String path;
+    private final Container container;
+    private final Encoding encoding;
+    private final int sampleRate;
+    private final int channels;
+    private final long channelMask;
+    private final long dataOffset;
+    private final long dataBytes;
+    private final long fileSize;
+
+    private AudioHeader(String path, Container container, Encoding encoding, int sampleRate, int channels,
+                        long channelMask, long dataOffset, long dataBytes, long fileSize) {
+        this.path = path;
+        this.container = container;
+        this.encoding = encoding;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.channelMask = channelMask;
+        this.dataOffset = dataOffset;
+        this.dataBytes = dataBytes;
+        this.fileSize = fileSize;
+    }
+
+    /**
+     * 读取 WAV/RF64/AIFF 文件头
+     * @param path 文件路径
+     * @return 文件头信息；不是这几种容器、采样不是无压缩 PCM 或文件头不完整时返回null
+     * @throws IOException 文件读取失败
+     */
+    public static AudioHeader read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 12) {
+                return null;
+            }
+            ByteBuffer head = read(channel, 0, 12, ByteOrder.BIG_ENDIAN);
+            int magic = head.getInt(0);
+            int type = head.getInt(8);
+            if ((magic == RIFF || magic == RF64 || magic == BW64) && type == WAVE) {
+                return readWave(path, channel, size, magic != RIFF);
+            }
+            if (magic == FORM && (type == AIFF || type == AIFC)) {
+                return readAiff(path, channel, size, type == AIFC);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 不带文件头的原始 PCM，按声明的参数计算
+     * @param sampleFormat ffmpeg 的格式名，如 "s16le"
+     * @throws IOException 文件读取失败
+     */
+    public static AudioHeader raw(String path, int sampleRate, int channels, String sampleFormat) throws IOException {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("参数无效: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        long size = new File(path).length();
+        return new AudioHeader(path, Container.RAW, Encoding.fromFormatName(sampleFormat), sampleRate, channels,
+                0, 0, size, size);
+    }
+
+    /**
+     * 先按文件头读取，不是 WAV/RF64/AIFF 时按声明的原始 PCM 参数计算
+     */
+    public static AudioHeader readOrRaw(String path, int sampleRate, int channels, String sampleFormat)
+            throws IOException {
+        AudioHeader header = read(path);
+        return header != null ? header : raw(path, sampleRate, channels, sampleFormat);
+    }
+
+    /**
+     * RIFF 块依次为 [ds64] fmt ... data；RF64 的 data 长度字段为 0xFFFFFFFF，实际长度在 ds64 中
+     */
+    private static AudioHeader readWave(String path, FileChannel channel, long size, boolean rf64) throws IOException {
+        long ds64DataBytes = -1;
+        Encoding encoding = null;
+        int channels = 0;
+        int sampleRate = 0;
+        int blockAlign = 0;
+        long channelMask = 0;
+        long position = 12;
+        while (position + 8 <= size && position < MAX_HEADER_BYTES) {
+            ByteBuffer chunk = read(channel, position, 8, ByteOrder.LITTLE_ENDIAN);
+            String id = fourcc(Integer.reverseBytes(chunk.getInt(0)));
+            long length = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id.equals("ds64") && length >= 24) {
+                ByteBuffer ds64 = read(channel, body, 24, ByteOrder.LITTLE_ENDIAN);
+                if (ds64.limit() < 24) {
+                    return null;
+                }
+                ds64DataBytes = ds64.getLong(8);
+            } else if (id.equals("fmt ") && length >= 16) {
+                ByteBuffer fmt = read(channel, body, (int) Math.min(length, 40), ByteOrder.LITTLE_ENDIAN);
+                if (fmt.limit() < 16) {
+                    return null;
+                }
+                int tag = fmt.getShort(0) & 0xFFFF;
+                channels = fmt.getShort(2) & 0xFFFF;
+                sampleRate = fmt.getInt(4);
+                blockAlign = fmt.getShort(12) & 0xFFFF;
+                int bits = fmt.getShort(14) & 0xFFFF;
+                if (tag == WAVE_FORMAT_EXTENSIBLE && fmt.limit() >= 40) {
+                    channelMask = fmt.getInt(20) & 0xFFFFFFFFL;
+                    tag = fmt.getShort(24) & 0xFFFF; // 子格式 GUID 的前两个字节
+                }
+                encoding = waveEncoding(tag, bits);
+                // 块对齐与声道数 × 采样字节数不符（如容器位宽与有效位不一致的旧文件）时交给 ffprobe
+                if (encoding == null || (blockAlign != 0 && blockAlign != channels * encoding.getBytes())) {
+                    return null;
+                }
+            } else if (id.equals("data")) {
+                if (encoding == null || channels <= 0 || sampleRate <= 0) {
+                    return null;
+                }
+                long dataBytes = rf64 && length == 0xFFFFFFFFL && ds64DataBytes >= 0 ? ds64DataBytes : length;
+                // 流式写出的文件长度字段可能为 0 或 0xFFFFFFFF，截断的文件长度超出实际大小，都以文件末尾为准
+                if (dataBytes == 0 || (!rf64 && dataBytes == 0xFFFFFFFFL) || body + dataBytes > size) {
+                    dataBytes = size - body;
+                }
+                dataBytes -= dataBytes % (channels * encoding.getBytes());
+                return new AudioHeader(path, rf64 ? Container.RF64 : Container.WAV, encoding, sampleRate, channels,
+                        channelMask, body, dataBytes, size);
+            }
+            position = body + length + (length & 1);
+        }
+        return null;
+    }
+
+    private static Encoding waveEncoding(int tag, int bits) {
+        switch (tag) {
+            case WAVE_FORMAT_PCM:
+                switch ((bits + 7) / 8) {
+                    case 1: return Encoding.U8;
+                    case 2: return Encoding.S16LE;
+                    case 3: return Encoding.S24LE;
+                    case 4: return Encoding.S32LE;
+                    default: return null;
+                }
+            case WAVE_FORMAT_IEEE_FLOAT:
+                return bits == 32 ? Encoding.F32LE : bits == 64 ? Encoding.F64LE : null;
+            case WAVE_FORMAT_ALAW:
+                return Encoding.ALAW;
+            case WAVE_FORMAT_MULAW:
+                return Encoding.MULAW;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * AIFF 为大端；COMM 块给出声道数、帧数、位数和 80 位扩展精度的采样率，
+     * AIFC 在其后附加压缩类型；SSND 块开头 8 字节为 offset 和 blockSize
+     */
+    private static AudioHeader readAiff(String path, FileChannel channel, long size, boolean aifc) throws IOException {
+        Encoding encoding = null;
+        int channels = 0;
+        int sampleRate = 0;
+        long frames = -1;
+        long position = 12;
+        while (position + 8 <= size && position < MAX_HEADER_BYTES) {
+            ByteBuffer chunk = read(channel, position, 8, ByteOrder.BIG_ENDIAN);
+            String id = fourcc(chunk.getInt(0));
+            long length = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id.equals("COMM") && length >= 18) {
+                ByteBuffer comm = read(channel, body, (int) Math.min(length, 22), ByteOrder.BIG_ENDIAN);
+                if (comm.limit() < 18) {
+                    return null;
+                }
+                channels = comm.getShort(0) & 0xFFFF;
+                frames = comm.getInt(2) & 0xFFFFFFFFL;
+                int bits = comm.getShort(6);
+                sampleRate = (int) Math.round(extended(comm, 8));
+                String compression = aifc && comm.limit() >= 22 ? fourcc(comm.getInt(18)) : "NONE";
+                encoding = aiffEncoding(compression, bits);
+                if (encoding == null) {
+                    return null;
+                }
+            } else if (id.equals("SSND") && length >= 8) {
+                if (encoding == null || channels <= 0 || sampleRate <= 0) {
+                    return null;
+                }
+                long offset = read(channel, body, 4, ByteOrder.BIG_ENDIAN).getInt(0) & 0xFFFFFFFFL;
+                long dataOffset = body + 8 + offset;
+                long dataBytes = Math.min(length - 8 - offset, size - dataOffset);
+                long frameBytes = (long) channels * encoding.getBytes();
+                dataBytes = Math.min(dataBytes - dataBytes % frameBytes, frames * frameBytes);
+                return new AudioHeader(path, Container.AIFF, encoding, sampleRate, channels, 0,
+                        dataOffset, Math.max(0, dataBytes), size);
+            }
+            position = body + length + (length & 1);
+        }
+        return null;
+    }
+
+    private static Encoding aiffEncoding(String compression, int bits) {
+        switch (compression) {
+            case "NONE":
+            case "twos":
+                switch ((bits + 7) / 8) {
+                    case 1: return Encoding.S8;
+                    case 2: return Encoding.S16BE;
+                    case 3: return Encoding.S24BE;
+                    case 4: return Encoding.S32BE;
+                    default: return null;
+                }
+            case "sowt":
+                return bits <= 16 ? Encoding.S16LE : bits <= 24 ? Encoding.S24LE : Encoding.S32LE;
+            case "fl32":
+            case "FL32":
+                return Encoding.F32BE;
+            case "fl64":
+            case "FL64":
+                return Encoding.F64BE;
+            case "alaw":
+            case "ALAW":
+                return Encoding.ALAW;
+            case "ulaw":
+            case "ULAW":
+                return Encoding.MULAW;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 80 位 IEEE 754 扩展精度：1 位符号、15 位指数、64 位尾数（显式整数位）
+     */
+    private static double extended(ByteBuffer buffer, int offset) {
+        int exponent = buffer.getShort(offset) & 0x7FFF;
+        long mantissa = buffer.getLong(offset + 2);
+        if (exponent == 0 && mantissa == 0) {
+            return 0.0;
+        }
+        double value = (mantissa >>> 11) * Math.pow(2, exponent - 16383 - 52);
+        return (buffer.getShort(offset) & 0x8000) != 0 ? -value : value;
+    }
+
+    /**
+     * 转换为与 ffprobe 输出字段一致的 {@link MediaInfo}，供 {@link MediaProbe#probeMetadata} 使用
+     */
+    public MediaInfo toMediaInfo() {
+        String duration = String.format(Locale.ROOT, "%.6f", getDurationSeconds());
+        long bitRate = (long) sampleRate * channels * encoding.getBytes() * 8;
+
+        Map<String, String> stream = new LinkedHashMap<>();
+        stream.put("index", "0");
+        stream.put("codec_name", encoding.getCodecName());
+        stream.put("codec_type", StreamInfo.TYPE_AUDIO);
+        stream.put("sample_rate", String.valueOf(sampleRate));
+        stream.put("channels", String.valueOf(channels));
+        String layout = getChannelLayout();
+        if (!layout.isEmpty()) {
+            stream.put("channel_layout", layout);
+        }
+        stream.put("bits_per_sample", String.valueOf(encoding.getBytes() * 8));
+        stream.put("time_base", "1/" + sampleRate);
+        stream.put("duration_ts", String.valueOf(getFrameCount()));
+        stream.put("duration", duration);
+        stream.put("bit_rate", String.valueOf(bitRate));
+        List<StreamInfo> streams = new ArrayList<>();
+        streams.add(new StreamInfo(stream, new LinkedHashMap<>(), 0));
+
+        Map<String, String> format = new LinkedHashMap<>();
+        format.put("filename", path);
+        format.put("nb_streams", "1");
+        format.put("format_name", container == Container.AIFF ? "aiff"
+                : container == Container.RAW ? encoding.getFormatName() : "wav");
+        format.put("duration", duration);
+        format.put("size", String.valueOf(fileSize));
+        format.put("bit_rate", String.valueOf(bitRate));
+        return new MediaInfo(path, format, new LinkedHashMap<>(), streams);
+    }
+
+    public String getPath() { return path; }
+    public Container getContainer() { return container; }
+    public Encoding getEncoding() { return encoding; }
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    /** WAVE_FORMAT_EXTENSIBLE 的声道掩码（SPEAKER_* 位），未声明时为0 */
+    public long getChannelMask() { return channelMask; }
+    /** 第一个采样在文件中的字节偏移 */
+    public long getDataOffset() { return dataOffset; }
+    /** 采样数据的字节数（按整帧截断） */
+    public long getDataBytes() { return dataBytes; }
+    public int getFrameBytes() { return channels * encoding.getBytes(); }
+    public long getFrameCount() { return dataBytes / getFrameBytes(); }
+
+    /** 时长（微秒） */
+    public long getDurationMicros() {
+        return getFrameCount() * 1_000_000L / sampleRate;
+    }
+
+    public double getDurationSeconds() {
+        return (double) getFrameCount() / sampleRate;
+    }
+
+    /**
+     * ffmpeg 的声道布局名：有声道掩码时按掩码，否则按声道数取默认布局，无法确定时为空字符串
+     */
+    public String getChannelLayout() {
+        if (channelMask != 0) {
+            switch ((int) channelMask) {
+                case 0x4: return "mono";
+                case 0x3: return "stereo";
+                case 0xB: return "2.1";
+                case 0x7: return "3.0";
+                case 0x33: return "quad";
+                case 0x603: return "quad(side)";
+                case 0x37: return "5.0";
+                case 0x607: return "5.0(side)";
+                case 0x3F: return "5.1";
+                case 0x60F: return "5.1(side)";
+                case 0x63F: return "7.1";
+                default: return "";
+            }
+        }
+        switch (channels) {
+            case 1: return "mono";
+            case 2: return "stereo";
+            case 6: return "5.1";
+            case 8: return "7.1";
+            default: return "";
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length, ByteOrder order)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(order);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String fourcc(int value) {
+        return new String(new char[] {(char) (value >>> 24), (char) ((value >>> 16) & 0xFF),
+                (char) ((value >>> 8) & 0xFF), (char) (value & 0xFF)});
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s %s %dHz %d声道%s, 数据偏移 %d, %d 帧, %.3f 秒",
+                container, encoding.getFormatName(), sampleRate, channels,
+                getChannelLayout().isEmpty() ? "" : "(" + getChannelLayout() + ")",
+                dataOffset, getFrameCount(), getDurationSeconds());
+    }
+}
@@ -0,0 +1,182 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 分块并行转码
+ * 单个 libx264 进程在常用预设下很难用满几十个核心。这里在源视频的关键帧处把输入切成若干块，
+ * 每块作为独立的 ffmpeg 进程以相同参数并行编码（每块从 IDR 帧开始，天然是封闭 GOP），
+ * 再用 concat 解封装器无损拼接视频，最后把原音频一次性复用进去。
+ *
+ * 失败的块会单独重试，不需要重新编码整段视频。
+ */
+public class ChunkedEncoder {
+
+    private final double chunkSeconds;
+    private final int parallelism;
+    private final FFmpegExecutor executor;
+    private int maxRetries = 2;
+    private volatile int lastChunkCount;
+
+    /**
+     * @param chunkSeconds 目标块时长（秒），实际在其后第一个关键帧处切分
+     * @param parallelism 同时编码的块数
+     */
+    public ChunkedEncoder(double chunkSeconds, int parallelism) {
+        if (chunkSeconds <= 0) {
+            throw new IllegalArgumentException("chunkSeconds必须大于0: " + chunkSeconds);
+        }
+        this.chunkSeconds = chunkSeconds;
+        this.parallelism = parallelism;
+        this.executor = new FFmpegExecutor(parallelism);
+    }
+
+    /**
+     * 设置每个块失败后的最大重试次数，默认2次
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public double getChunkSeconds() { return chunkSeconds; }
+    public int getParallelism() { return parallelism; }
+    /** 最近一次 {@link #encode} 切出的块数，尚未编码时为0 */
+    public int getLastChunkCount() { return lastChunkCount; }
+
+    /**
+     * 分块编码
+     * @param inputPath 输入文件路径
+     * @param outputPath 输出文件路径
+     * @param videoOptions 视频编码参数，如 ["-c:v", "libx264", "-crf", "23", "-preset", "medium"]；
+     *                     未指定 -threads 时按核心数平均分配给各块
+     * @return 是否成功
+     * @throws IOException 索引生成或临时文件操作失败
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public boolean encode(String inputPath, String outputPath, List<String> videoOptions)
+            throws IOException, InterruptedException {
+        List<Double> boundaries = splitPoints(inputPath);
+        int chunkCount = boundaries.size() - 1;
+        lastChunkCount = chunkCount;
+
+        List<String> options = new ArrayList<>(videoOptions);
+        if (!options.contains("-threads")) {
+            options.add("-threads");
+            options.add(String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism)));
+        }
+
+        File workDir = Files.createTempDirectory("chunked").toFile();
+        try {
+            File[] chunks = new File[chunkCount];
+            List<List<String>> commands = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = new File(workDir, String.format("chunk_%05d.ts", i));
+                commands.add(chunkCommand(inputPath, chunks[i], boundaries.get(i), boundaries.get(i + 1), options));
+            }
+
+            List<CompletableFuture<JobResult>> futures = new ArrayList<>();
+            for (List<String> command : commands) {
+                futures.add(executor.submit(command));
+            }
+            for (int i = 0; i < chunkCount; i++) {
+                boolean success = isSuccess(futures.get(i));
+                for (int attempt = 1; !success && attempt <= maxRetries; attempt++) {
+                    System.err.println("块 " + i + " 编码失败，第 " + attempt + " 次重试");
+                    success = isSuccess(executor.submit(commands.get(i)));
+                }
+                if (!success) {
+                    System.err.println("块 " + i + " 编码失败: " + commands.get(i));
+                    for (CompletableFuture<JobResult> future : futures) {
+                        future.cancel(true);
+                    }
+                    return false;
+                }
+            }
+
+            File list = new File(workDir, "chunks.txt");
+            try (PrintWriter writer = new PrintWriter(list, "UTF-8")) {
+                for (File chunk : chunks) {
+                    writer.println("file '" + chunk.getAbsolutePath().replace("'", "'\\''") + "'");
+                }
+            }
+            String[] command = {"ffmpeg", "-y", "-f", "concat", "-safe", "0", "-i", list.getPath(),
+                               "-i", inputPath, "-map", "0:v:0", "-map", "1:a?",
+                               "-c", "copy", outputPath};
+            return executor.execute(command).isSuccess();
+        } finally {
+            File[] files = workDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            workDir.delete();
+        }
+    }
+
+    /**
+     * 关闭内部的执行器
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 切分点：0、每隔 chunkSeconds 之后的第一个关键帧、视频结尾
+     */
+    private List<Double> splitPoints(String inputPath) throws IOException, InterruptedException {
+        KeyframeIndex index = KeyframeIndex.forFile(inputPath);
+        double duration = MediaProbe.probe(inputPath).getDurationSeconds();
+        double offset = index.getStartTime();
+
+        List<Double> boundaries = new ArrayList<>();
+        boundaries.add(0.0);
+        double last = 0.0;
+        while (true) {
+            double keyframe = index.keyframeAtOrAfter(offset + last + chunkSeconds);
+            if (keyframe < 0 || keyframe - offset >= duration) {
+                break;
+            }
+            last = keyframe - offset;
+            boundaries.add(last);
+        }
+        boundaries.add(Math.max(duration, last));
+        return boundaries;
+    }
+
+    /**
+     * 单块的编码命令；起止时间各提前0.5ms，保证关键帧本身落在以它开头的块内
+     */
+    private static List<String> chunkCommand(String inputPath, File chunk, double start, double end,
+                                             List<String> options) {
+        double from = Math.max(0.0, start - 0.0005);
+        List<String> command = new ArrayList<>();
+        command.add("ffmpeg");
+        command.add("-y");
+        command.add("-ss");
+        command.add(String.format(Locale.ROOT, "%.6f", from));
+        command.add("-i");
+        command.add(inputPath);
+        command.add("-t");
+        command.add(String.format(Locale.ROOT, "%.6f", end - 0.0005 - from));
+        command.add("-an");
+        command.addAll(options);
+        command.add(chunk.getPath());
+        return command;
+    }
+
+    private static boolean isSuccess(CompletableFuture<JobResult> future) throws InterruptedException {
+        try {
+            return FFmpegExecutor.await(future).isSuccess();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
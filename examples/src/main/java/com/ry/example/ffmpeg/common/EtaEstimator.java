@@ -0,0 +1,45 @@
+package com.ry.example.ffmpeg.common;
+
+/**
+ * 剩余时间估算器
+ * 根据已输出的媒体时长和平滑后的处理速度估算剩余耗时
+ */
+public class EtaEstimator {
+
+    /** 速度的指数平滑系数，越大越跟随最新值 */
+    private static final double SMOOTHING = 0.3;
+
+    private volatile double totalSeconds;
+    private double smoothedSpeed = -1;
+    private double etaSeconds = -1;
+
+    /**
+     * @param totalSeconds 预计输出总时长（秒），未知时传 -1，可稍后通过 {@link #setTotalSeconds(double)} 设置
+     */
+    public EtaEstimator(double totalSeconds) {
+        this.totalSeconds = totalSeconds;
+    }
+
+    /**
+     * 用新的进度数据更新估算
+     * @param outTimeSeconds 已输出的媒体时长（秒）
+     * @param speed ffmpeg 报告的速度倍数，未知时传 -1
+     * @return 剩余秒数，无法估算时返回 -1
+     */
+    public synchronized double update(double outTimeSeconds, double speed) {
+        if (speed > 0) {
+            smoothedSpeed = smoothedSpeed < 0 ? speed : SMOOTHING * speed + (1 - SMOOTHING) * smoothedSpeed;
+        }
+        if (totalSeconds <= 0 || outTimeSeconds < 0 || smoothedSpeed <= 0) {
+            etaSeconds = -1;
+        } else {
+            etaSeconds = Math.max(0, totalSeconds - outTimeSeconds) / smoothedSpeed;
+        }
+        return etaSeconds;
+    }
+
+    public double getTotalSeconds() { return totalSeconds; }
+    public void setTotalSeconds(double totalSeconds) { this.totalSeconds = totalSeconds; }
+    public synchronized double getSmoothedSpeed() { return smoothedSpeed; }
+    public synchronized double getEtaSeconds() { return etaSeconds; }
+}
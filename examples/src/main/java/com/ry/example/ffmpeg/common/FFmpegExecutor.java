@@ -0,0 +1,463 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * FFmpeg 进程执行器
+ * 统一负责启动 ffmpeg/ffprobe 进程、在后台线程读取 stdout/stderr，
+ * 并通过固定大小的工作线程池限制同时运行的进程数量。
+ *
+ * 提交的任务超过并发上限时会在队列中排队，不会一次性启动全部进程；
+ * 每个进程的输出都会被持续读取，避免管道缓冲区写满导致 ffmpeg 卡死。
+ *
+ * 对 ffmpeg 命令会自动加上 -progress，解析后的进度通过 {@link ProgressListener} 推送，
+ * 既可以在提交时指定单个任务的监听器，也可以用 {@link #addProgressListener} 订阅全部任务。
+ */
+public class FFmpegExecutor {
+
+    /** 默认并发数可通过系统属性覆盖，例如 -Dffmpeg.executor.maxJobs=8 */
+    public static final String MAX_JOBS_PROPERTY = "ffmpeg.executor.maxJobs";
+
+    /** stderr 只保留尾部内容，ffmpeg 的日志可能非常长 */
+    private static final int MAX_STDERR_CHARS = 64 * 1024;
+
+    private static volatile FFmpegExecutor defaultExecutor;
+
+    private final int maxConcurrentJobs;
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService drainers;
+    private final AtomicLong jobIds = new AtomicLong();
+    private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+    private final Map<Long, ProgressEvent> activeProgress = new ConcurrentHashMap<>();
+
+    /**
+     * 创建执行器
+     * @param maxConcurrentJobs 同时运行的最大进程数
+     */
+    public FFmpegExecutor(int maxConcurrentJobs) {
+        if (maxConcurrentJobs <= 0) {
+            throw new IllegalArgumentException("maxConcurrentJobs必须大于0: " + maxConcurrentJobs);
+        }
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.workers = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads("ffmpeg-worker"));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.drainers = Executors.newCachedThreadPool(daemonThreads("ffmpeg-drain"));
+    }
+
+    /**
+     * 获取全局共享的执行器，并发数默认为CPU核心数
+     */
+    public static FFmpegExecutor getDefault() {
+        FFmpegExecutor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (FFmpegExecutor.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    int maxJobs = Integer.getInteger(MAX_JOBS_PROPERTY,
+                            Runtime.getRuntime().availableProcessors());
+                    executor = new FFmpegExecutor(maxJobs);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 异步提交命令
+     * @param command 命令及参数
+     * @return 进程结束后完成的Future；取消Future会强制结束进程
+     */
+    public CompletableFuture<JobResult> submit(List<String> command) {
+        return submit(command, null);
+    }
+
+    /**
+     * 异步提交命令并监听进度
+     * @param command 命令及参数
+     * @param listener 当前任务的进度监听器，可为null
+     * @return 进程结束后完成的Future；取消Future会强制结束进程
+     */
+    public CompletableFuture<JobResult> submit(List<String> command, ProgressListener listener) {
+        return submit(command, null, listener);
+    }
+
+    /**
+     * 异步提交命令，并把 stdin 的内容写入进程标准输入（如 "-i pipe:0" 读取的 concat 列表）
+     * @param command 命令及参数
+     * @param stdin 写入标准输入的内容，为null时直接关闭标准输入
+     * @param listener 当前任务的进度监听器，可为null
+     * @return 进程结束后完成的Future；取消Future会强制结束进程
+     */
+    public CompletableFuture<JobResult> submit(List<String> command, byte[] stdin, ProgressListener listener) {
+        List<String> commandCopy = new ArrayList<>(command);
+        CompletableFuture<JobResult> future = new CompletableFuture<>();
+        AtomicReference<Process> processRef = new AtomicReference<>();
+
+        future.whenComplete((result, error) -> {
+            Process process = processRef.get();
+            if (future.isCancelled() && process != null) {
+                process.destroyForcibly();
+            }
+        });
+
+        workers.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(run(commandCopy, stdin, listener, processRef, future));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 异步提交命令
+     */
+    public CompletableFuture<JobResult> submit(String[] cmdarray) {
+        return submit(Arrays.asList(cmdarray));
+    }
+
+    /**
+     * 异步提交命令行字符串，按 {@link #tokenize(String)} 规则拆分参数
+     */
+    public CompletableFuture<JobResult> submit(String commandLine) {
+        return submit(tokenize(commandLine));
+    }
+
+    /**
+     * 同步执行命令并等待结束
+     * @param command 命令及参数
+     * @return 执行结果
+     * @throws IOException 进程无法启动或读取输出失败
+     * @throws InterruptedException 等待过程中线程被中断（进程会被结束）
+     */
+    public JobResult execute(List<String> command) throws IOException, InterruptedException {
+        return await(submit(command));
+    }
+
+    /**
+     * 同步执行命令并监听进度
+     */
+    public JobResult execute(List<String> command, ProgressListener listener)
+            throws IOException, InterruptedException {
+        return await(submit(command, listener));
+    }
+
+    /**
+     * 同步执行命令，stdin 的内容写入进程标准输入
+     */
+    public JobResult execute(List<String> command, byte[] stdin) throws IOException, InterruptedException {
+        return await(submit(command, stdin, null));
+    }
+
+    /**
+     * 同步执行命令并监听进度
+     */
+    public JobResult execute(String[] cmdarray, ProgressListener listener)
+            throws IOException, InterruptedException {
+        return execute(Arrays.asList(cmdarray), listener);
+    }
+
+    /**
+     * 同步执行命令行字符串并监听进度
+     */
+    public JobResult execute(String commandLine, ProgressListener listener)
+            throws IOException, InterruptedException {
+        return execute(tokenize(commandLine), listener);
+    }
+
+    /**
+     * 同步执行命令并等待结束
+     */
+    public JobResult execute(String[] cmdarray) throws IOException, InterruptedException {
+        return execute(Arrays.asList(cmdarray));
+    }
+
+    /**
+     * 同步执行命令行字符串
+     */
+    public JobResult execute(String commandLine) throws IOException, InterruptedException {
+        return execute(tokenize(commandLine));
+    }
+
+    /**
+     * 等待异步任务结束，将异常还原为 IOException/InterruptedException
+     */
+    public static JobResult await(Future<JobResult> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("任务已取消");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 在工作线程中启动进程：stdin 和 stderr 交给后台线程写入/读取，stdout 在当前线程读取
+     */
+    private JobResult run(List<String> command, byte[] stdin, ProgressListener listener, AtomicReference<Process> processRef,
+                          CompletableFuture<JobResult> future) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        long jobId = jobIds.incrementAndGet();
+        AtomicReference<ProgressEvent> lastProgress = new AtomicReference<>();
+
+        List<String> actualCommand = command;
+        ProgressParser parser = null;
+        boolean progressOnStdout = false;
+        if (isFFmpeg(command) && !command.contains("-progress")) {
+            // 命令本身把结果写到 stdout 时，进度改走 stderr
+            progressOnStdout = !writesToStdout(command);
+            actualCommand = new ArrayList<>(command);
+            actualCommand.addAll(1, Arrays.asList("-progress", progressOnStdout ? "pipe:1" : "pipe:2", "-nostats"));
+            parser = new ProgressParser(jobId, new EtaEstimator(-1), event -> {
+                lastProgress.set(event);
+                publish(event, listener);
+            }, optionSeconds(command, "-t"), Math.max(0, optionSeconds(command, "-ss")));
+        }
+
+        Process process = new ProcessBuilder(actualCommand).start();
+        processRef.set(process);
+        if (future.isCancelled()) {
+            process.destroyForcibly();
+        }
+        if (stdin == null) {
+            process.getOutputStream().close();
+        } else {
+            // 单独线程写入，进程先输出大量日志时也不会互相阻塞
+            drainers.execute(() -> {
+                try (OutputStream out = process.getOutputStream()) {
+                    out.write(stdin);
+                } catch (IOException e) {
+                    // 进程提前退出时管道已关闭，退出码会反映错误
+                }
+            });
+        }
+
+        ProgressParser progressParser = parser;
+        boolean stdoutProgress = progressOnStdout;
+        CompletableFuture<String> stderr = CompletableFuture.supplyAsync(
+                () -> drain(process.getErrorStream(), MAX_STDERR_CHARS, progressParser, !stdoutProgress), drainers);
+        String stdout = drain(process.getInputStream(), Integer.MAX_VALUE, progressParser, stdoutProgress);
+
+        int exitCode = process.waitFor();
+        String errorOutput;
+        try {
+            errorOutput = stderr.get();
+        } catch (ExecutionException e) {
+            errorOutput = "";
+        }
+        activeProgress.remove(jobId);
+        return new JobResult(command, exitCode, stdout, errorOutput, System.currentTimeMillis() - start,
+                lastProgress.get());
+    }
+
+    /**
+     * 推送进度给任务监听器和全局订阅者
+     */
+    private void publish(ProgressEvent event, ProgressListener listener) {
+        if (event.isEnd()) {
+            activeProgress.remove(event.getJobId());
+        } else {
+            activeProgress.put(event.getJobId(), event);
+        }
+        if (listener != null) {
+            notifyListener(listener, event);
+        }
+        for (ProgressListener subscriber : progressListeners) {
+            notifyListener(subscriber, event);
+        }
+    }
+
+    private static void notifyListener(ProgressListener listener, ProgressEvent event) {
+        try {
+            listener.onProgress(event);
+        } catch (RuntimeException e) {
+            // 监听器异常不能影响输出读取，否则进程会因管道写满而阻塞
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 按行读完整个输入流，超出上限时只保留尾部
+     * @param parser 进度解析器，可为null
+     * @param progressStream 该流是否承载 -progress 输出；否则只用来识别输入时长日志
+     */
+    private static String drain(InputStream in, int maxChars, ProgressParser parser, boolean progressStream) {
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (parser != null) {
+                    if (progressStream) {
+                        if (parser.accept(line)) {
+                            continue;
+                        }
+                    } else {
+                        parser.acceptLog(line);
+                    }
+                }
+                output.append(line).append('\n');
+                if (output.length() > maxChars) {
+                    output.delete(0, output.length() - maxChars);
+                }
+            }
+        } catch (IOException e) {
+            // 进程被强制结束时管道会关闭，已读到的内容仍然返回
+        }
+        return output.toString();
+    }
+
+    private static boolean isFFmpeg(List<String> command) {
+        if (command.isEmpty()) {
+            return false;
+        }
+        String executable = command.get(0);
+        String name = executable.substring(Math.max(executable.lastIndexOf('/'), executable.lastIndexOf('\\')) + 1);
+        return name.equals("ffmpeg") || name.equals("ffmpeg.exe");
+    }
+
+    /**
+     * 输出目标是否为标准输出（"-"、"pipe:"、"pipe:1"，且不是 -i 的参数）
+     */
+    private static boolean writesToStdout(List<String> command) {
+        for (int i = 1; i < command.size(); i++) {
+            String arg = command.get(i);
+            if ((arg.equals("-") || arg.equals("pipe:") || arg.equals("pipe:1")) && !command.get(i - 1).equals("-i")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取命令中第一个指定选项的时间值（秒），不存在时返回 -1
+     */
+    private static double optionSeconds(List<String> command, String option) {
+        int index = command.indexOf(option);
+        if (index < 0 || index + 1 >= command.size()) {
+            return -1;
+        }
+        return ProgressParser.parseTime(command.get(index + 1));
+    }
+
+    /**
+     * 将命令行字符串拆分为参数列表
+     * 按空白分隔；双引号内的空白不分隔且引号本身会被去掉；
+     * 单引号内的空白不分隔但保留引号，交给 ffmpeg 滤镜语法自行解析。
+     */
+    public static List<String> tokenize(String commandLine) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inDouble = false;
+        boolean inSingle = false;
+        boolean hasToken = false;
+
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (c == '"' && !inSingle) {
+                inDouble = !inDouble;
+                hasToken = true;
+            } else if (c == '\'' && !inDouble) {
+                inSingle = !inSingle;
+                current.append(c);
+                hasToken = true;
+            } else if (Character.isWhitespace(c) && !inDouble && !inSingle) {
+                if (hasToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    hasToken = false;
+                }
+            } else {
+                current.append(c);
+                hasToken = true;
+            }
+        }
+        if (hasToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * 停止接收新任务，已提交的任务会继续执行
+     */
+    public void shutdown() {
+        workers.shutdown();
+        drainers.shutdown();
+    }
+
+    public int getMaxConcurrentJobs() { return maxConcurrentJobs; }
+    public int getActiveJobs() { return workers.getActiveCount(); }
+    public int getQueuedJobs() { return workers.getQueue().size(); }
+
+    /**
+     * 订阅所有任务的进度
+     */
+    public void addProgressListener(ProgressListener listener) {
+        progressListeners.add(listener);
+    }
+
+    public void removeProgressListener(ProgressListener listener) {
+        progressListeners.remove(listener);
+    }
+
+    /**
+     * 正在运行的任务及其最新进度快照，可用于发现低速任务或作为扩缩容依据
+     * @return jobId -> 最新进度
+     */
+    public Map<Long, ProgressEvent> getActiveProgress() {
+        return new HashMap<>(activeProgress);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
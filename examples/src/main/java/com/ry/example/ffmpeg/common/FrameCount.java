@@ -0,0 +1,38 @@
+package com.ry.example.ffmpeg.common;
+
+/**
+ * 帧数统计结果（不可变）：帧数以及得到该数值的方式
+ */
+public final class FrameCount {
+
+    /**
+     * 帧数来源，按开销从低到高排列
+     */
+    public enum Method {
+        CONTAINER,   // 容器索引中记录的 nb_frames，无需读取数据
+        PACKETS,     // -count_packets 统计数据包，只解封装不解码
+        DECODE,      // -count_frames 逐帧解码，最准确也最慢
+        UNKNOWN      // 无法获取
+    }
+
+    private final long frames;
+    private final Method method;
+
+    public FrameCount(long frames, Method method) {
+        this.frames = frames;
+        this.method = method;
+    }
+
+    /** 帧数，未知时为 -1 */
+    public long getFrames() { return frames; }
+    public Method getMethod() { return method; }
+
+    public boolean isKnown() {
+        return method != Method.UNKNOWN && frames >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return isKnown() ? frames + " (" + method + ")" : "Unknown";
+    }
+}
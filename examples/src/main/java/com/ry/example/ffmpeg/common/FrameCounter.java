@@ -0,0 +1,61 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+
+/**
+ * 视频帧数统计
+ * -count_frames 需要解码全部帧，长时间的4K视频要跑几分钟；
+ * 默认依次尝试容器记录的 nb_frames 和 -count_packets（只解封装），都拿不到时才解码。
+ */
+public final class FrameCounter {
+
+    private FrameCounter() {
+    }
+
+    /**
+     * 统计第一个视频流的帧数，优先使用开销最低的方式
+     * @param path 视频文件路径
+     * @return 帧数及来源
+     */
+    public static FrameCount count(String path) throws IOException, InterruptedException {
+        return count(path, false);
+    }
+
+    /**
+     * 统计第一个视频流的帧数
+     * @param path 视频文件路径
+     * @param exactDecode 为true时直接逐帧解码（对可变帧率或索引不可信的文件最准确）
+     * @return 帧数及来源
+     */
+    public static FrameCount count(String path, boolean exactDecode) throws IOException, InterruptedException {
+        if (!exactDecode) {
+            StreamInfo video = MediaProbe.probe(path).getVideoStream();
+            if (video == null) {
+                return new FrameCount(-1, FrameCount.Method.UNKNOWN);
+            }
+            if (video.getNbFrames() > 0) {
+                return new FrameCount(video.getNbFrames(), FrameCount.Method.CONTAINER);
+            }
+            long packets = readCount(path, "-count_packets", "nb_read_packets");
+            if (packets > 0) {
+                return new FrameCount(packets, FrameCount.Method.PACKETS);
+            }
+        }
+        long frames = readCount(path, "-count_frames", "nb_read_frames");
+        if (frames >= 0) {
+            return new FrameCount(frames, FrameCount.Method.DECODE);
+        }
+        return new FrameCount(-1, FrameCount.Method.UNKNOWN);
+    }
+
+    private static long readCount(String path, String countOption, String entry)
+            throws IOException, InterruptedException {
+        String[] command = {"ffprobe", "-v", "error", "-select_streams", "v:0", countOption,
+                           "-show_entries", "stream=" + entry, "-of", "csv=p=0", path};
+        JobResult result = FFmpegExecutor.getDefault().execute(command);
+        if (!result.isSuccess()) {
+            return -1;
+        }
+        return StreamInfo.parseLong(result.getFirstLine());
+    }
+}
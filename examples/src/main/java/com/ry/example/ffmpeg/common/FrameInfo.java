@@ -0,0 +1,83 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ffprobe -show_frames 输出的单帧信息（不可变）
+ * 原始字段按 ffprobe 的 key 保存，常用字段提供类型化的访问方法
+ */
+public final class FrameInfo {
+    private final Map<String, String> properties;
+
+    private final String mediaType;
+    private final int streamIndex;
+    private final boolean keyFrame;
+    private final double ptsTime;
+    private final double durationTime;
+    private final long packetSize;
+    private final String pictType;
+    private final int width;
+    private final int height;
+
+    /**
+     * @param properties ffprobe 输出的字段（如 key_frame、pts_time、pict_type）
+     */
+    public FrameInfo(Map<String, String> properties) {
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+
+        this.mediaType = properties.getOrDefault("media_type", "");
+        this.streamIndex = (int) StreamInfo.parseLong(properties.get("stream_index"));
+        this.keyFrame = "1".equals(properties.get("key_frame"));
+        this.ptsTime = StreamInfo.parseDouble(properties.containsKey("pts_time")
+                ? properties.get("pts_time") : properties.get("best_effort_timestamp_time"));
+        this.durationTime = StreamInfo.parseDouble(properties.get("duration_time"));
+        this.packetSize = StreamInfo.parseLong(properties.get("pkt_size"));
+        this.pictType = properties.getOrDefault("pict_type", "");
+        this.width = (int) StreamInfo.parseLong(properties.get("width"));
+        this.height = (int) StreamInfo.parseLong(properties.get("height"));
+    }
+
+    /**
+     * 读取任意原始字段
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public Map<String, String> getProperties() { return properties; }
+    public String getMediaType() { return mediaType; }
+    public int getStreamIndex() { return streamIndex; }
+    public boolean isKeyFrame() { return keyFrame; }
+    /** 显示时间（秒），未知时为 -1 */
+    public double getPtsTime() { return ptsTime; }
+    /** 帧时长（秒），未知时为 -1 */
+    public double getDurationTime() { return durationTime; }
+    /** 对应数据包大小（字节），未知时为 -1 */
+    public long getPacketSize() { return packetSize; }
+    /** 图像类型 I/P/B，音频帧为空 */
+    public String getPictType() { return pictType; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(mediaType).append(" #").append(streamIndex)
+          .append(" pts=").append(String.format("%.3f", ptsTime));
+        if (!pictType.isEmpty()) {
+            sb.append(' ').append(pictType);
+        }
+        if (keyFrame) {
+            sb.append(" key");
+        }
+        if (width > 0) {
+            sb.append(' ').append(width).append('x').append(height);
+        }
+        if (packetSize >= 0) {
+            sb.append(" size=").append(packetSize);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,457 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * ID3v2.3/2.4 标签读写，不经过 ffmpeg、不重新封装音频
+ * 读取时只读标签本身；写回时新标签不超过原标签占用的空间（帧 + 填充）就原地覆盖文件开头，音频数据一个字节都不动；
+ * 放不下时重写文件：新标签后留出较大的填充（默认 16KB，之后的修改都可以原地完成），
+ * 音频数据用 {@link FileChannel#transferTo} 从原文件流式复制到同目录的临时文件，再替换原文件。
+ *
+ * 未修改的帧（封面、歌词、私有帧等）按原始字节保留；文本帧写入时 v2.4 使用 UTF-8，v2.3 使用带 BOM 的 UTF-16。
+ * v2.4 标签中按普通整数（而不是同步安全整数）写帧长度的文件（旧版 iTunes 等）按实际能接上下一帧的长度解析；
+ * 仍然无法解析的帧及其后的内容不是全零时原样保留在写回的帧之后，不会因为解析失败而丢掉封面等数据。
+ * 原文件没有标签时创建 v2.3 标签（兼容性最好）；ID3v2.2 不支持。
+ *
+ * 用法：
+ * <pre>
+ * Id3Tag tag = Id3Tag.read("song.mp3");
+ * tag.setText(Id3Tag.TITLE, "标题").setText(Id3Tag.ARTIST, "艺术家");
+ * boolean inPlace = tag.write("song.mp3");
+ * </pre>
+ */
+public class Id3Tag {
+
+    public static final String TITLE = "TIT2";
+    public static final String ARTIST = "TPE1";
+    public static final String ALBUM = "TALB";
+    public static final String TRACK = "TRCK";
+    public static final String GENRE = "TCON";
+    /** v2.4 的录制时间，v2.3 中对应 TYER */
+    public static final String RECORDING_TIME = "TDRC";
+
+    /** 重写文件时默认留出的填充字节数 */
+    public static final int DEFAULT_PADDING = 16 * 1024;
+
+    private static final int HEADER_SIZE = 10;
+    private static final int FLAG_UNSYNCHRONISATION = 0x80;
+    private static final int FLAG_EXTENDED_HEADER = 0x40;
+    private static final int FLAG_FOOTER = 0x10;
+
+    private final int majorVersion;
+    private final List<Frame> frames = new ArrayList<>();
+    /** 解析停止处之后的非填充内容，写回时原样附在帧之后 */
+    private byte[] unparsed = new byte[0];
+    private int padding = DEFAULT_PADDING;
+
+    private Id3Tag(int majorVersion) {
+        this.majorVersion = majorVersion;
+    }
+
+    /**
+     * 创建空的 v2.3 标签
+     */
+    public static Id3Tag create() {
+        return new Id3Tag(3);
+    }
+
+    /**
+     * 读取文件开头的 ID3v2 标签，没有标签时返回空的 v2.3 标签
+     * @throws IOException 读取失败或标签版本不支持（v2.2）
+     */
+    public static Id3Tag read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(channel);
+            if (header == null) {
+                return create();
+            }
+            int version = header.get(3);
+            if (version != 3 && version != 4) {
+                throw new IOException("不支持的ID3v2版本 2." + version + ": " + path);
+            }
+            int flags = header.get(5) & 0xFF;
+            ByteBuffer body = ByteBuffer.allocate(syncsafe(header, 6));
+            readFully(channel, HEADER_SIZE, body);
+            byte[] data = body.array();
+            if (version == 3 && (flags & FLAG_UNSYNCHRONISATION) != 0) {
+                data = resynchronise(data);
+            }
+            int position = 0;
+            if ((flags & FLAG_EXTENDED_HEADER) != 0 && data.length >= 4) {
+                // v2.3 的扩展头长度不含自身 4 字节，v2.4 为同步安全整数且包含自身
+                position = version == 3 ? 4 + ByteBuffer.wrap(data).getInt() : syncsafe(ByteBuffer.wrap(data), 0);
+            }
+            Id3Tag tag = new Id3Tag(version);
+            tag.parseFrames(data, position);
+            return tag;
+        }
+    }
+
+    /**
+     * 依次解析帧，遇到全零填充时结束；遇到无法解析的帧时停止，从该处起不是全零的内容保存到 unparsed
+     */
+    private void parseFrames(byte[] data, int position) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (position + HEADER_SIZE <= data.length && data[position] != 0) {
+            String id = new String(data, position, 4, StandardCharsets.ISO_8859_1);
+            int size = frameSize(data, position);
+            if (size < 0 || !isFrameId(id)) {
+                break;
+            }
+            byte[] content = new byte[size];
+            System.arraycopy(data, position + HEADER_SIZE, content, 0, size);
+            frames.add(new Frame(id, buffer.getShort(position + 8), content));
+            position += HEADER_SIZE + size;
+        }
+        int end = data.length;
+        while (end > position && data[end - 1] == 0) {
+            end--;
+        }
+        if (end > position) {
+            unparsed = new byte[end - position];
+            System.arraycopy(data, position, unparsed, 0, unparsed.length);
+        }
+    }
+
+    /**
+     * 帧内容长度；v2.4 按同步安全整数读出的长度接不上下一帧、按普通整数可以时使用后者。超出标签时返回 -1
+     */
+    private int frameSize(byte[] data, int position) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int plain = buffer.getInt(position + 4);
+        if (majorVersion != 4) {
+            return fitsFrame(data, position, plain) ? plain : -1;
+        }
+        int size = syncsafe(buffer, position + 4);
+        if (size != plain && !nextIsFrameOrEnd(data, position + HEADER_SIZE + size)
+                && nextIsFrameOrEnd(data, position + HEADER_SIZE + (long) plain)) {
+            return plain;
+        }
+        return fitsFrame(data, position, size) ? size : -1;
+    }
+
+    private static boolean fitsFrame(byte[] data, int position, int size) {
+        return size >= 0 && position + HEADER_SIZE + (long) size <= data.length;
+    }
+
+    /**
+     * 该位置是标签末尾、填充或一个帧 ID
+     */
+    private static boolean nextIsFrameOrEnd(byte[] data, long position) {
+        if (position < 0 || position > data.length) {
+            return false;
+        }
+        if (position == data.length || data[(int) position] == 0) {
+            return true;
+        }
+        return position + HEADER_SIZE <= data.length
+                && isFrameId(new String(data, (int) position, 4, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * 文本帧的内容（多个值之间用 "/" 连接），没有该帧或帧被压缩/加密时返回 null
+     */
+    public String getText(String frameId) {
+        Frame frame = find(versioned(frameId));
+        if (frame == null || frame.data.length == 0 || !frameId.startsWith("T") || frame.isEncoded(majorVersion)) {
+            return null;
+        }
+        int encoding = frame.data[0];
+        String text = new String(frame.data, 1, frame.data.length - 1, charset(encoding));
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == 0) {
+            end--;
+        }
+        return text.substring(0, end).replace('\u0000', '/');
+    }
+
+    /**
+     * 设置文本帧，value 为 null 时删除该帧
+     */
+    public Id3Tag setText(String frameId, String value) {
+        if (!frameId.startsWith("T") || !isFrameId(frameId)) {
+            throw new IllegalArgumentException("不是文本帧: " + frameId);
+        }
+        if (value == null) {
+            return remove(frameId);
+        }
+        frameId = versioned(frameId);
+        byte encoding = (byte) (majorVersion == 4 ? 3 : 1);
+        byte[] text = value.getBytes(charset(encoding));
+        byte[] data = new byte[1 + text.length];
+        data[0] = encoding;
+        System.arraycopy(text, 0, data, 1, text.length);
+        Frame frame = find(frameId);
+        if (frame != null) {
+            frame.data = data;
+            frame.flags = 0;
+        } else {
+            frames.add(new Frame(frameId, (short) 0, data));
+        }
+        return this;
+    }
+
+    /**
+     * 删除指定 ID 的所有帧
+     */
+    public Id3Tag remove(String frameId) {
+        frameId = versioned(frameId);
+        for (Iterator<Frame> it = frames.iterator(); it.hasNext(); ) {
+            if (it.next().id.equals(frameId)) {
+                it.remove();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 重写文件时留出的填充字节数
+     */
+    public Id3Tag padding(int bytes) {
+        this.padding = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * 写回原文件
+     * @return true 为原地覆盖（只写了标签），false 为重写了整个文件
+     */
+    public boolean write(String path) throws IOException {
+        return write(path, path);
+    }
+
+    /**
+     * 把 source 的音频数据加上当前标签写到 target；两者相同时优先原地覆盖
+     * @return true 为原地覆盖，false 为写出了新文件
+     * @throws IOException 读写失败，或 source 的标签版本不支持
+     */
+    public boolean write(String source, String target) throws IOException {
+        byte[] body = serializeFrames();
+        Path sourcePath = Paths.get(source);
+        Path targetPath = Paths.get(target);
+        boolean samePath = Files.exists(targetPath) && Files.isSameFile(sourcePath, targetPath);
+
+        long audioStart;
+        try (FileChannel in = samePath
+                ? FileChannel.open(sourcePath, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(sourcePath, StandardOpenOption.READ)) {
+            ByteBuffer header = readHeader(in);
+            long space = 0;
+            if (header != null) {
+                if (header.get(3) != 3 && header.get(3) != 4) {
+                    throw new IOException("不支持的ID3v2版本 2." + header.get(3) + ": " + source);
+                }
+                boolean footer = header.get(3) == 4 && (header.get(5) & FLAG_FOOTER) != 0;
+                space = syncsafe(header, 6);
+                audioStart = HEADER_SIZE + space + (footer ? HEADER_SIZE : 0);
+                // 带标签尾的 v2.4 标签不允许填充，只能重写
+                if (samePath && !footer && body.length <= space) {
+                    ByteBuffer tag = ByteBuffer.allocate(HEADER_SIZE + (int) space);
+                    putHeader(tag, (int) space);
+                    tag.put(body).position(0);
+                    SignalGenerator.writeFully(in, tag);
+                    in.force(false);
+                    return true;
+                }
+            } else {
+                audioStart = 0;
+            }
+        }
+
+        int size = body.length + padding;
+        ByteBuffer tag = ByteBuffer.allocate(HEADER_SIZE + size);
+        putHeader(tag, size);
+        tag.put(body).position(0);
+        Path output = samePath ? targetPath.resolveSibling(targetPath.getFileName() + ".id3tmp") : targetPath;
+        try (FileChannel in = FileChannel.open(sourcePath, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SignalGenerator.writeFully(out, tag);
+            long count = in.size() - audioStart;
+            long done = 0;
+            while (done < count) {
+                long n = in.transferTo(audioStart + done, count - done, out);
+                if (n <= 0) {
+                    throw new IOException("输入文件在写入过程中被截断: " + source);
+                }
+                done += n;
+            }
+            out.force(false);
+        } catch (IOException e) {
+            if (samePath) {
+                Files.deleteIfExists(output);
+            }
+            throw e;
+        }
+        if (samePath) {
+            try {
+                Files.move(output, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(output, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return false;
+    }
+
+    public int getMajorVersion() { return majorVersion; }
+
+    /** 帧 ID 列表（按文件中的顺序，可能重复） */
+    public List<String> getFrameIds() {
+        List<String> ids = new ArrayList<>();
+        for (Frame frame : frames) {
+            ids.add(frame.id);
+        }
+        return ids;
+    }
+
+    /**
+     * v2.3 没有 TDRC，年份保存在 TYER
+     */
+    private String versioned(String frameId) {
+        return majorVersion == 3 && RECORDING_TIME.equals(frameId) ? "TYER" : frameId;
+    }
+
+    private Frame find(String frameId) {
+        for (Frame frame : frames) {
+            if (frame.id.equals(frameId)) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 帧之后附上读取时无法解析的内容，保证写回不丢数据
+     */
+    private byte[] serializeFrames() {
+        int total = unparsed.length;
+        for (Frame frame : frames) {
+            total += HEADER_SIZE + frame.data.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (Frame frame : frames) {
+            buffer.put(frame.id.getBytes(StandardCharsets.ISO_8859_1));
+            if (majorVersion == 4) {
+                putSyncsafe(buffer, frame.data.length);
+            } else {
+                buffer.putInt(frame.data.length);
+            }
+            buffer.putShort(frame.flags).put(frame.data);
+        }
+        buffer.put(unparsed);
+        return buffer.array();
+    }
+
+    /**
+     * 标签头：不使用不同步、扩展头和标签尾
+     */
+    private void putHeader(ByteBuffer buffer, int size) {
+        buffer.put((byte) 'I').put((byte) 'D').put((byte) '3').put((byte) majorVersion).put((byte) 0).put((byte) 0);
+        putSyncsafe(buffer, size);
+    }
+
+    /**
+     * 读取标签头，文件开头不是 ID3v2 标签时返回 null
+     */
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, 0, header);
+        if (header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3') {
+            return null;
+        }
+        return header;
+    }
+
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("ID3标签不完整");
+            }
+        }
+    }
+
+    private static int syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    private static void putSyncsafe(ByteBuffer buffer, int value) {
+        buffer.put((byte) ((value >>> 21) & 0x7F)).put((byte) ((value >>> 14) & 0x7F))
+              .put((byte) ((value >>> 7) & 0x7F)).put((byte) (value & 0x7F));
+    }
+
+    /**
+     * 去掉不同步插入的字节：0xFF 0x00 还原为 0xFF
+     */
+    private static byte[] resynchronise(byte[] data) {
+        byte[] result = new byte[data.length];
+        int n = 0;
+        for (int i = 0; i < data.length; i++) {
+            result[n++] = data[i];
+            if (data[i] == (byte) 0xFF && i + 1 < data.length && data[i + 1] == 0) {
+                i++;
+            }
+        }
+        byte[] trimmed = new byte[n];
+        System.arraycopy(result, 0, trimmed, 0, n);
+        return trimmed;
+    }
+
+    private static boolean isFrameId(String id) {
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Charset charset(int encoding) {
+        switch (encoding) {
+            case 1: return StandardCharsets.UTF_16;
+            case 2: return StandardCharsets.UTF_16BE;
+            case 3: return StandardCharsets.UTF_8;
+            default: return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    /**
+     * 一个标签帧：ID、标志和原始内容
+     */
+    private static final class Frame {
+        final String id;
+        short flags;
+        byte[] data;
+
+        Frame(String id, short flags, byte[] data) {
+            this.id = id;
+            this.flags = flags;
+            this.data = data;
+        }
+
+        /**
+         * 帧内容经过压缩、加密或不同步，不能直接按文本解析
+         */
+        boolean isEncoded(int majorVersion) {
+            int format = flags & 0xFF;
+            return majorVersion == 4 ? (format & 0x0F) != 0 : (format & 0xE0) != 0;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FFmpeg/FFprobe 任务执行结果
+ * 保存退出码、标准输出、标准错误（尾部）、耗时以及最后的进度快照
+ */
+public final class JobResult {
+    private final List<String> command;
+    private final int exitCode;
+    private final String stdout;
+    private final String stderr;
+    private final long elapsedMillis;
+    private final ProgressEvent lastProgress;
+
+    public JobResult(List<String> command, int exitCode, String stdout, String stderr, long elapsedMillis,
+                     ProgressEvent lastProgress) {
+        this.command = Collections.unmodifiableList(new ArrayList<>(command));
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.elapsedMillis = elapsedMillis;
+        this.lastProgress = lastProgress;
+    }
+
+    /**
+     * 是否执行成功（退出码为0）
+     */
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    /**
+     * 标准输出按行拆分（去掉空行）
+     */
+    public List<String> getStdoutLines() {
+        List<String> lines = new ArrayList<>();
+        for (String line : stdout.split("\\r?\\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 标准输出第一行，没有输出时返回null
+     */
+    public String getFirstLine() {
+        List<String> lines = getStdoutLines();
+        return lines.isEmpty() ? null : lines.get(0);
+    }
+
+    public List<String> getCommand() { return command; }
+    public int getExitCode() { return exitCode; }
+    public String getStdout() { return stdout; }
+    public String getStderr() { return stderr; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    /** 最后一次进度快照，非 ffmpeg 命令或进程未输出进度时为 null */
+    public ProgressEvent getLastProgress() { return lastProgress; }
+
+    @Override
+    public String toString() {
+        return "JobResult{exitCode=" + exitCode + ", elapsed=" + elapsedMillis + "ms, command="
+                + String.join(" ", command) + "}";
+    }
+}
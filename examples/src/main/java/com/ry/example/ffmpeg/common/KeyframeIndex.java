@@ -0,0 +1,302 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 关键帧索引
+ * 扫描一次视频流的全部数据包（只解封装），记录每帧的 pts、dts、字节偏移和关键帧标记，
+ * 保存为与源文件同名的 .kfi 二进制文件，之后加载时直接内存映射，
+ * 可在 O(log n) 内查到"t 时刻及之前最近的关键帧"以及第 N 帧的准确时间。
+ *
+ * 文件格式（大端）：
+ * <pre>
+ * 头部 48 字节: "KFIX" 版本(int) 源文件大小(long) 源文件修改时间(long)
+ *              时间基准分子(int) 分母(int) 帧数(int) 关键帧数(int) 保留(8字节)
+ * 帧表:        帧数 × 28 字节，按 pts 排序 {pts(long) dts(long) 偏移(long) 标记(int)}
+ * 关键帧表:    关键帧数 × 4 字节，关键帧在帧表中的序号
+ * </pre>
+ */
+public final class KeyframeIndex {
+
+    /** 索引文件扩展名 */
+    public static final String SIDECAR_SUFFIX = ".kfi";
+
+    private static final int MAGIC = 0x4B464958; // "KFIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 48;
+    private static final int FRAME_BYTES = 28;
+    private static final int FLAG_KEY = 1;
+
+    private final ByteBuffer buffer;
+    private final long timeBaseNum;
+    private final long timeBaseDen;
+    private final int frameCount;
+    private final int keyframeCount;
+    private final int keyframeTableOffset;
+
+    private KeyframeIndex(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("不是有效的关键帧索引");
+        }
+        this.buffer = buffer;
+        this.timeBaseNum = buffer.getInt(24);
+        this.timeBaseDen = buffer.getInt(28);
+        this.frameCount = buffer.getInt(32);
+        this.keyframeCount = buffer.getInt(36);
+        this.keyframeTableOffset = HEADER_BYTES + frameCount * FRAME_BYTES;
+        if (timeBaseNum <= 0 || timeBaseDen <= 0
+                || buffer.capacity() < keyframeTableOffset + keyframeCount * 4) {
+            throw new IllegalArgumentException("关键帧索引已损坏");
+        }
+    }
+
+    /**
+     * 获取视频的关键帧索引：索引文件存在且与源文件大小、修改时间一致时直接映射，否则重新扫描并保存
+     * @param videoPath 视频文件路径
+     * @throws IOException 扫描失败
+     * @throws InterruptedException 等待 ffprobe 时线程被中断
+     */
+    public static KeyframeIndex forFile(String videoPath) throws IOException, InterruptedException {
+        File source = new File(videoPath);
+        File sidecar = new File(videoPath + SIDECAR_SUFFIX);
+        if (sidecar.isFile()) {
+            try {
+                KeyframeIndex index = map(sidecar);
+                if (index.matches(source)) {
+                    return index;
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("关键帧索引无效，重新生成: " + sidecar + " - " + e.getMessage());
+            }
+        }
+
+        KeyframeIndex index = build(videoPath);
+        try {
+            index.save(sidecar);
+        } catch (IOException e) {
+            // 目录不可写时只在内存中使用
+            System.err.println("保存关键帧索引失败: " + sidecar + " - " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * 扫描第一个视频流的数据包生成索引（不读取也不写入索引文件）
+     */
+    public static KeyframeIndex build(String videoPath) throws IOException, InterruptedException {
+        StreamInfo video = MediaProbe.probe(videoPath).getVideoStream();
+        if (video == null) {
+            throw new IOException("没有视频流: " + videoPath);
+        }
+        Rational timeBase = video.getTimeBase();
+        if (!timeBase.isValid()) {
+            throw new IOException("无法获取视频时间基准: " + videoPath);
+        }
+
+        List<long[]> frames = new ArrayList<>();
+        try (Stream<PacketInfo> packets = ProbeStreams.packets(videoPath, "v:0", null)) {
+            packets.forEach(packet -> {
+                long pts = packet.getPts() != -1 ? packet.getPts() : packet.getDts();
+                frames.add(new long[] {pts, packet.getDts(), packet.getPos(), packet.isKeyFrame() ? FLAG_KEY : 0});
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        frames.sort(Comparator.comparingLong(frame -> frame[0]));
+
+        int keyframes = 0;
+        for (long[] frame : frames) {
+            if ((frame[3] & FLAG_KEY) != 0) {
+                keyframes++;
+            }
+        }
+
+        File source = new File(videoPath);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + frames.size() * FRAME_BYTES + keyframes * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(source.length()).putLong(source.lastModified())
+              .putInt((int) timeBase.getNum()).putInt((int) timeBase.getDen())
+              .putInt(frames.size()).putInt(keyframes).putLong(0);
+        for (long[] frame : frames) {
+            buffer.putLong(frame[0]).putLong(frame[1]).putLong(frame[2]).putInt((int) frame[3]);
+        }
+        for (int i = 0; i < frames.size(); i++) {
+            if ((frames.get(i)[3] & FLAG_KEY) != 0) {
+                buffer.putInt(i);
+            }
+        }
+        buffer.flip();
+        return new KeyframeIndex(buffer);
+    }
+
+    private static KeyframeIndex map(File sidecar) throws IOException {
+        try (FileChannel channel = FileChannel.open(sidecar.toPath(), StandardOpenOption.READ)) {
+            return new KeyframeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private boolean matches(File source) {
+        return buffer.getLong(8) == source.length() && buffer.getLong(16) == source.lastModified();
+    }
+
+    /**
+     * 写入索引文件：先写同目录下名字唯一的临时文件再原子改名，多个进程同时为同一视频建索引时不会互相覆盖出损坏的文件
+     */
+    public void save(File sidecar) throws IOException {
+        Path directory = sidecar.getAbsoluteFile().toPath().getParent();
+        Path temp = Files.createTempFile(directory, sidecar.getName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer data = buffer.duplicate();
+                data.clear();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temp, sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    public int getFrameCount() { return frameCount; }
+    public int getKeyframeCount() { return keyframeCount; }
+
+    /**
+     * 第一帧的显示时间（秒），视频流的起始时间
+     */
+    public double getStartTime() {
+        return frameCount == 0 ? 0.0 : toSeconds(pts(0));
+    }
+
+    /**
+     * 按显示顺序第 frameNumber 帧的时间（秒）
+     * @throws IndexOutOfBoundsException 帧号超出范围
+     */
+    public double getFrameTime(int frameNumber) {
+        if (frameNumber < 0 || frameNumber >= frameCount) {
+            throw new IndexOutOfBoundsException("帧号超出范围: " + frameNumber + " / " + frameCount);
+        }
+        return toSeconds(pts(frameNumber));
+    }
+
+    /**
+     * 按帧号查找跳转用的时间戳：用关键帧索引得到该帧的准确时间戳，可变帧率的视频也不会因按平均帧率换算而偏移
+     * @return 相对视频起点的时间戳（微秒），索引无法生成或帧号超出范围时返回 -1，调用方应退回按帧号跳转
+     * @throws InterruptedException 等待 ffprobe 时线程被中断
+     */
+    public static long frameTimestampMicros(String videoPath, int frameNumber) throws InterruptedException {
+        try {
+            KeyframeIndex index = forFile(videoPath);
+            if (frameNumber >= 0 && frameNumber < index.getFrameCount()) {
+                return index.getFrameTimestampMicros(frameNumber);
+            }
+        } catch (IOException e) {
+            System.err.println("无法生成关键帧索引: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * 第 frameNumber 帧相对视频起点的时间戳（微秒），可直接用于 FFmpegFrameGrabber.setTimestamp
+     */
+    public long getFrameTimestampMicros(int frameNumber) {
+        return Math.round((getFrameTime(frameNumber) - getStartTime()) * 1_000_000L);
+    }
+
+    /**
+     * t 时刻及之前最近的关键帧时间（秒）；t 早于第一个关键帧时返回第一个关键帧
+     * @param seconds 时间（秒，与 ffprobe 的 pts_time 同一时间轴）
+     */
+    public double keyframeAtOrBefore(double seconds) {
+        int frame = keyframeFrameAtOrBefore(seconds);
+        return frame < 0 ? seconds : toSeconds(pts(frame));
+    }
+
+    /**
+     * t 时刻及之后最近的关键帧时间（秒）；没有时返回 -1
+     */
+    public double keyframeAtOrAfter(double seconds) {
+        int k = searchKeyframe(seconds);
+        if (k < 0) {
+            k = 0;
+        } else if (toSeconds(pts(keyframeFrame(k))) < seconds) {
+            k++;
+        }
+        return k < keyframeCount ? toSeconds(pts(keyframeFrame(k))) : -1;
+    }
+
+    /**
+     * t 时刻及之前最近的关键帧在文件中的字节偏移，未知时为 -1
+     */
+    public long keyframePositionAtOrBefore(double seconds) {
+        int frame = keyframeFrameAtOrBefore(seconds);
+        return frame < 0 ? -1 : buffer.getLong(HEADER_BYTES + frame * FRAME_BYTES + 16);
+    }
+
+    /**
+     * 从 t 之前最近的关键帧解码到 t 需要经过的帧数，用于估算精确切割的解码开销
+     */
+    public int framesToDecode(double seconds) {
+        int frame = keyframeFrameAtOrBefore(seconds);
+        if (frame < 0) {
+            return 0;
+        }
+        int count = 0;
+        for (int i = frame; i < frameCount && toSeconds(pts(i)) < seconds; i++) {
+            count++;
+        }
+        return count;
+    }
+
+    private int keyframeFrameAtOrBefore(double seconds) {
+        if (keyframeCount == 0) {
+            return -1;
+        }
+        int k = searchKeyframe(seconds);
+        return keyframeFrame(Math.max(k, 0));
+    }
+
+    /**
+     * 二分查找 pts 不大于 seconds 的最后一个关键帧，全部大于时返回 -1
+     */
+    private int searchKeyframe(double seconds) {
+        int low = 0;
+        int high = keyframeCount - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (toSeconds(pts(keyframeFrame(mid))) <= seconds) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private int keyframeFrame(int keyframe) {
+        return buffer.getInt(keyframeTableOffset + keyframe * 4);
+    }
+
+    private long pts(int frame) {
+        return buffer.getLong(HEADER_BYTES + frame * FRAME_BYTES);
+    }
+
+    private double toSeconds(long pts) {
+        return (double) pts * timeBaseNum / timeBaseDen;
+    }
+}
@@ -0,0 +1,280 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 响度测量缓存
+ * 两遍标准化中第一遍（完整解码并计算 EBU R128 响度）是主要开销，测量结果只取决于音频内容，
+ * 因此以文件内容的 SHA-256 为键：同一素材换一个目标响度重新标准化、文件被复制或改名，都不必再次测量。
+ *
+ * 内容哈希本身按 路径 + 大小 + 修改时间 记忆，文件未变化时不重复读取；
+ * 测量结果在内存中保留最近使用的有限条目（LRU），可选地写入磁盘目录，进程重启后仍可命中。
+ */
+public class LoudnessCache {
+
+    /** 内存缓存条目数上限，例如 -Dffmpeg.loudnessCache.maxEntries=1024 */
+    public static final String MAX_ENTRIES_PROPERTY = "ffmpeg.loudnessCache.maxEntries";
+
+    /** 磁盘缓存目录，未设置时只使用内存缓存，例如 -Dffmpeg.loudnessCache.dir=/tmp/loudness-cache */
+    public static final String DIR_PROPERTY = "ffmpeg.loudnessCache.dir";
+
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+    private static final String DISK_SUFFIX = ".loudness";
+
+    /** 计算哈希时每次映射的字节数 */
+    private static final long HASH_CHUNK_BYTES = 16L * 1024 * 1024;
+
+    private static volatile LoudnessCache defaultCache;
+
+    private final int maxEntries;
+    private final File diskDirectory;
+    private final Map<String, LoudnessMeasurement> measurements;
+    private final Map<String, HashEntry> hashes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 创建缓存
+     * @param maxEntries 内存中最多保留的条目数
+     * @param diskDirectory 磁盘缓存目录，为null时不落盘
+     */
+    public LoudnessCache(int maxEntries, File diskDirectory) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries必须大于0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.diskDirectory = diskDirectory;
+        this.measurements = lruMap();
+        this.hashes = lruMap();
+        if (diskDirectory != null) {
+            diskDirectory.mkdirs();
+        }
+    }
+
+    /**
+     * 获取全局共享的缓存
+     */
+    public static LoudnessCache getDefault() {
+        LoudnessCache cache = defaultCache;
+        if (cache == null) {
+            synchronized (LoudnessCache.class) {
+                cache = defaultCache;
+                if (cache == null) {
+                    int maxEntries = Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
+                    String dir = System.getProperty(DIR_PROPERTY);
+                    cache = new LoudnessCache(maxEntries, dir == null || dir.isEmpty() ? null : new File(dir));
+                    defaultCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 获取文件的响度测量结果，缓存未命中时运行 loudnorm 测量（只处理第一条音频流）
+     * @param path 本地文件路径
+     * @throws IOException 文件不存在、ffmpeg 执行失败或输出无法解析
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public LoudnessMeasurement get(String path) throws IOException, InterruptedException {
+        String hash = contentHash(path);
+
+        synchronized (measurements) {
+            LoudnessMeasurement measurement = measurements.get(hash);
+            if (measurement != null) {
+                hits.incrementAndGet();
+                return measurement;
+            }
+        }
+
+        LoudnessMeasurement measurement = readDisk(hash);
+        if (measurement != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            measurement = measure(path);
+            writeDisk(hash, measurement);
+        }
+
+        synchronized (measurements) {
+            measurements.put(hash, measurement);
+        }
+        return measurement;
+    }
+
+    /**
+     * 跳过缓存，直接运行 loudnorm 测量
+     */
+    public static LoudnessMeasurement measure(String path) throws IOException, InterruptedException {
+        String[] command = {"ffmpeg", "-hide_banner", "-nostats", "-i", path, "-map", "0:a:0",
+                           "-af", "loudnorm=print_format=json", "-f", "null", "-"};
+        JobResult result = FFmpegExecutor.getDefault().execute(command);
+        if (!result.isSuccess()) {
+            throw new IOException("响度测量失败(" + result.getExitCode() + "): " + path
+                    + "\n" + result.getStderr().trim());
+        }
+        try {
+            return LoudnessMeasurement.parse(result.getStderr());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("无法解析loudnorm输出: " + path, e);
+        }
+    }
+
+    /**
+     * 文件内容的 SHA-256（十六进制），按块内存映射读取；
+     * 路径、大小和修改时间都未变化时直接返回上次的结果
+     * @throws IOException 文件不存在或读取失败
+     */
+    public String contentHash(String path) throws IOException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new IOException("文件不存在: " + path);
+        }
+        String key = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        synchronized (hashes) {
+            HashEntry entry = hashes.get(key);
+            if (entry != null && entry.matches(size, lastModified)) {
+                return entry.hash;
+            }
+        }
+
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            for (long position = 0; position < length; position += HASH_CHUNK_BYTES) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(HASH_CHUNK_BYTES, length - position));
+                digest.update(chunk);
+            }
+        }
+        String hash = hex(digest.digest());
+
+        synchronized (hashes) {
+            hashes.put(key, new HashEntry(size, lastModified, hash));
+        }
+        return hash;
+    }
+
+    /**
+     * 清空内存缓存并重置计数，磁盘缓存保留
+     */
+    public void clear() {
+        synchronized (measurements) {
+            measurements.clear();
+        }
+        synchronized (hashes) {
+            hashes.clear();
+        }
+        hits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+    }
+
+    public int size() {
+        synchronized (measurements) {
+            return measurements.size();
+        }
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public File getDiskDirectory() { return diskDirectory; }
+    /** 内存命中次数 */
+    public long getHitCount() { return hits.get(); }
+    /** 内存未命中但磁盘命中的次数 */
+    public long getDiskHitCount() { return diskHits.get(); }
+    /** 实际运行测量的次数 */
+    public long getMissCount() { return misses.get(); }
+
+    /**
+     * 磁盘文件以内容哈希命名，内容为 {@link LoudnessMeasurement} 的一行文本
+     */
+    private LoudnessMeasurement readDisk(String hash) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        File file = new File(diskDirectory, hash + DISK_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return LoudnessMeasurement.fromLine(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("读取响度缓存失败: " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String hash, LoudnessMeasurement measurement) {
+        if (diskDirectory == null) {
+            return;
+        }
+        File target = new File(diskDirectory, hash + DISK_SUFFIX);
+        File temp = new File(diskDirectory, target.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Files.write(temp.toPath(), (measurement.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("写入响度缓存失败: " + target + " - " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private <V> Map<String, V> lruMap() {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > LoudnessCache.this.maxEntries;
+            }
+        };
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(String.format("%02x", b));
+        }
+        return text.toString();
+    }
+
+    private static final class HashEntry {
+        final long size;
+        final long lastModified;
+        final String hash;
+
+        HashEntry(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+}
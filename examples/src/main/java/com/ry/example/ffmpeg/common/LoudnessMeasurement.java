@@ -0,0 +1,109 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * EBU R128 响度测量结果（ffmpeg loudnorm 滤镜第一遍的 print_format=json 输出）
+ * 测量值只与音频内容有关，与目标响度无关，因此可以缓存后用于任意目标的标准化
+ */
+public class LoudnessMeasurement {
+
+    private final double integratedLoudness;
+    private final double truePeak;
+    private final double loudnessRange;
+    private final double threshold;
+
+    public LoudnessMeasurement(double integratedLoudness, double truePeak, double loudnessRange, double threshold) {
+        this.integratedLoudness = integratedLoudness;
+        this.truePeak = truePeak;
+        this.loudnessRange = loudnessRange;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 从 loudnorm 的 stderr 中取出最后一个 JSON 块并解析
+     * @throws IllegalArgumentException 输出中没有测量结果
+     */
+    static LoudnessMeasurement parse(String stderr) {
+        int start = stderr.lastIndexOf('{');
+        int end = stderr.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("loudnorm输出中没有测量结果");
+        }
+        Object value = Json.parse(stderr.substring(start, end + 1));
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("loudnorm测量结果格式错误");
+        }
+        Map<?, ?> map = (Map<?, ?>) value;
+        return new LoudnessMeasurement(number(map, "input_i"), number(map, "input_tp"),
+                number(map, "input_lra"), number(map, "input_thresh"));
+    }
+
+    /**
+     * 把音频调整到目标响度所需的线性增益（dB）
+     * 线性增益使真峰值同样变化，增益过大会超过真峰值上限时改为以上限为准，此时结果低于目标响度。
+     * 静音（积分响度为 -inf）返回0
+     * @param targetLufs 目标积分响度（LUFS）
+     * @param truePeakLimit 真峰值上限（dBTP）
+     */
+    public double gainFor(double targetLufs, double truePeakLimit) {
+        if (Double.isInfinite(integratedLoudness) || Double.isNaN(integratedLoudness)) {
+            return 0.0;
+        }
+        double gain = targetLufs - integratedLoudness;
+        if (!Double.isInfinite(truePeak) && truePeak + gain > truePeakLimit) {
+            gain = truePeakLimit - truePeak;
+        }
+        return gain;
+    }
+
+    /** 积分响度（LUFS） */
+    public double getIntegratedLoudness() { return integratedLoudness; }
+    /** 真峰值（dBTP） */
+    public double getTruePeak() { return truePeak; }
+    /** 响度范围 LRA（LU） */
+    public double getLoudnessRange() { return loudnessRange; }
+    /** 相对门限（LUFS） */
+    public double getThreshold() { return threshold; }
+
+    /**
+     * 磁盘缓存使用的一行文本，可由 {@link #fromLine} 还原
+     */
+    String toLine() {
+        return integratedLoudness + " " + truePeak + " " + loudnessRange + " " + threshold;
+    }
+
+    static LoudnessMeasurement fromLine(String line) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("响度缓存格式错误: " + line);
+        }
+        return new LoudnessMeasurement(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
+    }
+
+    /**
+     * loudnorm 的数值以字符串输出，静音时为 "-inf"
+     */
+    private static double number(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("loudnorm测量结果缺少字段: " + key);
+        }
+        String text = value.toString().trim();
+        if (text.equalsIgnoreCase("-inf")) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (text.equalsIgnoreCase("inf")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Double.parseDouble(text);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "I=%.2f LUFS, TP=%.2f dBTP, LRA=%.2f LU, thresh=%.2f LUFS",
+                integratedLoudness, truePeak, loudnessRange, threshold);
+    }
+}
@@ -0,0 +1,180 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 媒体文件信息（不可变）
+ * 一次 ffprobe -show_format -show_streams 的完整结果：容器信息 + 所有流
+ */
+public final class MediaInfo {
+    private final String path;
+    private final Map<String, String> formatProperties;
+    private final Map<String, String> formatTags;
+    private final List<StreamInfo> streams;
+
+    private final String formatName;
+    private final double durationSeconds;
+    private final long size;
+    private final long bitRate;
+
+    /**
+     * @param path 文件路径
+     * @param formatProperties ffprobe format 节的标量字段（如 format_name、duration）
+     * @param formatTags 容器标签（如 title、artist）
+     * @param streams 流列表
+     */
+    public MediaInfo(String path, Map<String, String> formatProperties, Map<String, String> formatTags,
+                     List<StreamInfo> streams) {
+        this.path = path;
+        this.formatProperties = Collections.unmodifiableMap(new LinkedHashMap<>(formatProperties));
+        this.formatTags = Collections.unmodifiableMap(new LinkedHashMap<>(formatTags));
+        this.streams = Collections.unmodifiableList(new ArrayList<>(streams));
+
+        this.formatName = formatProperties.getOrDefault("format_name", "");
+        this.durationSeconds = StreamInfo.parseDouble(formatProperties.get("duration"));
+        this.size = StreamInfo.parseLong(formatProperties.get("size"));
+        this.bitRate = StreamInfo.parseLong(formatProperties.get("bit_rate"));
+    }
+
+    /**
+     * 解析 ffprobe -print_format json -show_format -show_streams 的输出
+     * @param path 文件路径
+     * @param json ffprobe 输出
+     * @throws IllegalArgumentException JSON格式错误
+     */
+    @SuppressWarnings("unchecked")
+    public static MediaInfo fromJson(String path, String json) {
+        Object root = Json.parse(json);
+        if (!(root instanceof Map)) {
+            throw new IllegalArgumentException("ffprobe输出不是JSON对象");
+        }
+        Map<String, Object> rootMap = (Map<String, Object>) root;
+
+        List<StreamInfo> streams = new ArrayList<>();
+        Object streamList = rootMap.get("streams");
+        if (streamList instanceof List) {
+            for (Object item : (List<Object>) streamList) {
+                if (item instanceof Map) {
+                    Map<String, Object> stream = (Map<String, Object>) item;
+                    Map<String, String> tags = stringMap(stream.get("tags"));
+                    streams.add(new StreamInfo(scalars(stream), tags, rotationOf(stream, tags)));
+                }
+            }
+        }
+
+        Map<String, String> formatProperties = new LinkedHashMap<>();
+        Map<String, String> formatTags = new LinkedHashMap<>();
+        Object format = rootMap.get("format");
+        if (format instanceof Map) {
+            formatProperties = scalars((Map<String, Object>) format);
+            formatTags = stringMap(((Map<String, Object>) format).get("tags"));
+        }
+        return new MediaInfo(path, formatProperties, formatTags, streams);
+    }
+
+    /**
+     * 指定类型的全部流
+     * @param codecType {@link StreamInfo#TYPE_VIDEO}、{@link StreamInfo#TYPE_AUDIO} 等
+     */
+    public List<StreamInfo> getStreams(String codecType) {
+        List<StreamInfo> result = new ArrayList<>();
+        for (StreamInfo stream : streams) {
+            if (codecType.equals(stream.getCodecType())) {
+                result.add(stream);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 第一个视频流，没有时返回null
+     */
+    public StreamInfo getVideoStream() {
+        List<StreamInfo> video = getStreams(StreamInfo.TYPE_VIDEO);
+        return video.isEmpty() ? null : video.get(0);
+    }
+
+    /**
+     * 第一个音频流，没有时返回null
+     */
+    public StreamInfo getAudioStream() {
+        List<StreamInfo> audio = getStreams(StreamInfo.TYPE_AUDIO);
+        return audio.isEmpty() ? null : audio.get(0);
+    }
+
+    public boolean hasVideo() {
+        return getVideoStream() != null;
+    }
+
+    public boolean hasAudio() {
+        return getAudioStream() != null;
+    }
+
+    public String getPath() { return path; }
+    public Map<String, String> getFormatProperties() { return formatProperties; }
+    public Map<String, String> getFormatTags() { return formatTags; }
+    public List<StreamInfo> getStreams() { return streams; }
+    public String getFormatName() { return formatName; }
+    /** 容器时长（秒），未知时为 -1 */
+    public double getDurationSeconds() { return durationSeconds; }
+    /** 文件大小（字节），未知时为 -1 */
+    public long getSize() { return size; }
+    /** 总码率（bps），未知时为 -1 */
+    public long getBitRate() { return bitRate; }
+
+    /**
+     * 对象中的标量字段转为字符串（嵌套的 tags、disposition 等跳过）
+     */
+    private static Map<String, String> scalars(Map<String, Object> object) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            Object value = entry.getValue();
+            if (value != null && !(value instanceof Map) && !(value instanceof List)) {
+                result.put(entry.getKey(), value.toString());
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> stringMap(Object value) {
+        if (!(value instanceof Map)) {
+            return new LinkedHashMap<>();
+        }
+        return scalars((Map<String, Object>) value);
+    }
+
+    /**
+     * 旋转角度：新版 ffprobe 放在 side_data_list 的 Display Matrix 中（逆时针，符号与 rotate 标签相反），
+     * 旧版放在 rotate 标签中；统一换算为 rotate 标签的含义（顺时针 0/90/180/270）
+     */
+    @SuppressWarnings("unchecked")
+    private static int rotationOf(Map<String, Object> stream, Map<String, String> tags) {
+        Object sideData = stream.get("side_data_list");
+        if (sideData instanceof List) {
+            for (Object item : (List<Object>) sideData) {
+                if (item instanceof Map && ((Map<String, Object>) item).get("rotation") != null) {
+                    long rotation = StreamInfo.parseLong(((Map<String, Object>) item).get("rotation").toString());
+                    return (int) ((-rotation % 360 + 360) % 360);
+                }
+            }
+        }
+        long rotate = StreamInfo.parseLong(tags.get("rotate"));
+        return rotate < 0 ? 0 : (int) (rotate % 360);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(path).append(" [").append(formatName).append("] ")
+          .append(String.format("%.3f", durationSeconds)).append("s");
+        for (StreamInfo stream : streams) {
+            sb.append("\n  ").append(stream);
+        }
+        return sb.toString();
+    }
+}
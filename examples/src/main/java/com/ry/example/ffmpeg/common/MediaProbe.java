@@ -0,0 +1,78 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 媒体探测入口
+ * 一次 ffprobe 调用拿到容器和全部流的信息，替代分别查询帧率、采样率、时长等的多次调用。
+ * 结果经过 {@link ProbeCache}，同一文件未改动时不会重复启动 ffprobe。
+ */
+public final class MediaProbe {
+
+    private MediaProbe() {
+    }
+
+    /**
+     * 探测媒体文件（优先使用缓存）
+     * @param path 文件路径
+     * @return 媒体信息
+     * @throws IOException ffprobe 执行失败或输出无法解析
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public static MediaInfo probe(String path) throws IOException, InterruptedException {
+        return ProbeCache.getDefault().get(path);
+    }
+
+    /**
+     * 轻量探测：WAV/RF64/AIFF 只读文件头（{@link AudioHeader}），MP4/MOV 文件在进程内解析 moov（{@link Mp4Reader}），
+     * 其他格式再调用 ffprobe。
+     * 只包含时长、分辨率、帧率、采样率、旋转等常用字段，需要完整字段时使用 {@link #probe}
+     */
+    public static MediaInfo probeMetadata(String path) throws IOException, InterruptedException {
+        if (new File(path).isFile()) {
+            try {
+                AudioHeader header = AudioHeader.read(path);
+                if (header != null) {
+                    return header.toMediaInfo();
+                }
+                MediaInfo info = Mp4Reader.read(path);
+                if (info != null) {
+                    return info;
+                }
+            } catch (IOException | RuntimeException e) {
+                // 文件结构异常时交给ffprobe处理
+            }
+        }
+        return probe(path);
+    }
+
+    /**
+     * 跳过缓存，直接调用 ffprobe
+     */
+    public static MediaInfo probeUncached(String path) throws IOException, InterruptedException {
+        return parse(path, probeJson(path));
+    }
+
+    /**
+     * 调用 ffprobe 并返回 JSON 输出
+     */
+    static String probeJson(String path) throws IOException, InterruptedException {
+        String[] command = {"ffprobe", "-v", "error", "-print_format", "json",
+                           "-show_format", "-show_streams", path};
+        JobResult result = FFmpegExecutor.getDefault().execute(command);
+        if (!result.isSuccess()) {
+            throw new IOException("ffprobe执行失败(" + result.getExitCode() + "): " + path
+                    + "\n" + result.getStderr().trim());
+        }
+        return result.getStdout();
+    }
+
+    static MediaInfo parse(String path, String json) throws IOException {
+        try {
+            return MediaInfo.fromJson(path, json);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("无法解析ffprobe输出: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * MP3 帧索引（寻址表）
+ * 跳过开头的 ID3v2 和结尾的 ID3v1 标签，沿同步字逐帧读取帧头，记录每一帧的偏移、长度和帧头；
+ * Layer III 同时记录 main_data_begin（比特池回溯字节数）和帧内主数据区的大小，供 {@link Mp3Splicer} 安全切分。
+ * 第一帧是 Xing/Info/VBRI 信息帧时单独记录，不计入音频帧，LAME 标签（编码延迟和填充）一并读出，
+ * 拼接时 {@link Mp3Splicer} 以它为模板写出新的 LAME 标签。
+ *
+ * 同步字之间的垃圾数据会被跳过（重新同步时要求下一帧帧头也合法且参数一致，避免误判）；
+ * 自由格式码率（bitrate index 为 0）不支持。
+ */
+public final class Mp3FrameIndex {
+
+    private static final int[][] BITRATES = {
+        // MPEG1 Layer I, II, III
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+        // MPEG2/2.5 Layer I, II/III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+        {11025, 12000, 8000},   // MPEG2.5
+        {0, 0, 0},              // 保留
+        {22050, 24000, 16000},  // MPEG2
+        {44100, 48000, 32000},  // MPEG1
+    };
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** LAME 标签长度（字节） */
+    static final int LAME_TAG_SIZE = 36;
+
+    private final String path;
+    private final long fileSize;
+    private final long audioStart;
+    private final long audioEnd;
+
+    private int frameCount;
+    private long[] offsets = new long[INITIAL_CAPACITY];
+    private int[] sizes = new int[INITIAL_CAPACITY];
+    private int[] headers = new int[INITIAL_CAPACITY];
+    private int[] reservoir = new int[INITIAL_CAPACITY];
+    private long skippedBytes;
+
+    private long infoOffset = -1;
+    private int infoSize;
+    private String infoType;
+    private int encoderDelay = -1;
+    private int encoderPadding = -1;
+    private byte[] lameTag;
+
+    private Mp3FrameIndex(String path, long fileSize, long audioStart, long audioEnd) {
+        this.path = path;
+        this.fileSize = fileSize;
+        this.audioStart = audioStart;
+        this.audioEnd = audioEnd;
+    }
+
+    /**
+     * 读取并索引 MP3 文件（整个文件只读映射，只访问帧头和信息帧）
+     * @throws IOException 读取失败、文件中没有合法的 MP3 帧或使用了自由格式码率
+     */
+    public static Mp3FrameIndex read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("文件过大: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+
+            long start = id3v2Size(buffer);
+            long end = size;
+            if (end - start >= 128 && buffer.get((int) end - 128) == 'T' && buffer.get((int) end - 127) == 'A'
+                    && buffer.get((int) end - 126) == 'G') {
+                end -= 128;
+            }
+            Mp3FrameIndex index = new Mp3FrameIndex(path, size, start, end);
+            index.scan(buffer);
+            if (index.frameCount == 0) {
+                throw new IOException("没有找到MP3帧: " + path);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * ID3v2 标签总长度：10 字节标签头 + 同步安全整数表示的长度（+ 10 字节标签尾）；没有标签时为0
+     */
+    static long id3v2Size(MappedByteBuffer buffer) {
+        if (buffer.limit() < 10 || buffer.get(0) != 'I' || buffer.get(1) != 'D' || buffer.get(2) != '3') {
+            return 0;
+        }
+        int size = ((buffer.get(6) & 0x7F) << 21) | ((buffer.get(7) & 0x7F) << 14)
+                | ((buffer.get(8) & 0x7F) << 7) | (buffer.get(9) & 0x7F);
+        boolean footer = (buffer.get(5) & 0x10) != 0;
+        return Math.min(buffer.limit(), 10L + size + (footer ? 10 : 0));
+    }
+
+    private void scan(MappedByteBuffer buffer) {
+        int reference = 0;
+        long pos = audioStart;
+        while (pos + 4 <= audioEnd) {
+            int header = buffer.getInt((int) pos);
+            int length = frameLength(header);
+            boolean valid = length > 0 && pos + length <= audioEnd
+                    && (reference == 0 || sameStream(header, reference));
+            if (valid && (reference == 0 || frameCount == 0 || pos != nextExpected())) {
+                // 第一帧和重新同步后的帧要求下一帧帧头也合法，文件末尾除外
+                long next = pos + length;
+                if (next + 4 <= audioEnd) {
+                    int following = buffer.getInt((int) next);
+                    valid = frameLength(following) > 0 && sameStream(following, header);
+                }
+            }
+            if (!valid) {
+                pos++;
+                skippedBytes++;
+                continue;
+            }
+            if (reference == 0) {
+                reference = header;
+                if (readInfoFrame(buffer, pos, header, length)) {
+                    pos += length;
+                    continue;
+                }
+            }
+            add(pos, length, header, mainDataBegin(buffer, pos, header));
+            pos += length;
+        }
+    }
+
+    private long nextExpected() {
+        return offsets[frameCount - 1] + sizes[frameCount - 1];
+    }
+
+    private void add(long offset, int size, int header, int mainDataBegin) {
+        if (frameCount == offsets.length) {
+            int capacity = frameCount * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            headers = Arrays.copyOf(headers, capacity);
+            reservoir = Arrays.copyOf(reservoir, capacity);
+        }
+        offsets[frameCount] = offset;
+        sizes[frameCount] = size;
+        headers[frameCount] = header;
+        reservoir[frameCount] = mainDataBegin;
+        frameCount++;
+    }
+
+    /**
+     * 第一帧中的 Xing/Info（位于边信息之后）或 VBRI（固定在帧头后 32 字节）信息帧
+     */
+    private boolean readInfoFrame(MappedByteBuffer buffer, long pos, int header, int length) {
+        int base = (int) pos;
+        int xing = 4 + (hasCrc(header) ? 2 : 0) + sideInfoSize(header);
+        if (layer(header) == 3 && xing + 8 <= length) {
+            int tag = buffer.getInt(base + xing);
+            if (tag == 0x58696E67 || tag == 0x496E666F) { // "Xing" "Info"
+                infoType = tag == 0x58696E67 ? "Xing" : "Info";
+                infoOffset = pos;
+                infoSize = length;
+                readLameTag(buffer, base + xing, base + length);
+                return true;
+            }
+        }
+        if (36 + 4 <= length && buffer.getInt(base + 36) == 0x56425249) { // "VBRI"
+            infoType = "VBRI";
+            infoOffset = pos;
+            infoSize = length;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * LAME 标签（36 字节）紧跟在 Xing 数据之后，以 "LAME" 或 ffmpeg 写入的 "Lavc"/"Lavf" 开头，
+     * 第 21~23 字节为 12 位编码延迟和 12 位填充
+     */
+    private void readLameTag(MappedByteBuffer buffer, int xing, int frameEnd) {
+        int flags = buffer.getInt(xing + 4);
+        int lame = xing + 8 + ((flags & 1) != 0 ? 4 : 0) + ((flags & 2) != 0 ? 4 : 0)
+                + ((flags & 4) != 0 ? 100 : 0) + ((flags & 8) != 0 ? 4 : 0);
+        if (lame + LAME_TAG_SIZE > frameEnd) {
+            return;
+        }
+        int encoder = buffer.getInt(lame);
+        if (encoder != 0x4C414D45 && encoder != 0x4C617663 && encoder != 0x4C617666) { // "LAME" "Lavc" "Lavf"
+            return;
+        }
+        lameTag = new byte[LAME_TAG_SIZE];
+        for (int i = 0; i < LAME_TAG_SIZE; i++) {
+            lameTag[i] = buffer.get(lame + i);
+        }
+        int b21 = lameTag[21] & 0xFF;
+        int b22 = lameTag[22] & 0xFF;
+        int b23 = lameTag[23] & 0xFF;
+        encoderDelay = (b21 << 4) | (b22 >>> 4);
+        encoderPadding = ((b22 & 0x0F) << 8) | b23;
+    }
+
+    /**
+     * Layer III 边信息开头的 main_data_begin：MPEG1 为 9 位，MPEG2/2.5 为 8 位；其他层为0
+     */
+    private static int mainDataBegin(MappedByteBuffer buffer, long pos, int header) {
+        if (layer(header) != 3) {
+            return 0;
+        }
+        int offset = (int) pos + 4 + (hasCrc(header) ? 2 : 0);
+        int value = ((buffer.get(offset) & 0xFF) << 8) | (buffer.get(offset + 1) & 0xFF);
+        return isMpeg1(header) ? value >>> 7 : value >>> 8;
+    }
+
+    // ---- 帧头字段 ----
+
+    static int versionBits(int header) { return (header >>> 19) & 3; }
+    static int layer(int header) { return 4 - ((header >>> 17) & 3); }
+    static boolean isMpeg1(int header) { return versionBits(header) == 3; }
+    static boolean hasCrc(int header) { return ((header >>> 16) & 1) == 0; }
+    static int bitrateIndex(int header) { return (header >>> 12) & 0xF; }
+    static int padding(int header) { return (header >>> 9) & 1; }
+    static boolean isMono(int header) { return ((header >>> 6) & 3) == 3; }
+
+    static int sampleRate(int header) {
+        return SAMPLE_RATES[versionBits(header)][(header >>> 10) & 3];
+    }
+
+    static int bitrate(int header) {
+        int layer = layer(header);
+        int table = isMpeg1(header) ? layer - 1 : (layer == 1 ? 3 : 4);
+        return BITRATES[table][bitrateIndex(header)];
+    }
+
+    static int samplesPerFrame(int header) {
+        int layer = layer(header);
+        return layer == 1 ? 384 : layer == 2 || isMpeg1(header) ? 1152 : 576;
+    }
+
+    /**
+     * Layer III 边信息长度：MPEG1 单声道17/立体声32，MPEG2/2.5 单声道9/立体声17
+     */
+    static int sideInfoSize(int header) {
+        if (layer(header) != 3) {
+            return 0;
+        }
+        if (isMpeg1(header)) {
+            return isMono(header) ? 17 : 32;
+        }
+        return isMono(header) ? 9 : 17;
+    }
+
+    /**
+     * 帧长度（字节），帧头非法或为自由格式时返回0
+     */
+    static int frameLength(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000 || versionBits(header) == 1 || ((header >>> 17) & 3) == 0
+                || bitrateIndex(header) == 0 || bitrateIndex(header) == 15 || ((header >>> 10) & 3) == 3
+                || (header & 3) == 2) {
+            return 0;
+        }
+        int bitrate = bitrate(header) * 1000;
+        int sampleRate = sampleRate(header);
+        int layer = layer(header);
+        if (layer == 1) {
+            return (12 * bitrate / sampleRate + padding(header)) * 4;
+        }
+        int coefficient = layer == 3 && !isMpeg1(header) ? 72 : 144;
+        return coefficient * bitrate / sampleRate + padding(header);
+    }
+
+    /**
+     * 版本、层、采样率和单声道/立体声相同即可拼接；码率、填充和联合立体声方式可以不同
+     */
+    static boolean sameStream(int a, int b) {
+        return versionBits(a) == versionBits(b) && layer(a) == layer(b)
+                && ((a >>> 10) & 3) == ((b >>> 10) & 3) && isMono(a) == isMono(b);
+    }
+
+    // ---- 寻址表 ----
+
+    /**
+     * 时间点所在的帧（四舍五入到最近的帧边界），限制在 [0, 帧数] 内
+     */
+    public int frameAt(double seconds) {
+        long frame = Math.round(seconds * getSampleRate() / getSamplesPerFrame());
+        return (int) Math.max(0, Math.min(frameCount, frame));
+    }
+
+    /** 第 n 帧的开始时间（秒） */
+    public double timeOf(int frame) {
+        return (double) frame * getSamplesPerFrame() / getSampleRate();
+    }
+
+    public long getOffset(int frame) { return offsets[frame]; }
+    public int getSize(int frame) { return sizes[frame]; }
+    public int getHeader(int frame) { return headers[frame]; }
+    /** 第 n 帧的主数据从帧内主数据区之前多少字节开始（Layer III 比特池） */
+    public int getMainDataBegin(int frame) { return reservoir[frame]; }
+
+    /**
+     * 第 n 帧自身的主数据区字节数（帧长减去帧头、CRC 和边信息），可被后续帧通过比特池引用
+     */
+    public int getMainDataSize(int frame) {
+        int header = headers[frame];
+        return sizes[frame] - 4 - (hasCrc(header) ? 2 : 0) - sideInfoSize(header);
+    }
+
+    public String getPath() { return path; }
+    public long getFileSize() { return fileSize; }
+    public int getFrameCount() { return frameCount; }
+    /** ID3v2 之后第一个字节的偏移 */
+    public long getAudioStart() { return audioStart; }
+    /** ID3v1 之前（或文件末尾）的偏移 */
+    public long getAudioEnd() { return audioEnd; }
+    /** 重新同步时跳过的字节数 */
+    public long getSkippedBytes() { return skippedBytes; }
+    public int getSampleRate() { return sampleRate(headers[0]); }
+    public int getChannels() { return isMono(headers[0]) ? 1 : 2; }
+    public int getLayer() { return layer(headers[0]); }
+    public int getSamplesPerFrame() { return samplesPerFrame(headers[0]); }
+    /** 信息帧的偏移，没有时为 -1 */
+    public long getInfoFrameOffset() { return infoOffset; }
+    public int getInfoFrameSize() { return infoSize; }
+    /** "Xing"、"Info"、"VBRI"，没有信息帧时为 null */
+    public String getInfoType() { return infoType; }
+    /** LAME 标签中的编码延迟（采样数），未知时为 -1 */
+    public int getEncoderDelay() { return encoderDelay; }
+    /** LAME 标签中的结尾填充（采样数），未知时为 -1 */
+    public int getEncoderPadding() { return encoderPadding; }
+    /** 信息帧中 LAME 标签的原始字节（副本），没有时为 null */
+    byte[] getLameTag() { return lameTag == null ? null : lameTag.clone(); }
+
+    public double getDurationSeconds() {
+        return timeOf(frameCount);
+    }
+
+    /**
+     * 所有帧的码率相同
+     */
+    public boolean isConstantBitrate() {
+        int bitrateIndex = bitrateIndex(headers[0]);
+        for (int i = 1; i < frameCount; i++) {
+            if (bitrateIndex(headers[i]) != bitrateIndex) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "MPEG%s Layer %d %dHz %d声道 %d 帧 %.3f 秒%s%s",
+                isMpeg1(headers[0]) ? "1" : versionBits(headers[0]) == 2 ? "2" : "2.5",
+                getLayer(), getSampleRate(), getChannels(), frameCount, getDurationSeconds(),
+                isConstantBitrate() ? " CBR " + bitrate(headers[0]) + "kbps" : " VBR",
+                infoType != null ? " (" + infoType + ")" : "");
+    }
+}
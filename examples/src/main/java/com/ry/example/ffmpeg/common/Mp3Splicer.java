@@ -0,0 +1,470 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 帧级 MP3 剪切/拼接，不解码、不重新编码
+ * 由 {@link Mp3FrameIndex} 定位帧边界，按片段顺序把帧原样写出（连续的帧用 {@link FileChannel#transferTo} 整块复制），
+ * 输出开头写入新的 Xing/Info 信息帧（帧数、字节数和 100 项寻址表），保证 VBR 拼接结果的时长和跳转准确。
+ *
+ * Layer III 的比特池：一帧的主数据可以从前面几帧的主数据区开始（main_data_begin），
+ * 从中间切开时第一帧缺少这部分数据。这里在切点前保留刚好覆盖 main_data_begin 的最少前导帧（通常 1 帧，
+ * main_data_begin 最多 511 字节，低码率时也只有几帧），并把前导帧边信息中的 global_gain 清零：
+ * 它们照常占位给切点帧提供比特池数据，自身解码为静音。拼接处同理，不会读到上一段的尾部数据。
+ *
+ * 代价：
+ * <ul>
+ *   <li>每个切点前多出前导帧的静音（MPEG1 Layer III 44.1kHz 时每帧约 26ms）。开头的静音由新 LAME 标签的
+ *       编码延迟交给无缝播放器裁掉；段与段之间的静音无法标记，会留在拼接处</li>
+ *   <li>切点帧的主数据完整，但解码器的 IMDCT 重叠相加和多相合成滤波器状态来自静音前导帧而不是原来的前一帧，
+ *       切点之后约一帧的输出与原文件不同（从静音过渡进来的短暂瞬态），之后才与原文件解码结果一致</li>
+ * </ul>
+ *
+ * 用法（在节目中插入广告）：
+ * <pre>
+ * new Mp3Splicer()
+ *     .add("show.mp3", 0, 600)
+ *     .add("ad.mp3")
+ *     .add("show.mp3", 600, Double.MAX_VALUE)
+ *     .write("show_with_ad.mp3");
+ * </pre>
+ */
+public class Mp3Splicer {
+
+    private static final int TOC_ENTRIES = 100;
+
+    /** Xing 标志：帧数、字节数、寻址表 */
+    private static final int XING_FLAGS = 0x0007;
+
+    /** 解码器固有延迟（采样数）：播放器在 LAME 延迟之外再跳过这么多，填充则包含这一部分 */
+    private static final int DECODER_DELAY = 529;
+
+    /** LAME 标签中延迟和填充各占 12 位 */
+    private static final int MAX_LAME_SAMPLES = 0xFFF;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, Mp3FrameIndex> indexes = new HashMap<>();
+    private boolean copyTag = true;
+
+    /**
+     * 追加整个文件
+     */
+    public Mp3Splicer add(String path) throws IOException {
+        return add(path, 0, Double.MAX_VALUE);
+    }
+
+    /**
+     * 追加文件的一段，起止时间四舍五入到最近的帧边界（MPEG1 Layer III 44.1kHz 时约 26ms）
+     * @param startSeconds 开始时间（秒）
+     * @param endSeconds 结束时间（秒），超出文件长度时到文件末尾
+     * @throws IOException 读取失败、不是 MP3，或与已添加的片段参数（版本、层、采样率、声道数）不一致
+     */
+    public Mp3Splicer add(String path, double startSeconds, double endSeconds) throws IOException {
+        Mp3FrameIndex index = indexes.get(path);
+        if (index == null) {
+            index = Mp3FrameIndex.read(path);
+            indexes.put(path, index);
+        }
+        if (!segments.isEmpty()) {
+            Mp3FrameIndex first = segments.get(0).index;
+            if (!Mp3FrameIndex.sameStream(index.getHeader(0), first.getHeader(0))) {
+                throw new IOException("MP3参数不一致，无法直接拼接: " + path + " [" + index + "] / [" + first + "]");
+            }
+        }
+        int start = index.frameAt(startSeconds);
+        int end = index.frameAt(endSeconds);
+        if (end > start) {
+            segments.add(new Segment(index, start, end));
+        }
+        return this;
+    }
+
+    /**
+     * 是否把第一个输入文件的 ID3v2 标签复制到输出开头，默认复制
+     */
+    public Mp3Splicer copyTag(boolean copyTag) {
+        this.copyTag = copyTag;
+        return this;
+    }
+
+    /**
+     * 写出拼接结果
+     * @param outputPath 输出文件（覆盖），可以是输入文件之一：先写到同目录的临时文件，完成后再替换
+     * @return 输出的音频帧数（不含信息帧）
+     * @throws IOException 读写失败或没有可写出的帧
+     */
+    public int write(String outputPath) throws IOException {
+        if (segments.isEmpty()) {
+            throw new IOException("没有可写出的MP3帧");
+        }
+        List<Run> runs = plan();
+        int frames = 0;
+        long audioBytes = 0;
+        for (Run run : runs) {
+            frames += run.count;
+            audioBytes += run.bytes;
+        }
+        Mp3FrameIndex first = segments.get(0).index;
+        int leadingMuted = 0;
+        while (leadingMuted < runs.size() && runs.get(leadingMuted).muted) {
+            leadingMuted++;
+        }
+        ByteBuffer info = infoFrame(first.getHeader(0), runs, frames, audioBytes, allConstant(first.getHeader(0)),
+                lameTag(leadingMuted));
+
+        Path target = Paths.get(outputPath).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        Map<String, FileChannel> inputs = new HashMap<>();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            for (Segment segment : segments) {
+                String path = segment.index.getPath();
+                if (!inputs.containsKey(path)) {
+                    inputs.put(path, FileChannel.open(Paths.get(path), StandardOpenOption.READ));
+                }
+            }
+            if (copyTag && first.getAudioStart() > 0) {
+                copy(inputs.get(first.getPath()), 0, first.getAudioStart(), out);
+            }
+            SignalGenerator.writeFully(out, info);
+            for (Run run : runs) {
+                FileChannel in = inputs.get(run.index.getPath());
+                if (run.muted) {
+                    SignalGenerator.writeFully(out, mutedFrame(in, run.index, run.first));
+                } else {
+                    copy(in, run.index.getOffset(run.first), run.bytes, out);
+                }
+            }
+            out.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            for (FileChannel channel : inputs.values()) {
+                channel.close();
+            }
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return frames;
+    }
+
+    /**
+     * 剪切一段：从 startSeconds 开始，时长 durationSeconds
+     * @return 输出的音频帧数
+     */
+    public static int cut(String inputPath, String outputPath, double startSeconds, double durationSeconds)
+            throws IOException {
+        return new Mp3Splicer().add(inputPath, startSeconds, startSeconds + durationSeconds).write(outputPath);
+    }
+
+    /**
+     * 按顺序拼接整个文件
+     * @return 输出的音频帧数
+     */
+    public static int concat(List<String> inputPaths, String outputPath) throws IOException {
+        Mp3Splicer splicer = new Mp3Splicer();
+        for (String path : inputPaths) {
+            splicer.add(path);
+        }
+        return splicer.write(outputPath);
+    }
+
+    /**
+     * 把各片段展开为输出顺序的帧区间：前导帧每帧一个静音区间，其余在源文件中连续的帧合并为一个区间
+     */
+    private List<Run> plan() {
+        List<Run> runs = new ArrayList<>();
+        for (Segment segment : segments) {
+            Mp3FrameIndex index = segment.index;
+            int from = preRollStart(index, segment.start);
+            for (int f = from; f < segment.start; f++) {
+                runs.add(new Run(index, f, 1, index.getSize(f), true));
+            }
+            int f = segment.start;
+            if (from == segment.start && index.getMainDataBegin(f) > 0) {
+                // 切点之前没有可用的帧，这一帧的比特池数据缺失，解码出的内容本来就不可用
+                runs.add(new Run(index, f, 1, index.getSize(f), true));
+                f++;
+            }
+            while (f < segment.end) {
+                int runStart = f;
+                long bytes = index.getSize(f);
+                f++;
+                while (f < segment.end && index.getOffset(f) == index.getOffset(f - 1) + index.getSize(f - 1)) {
+                    bytes += index.getSize(f);
+                    f++;
+                }
+                runs.add(new Run(index, runStart, f - runStart, bytes, false));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * 向前找到主数据区合计覆盖切点帧 main_data_begin 的最近一帧
+     */
+    private static int preRollStart(Mp3FrameIndex index, int frame) {
+        int needed = index.getMainDataBegin(frame);
+        int from = frame;
+        while (needed > 0 && from > 0) {
+            from--;
+            needed -= index.getMainDataSize(from);
+        }
+        return from;
+    }
+
+    private boolean allConstant(int header) {
+        for (Segment segment : segments) {
+            if (!segment.index.isConstantBitrate()
+                    || Mp3FrameIndex.bitrateIndex(segment.index.getHeader(0)) != Mp3FrameIndex.bitrateIndex(header)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 读出一帧并把每个颗粒、每个声道的 global_gain 置0；有 CRC 时重新计算
+     */
+    private static ByteBuffer mutedFrame(FileChannel in, Mp3FrameIndex index, int frame) throws IOException {
+        int header = index.getHeader(frame);
+        ByteBuffer buffer = ByteBuffer.allocate(index.getSize(frame));
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, index.getOffset(frame) + buffer.position()) < 0) {
+                throw new IOException("输入文件在拼接过程中被截断: " + index.getPath());
+            }
+        }
+        byte[] data = buffer.array();
+        if (Mp3FrameIndex.layer(header) != 3) {
+            // Layer I/II 没有比特池，不会产生前导帧
+            buffer.flip();
+            return buffer;
+        }
+        boolean crc = Mp3FrameIndex.hasCrc(header);
+        int sideInfo = 4 + (crc ? 2 : 0);
+        int channels = Mp3FrameIndex.isMono(header) ? 1 : 2;
+        if (Mp3FrameIndex.isMpeg1(header)) {
+            // main_data_begin 9 + private_bits + 每声道 scfsi 4，之后每个颗粒/声道 59 位，global_gain 在第 21 位
+            int base = 9 + (channels == 1 ? 5 : 3) + 4 * channels;
+            for (int granule = 0; granule < 2; granule++) {
+                for (int c = 0; c < channels; c++) {
+                    clearBits(data, sideInfo, base + (granule * channels + c) * 59 + 21, 8);
+                }
+            }
+        } else {
+            // main_data_begin 8 + private_bits，只有一个颗粒，每声道 63 位
+            int base = 8 + channels;
+            for (int c = 0; c < channels; c++) {
+                clearBits(data, sideInfo, base + c * 63 + 21, 8);
+            }
+        }
+        if (crc) {
+            int value = crc16(data, 2, 2, 0xFFFF);
+            value = crc16(data, 6, Mp3FrameIndex.sideInfoSize(header), value);
+            data[4] = (byte) (value >>> 8);
+            data[5] = (byte) value;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void clearBits(byte[] data, int byteOffset, int bit, int count) {
+        for (int i = bit; i < bit + count; i++) {
+            data[byteOffset + i / 8] &= (byte) ~(0x80 >>> (i % 8));
+        }
+    }
+
+    /**
+     * MPEG 音频 CRC-16（多项式 0x8005），覆盖帧头后两个字节和边信息
+     */
+    private static int crc16(byte[] data, int offset, int length, int crc) {
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x8005 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+
+    /**
+     * 以第一个片段来源的 LAME 标签为模板生成新标签，供无缝播放器裁掉首尾：
+     * 编码延迟 = 开头的静音前导帧 + 来源的编码延迟（片段从文件开头开始时就是原值），
+     * 最后一个片段到来源文件末尾时沿用其填充，否则只填解码器延迟（保留最后一帧的全部输出，时长计算准确）；
+     * 回放增益按原内容计算，已不适用，清零。来源没有 LAME 标签时返回 null，不写标签
+     * @param leadingMuted 输出开头的静音前导帧数
+     */
+    private byte[] lameTag(int leadingMuted) {
+        Mp3FrameIndex first = segments.get(0).index;
+        byte[] tag = first.getLameTag();
+        if (tag == null || first.getEncoderDelay() < 0) {
+            return null;
+        }
+        int delay = Math.min(MAX_LAME_SAMPLES, leadingMuted * first.getSamplesPerFrame() + first.getEncoderDelay());
+        Segment last = segments.get(segments.size() - 1);
+        int padding = DECODER_DELAY;
+        if (last.end == last.index.getFrameCount() && last.index.getEncoderPadding() >= 0) {
+            padding = last.index.getEncoderPadding();
+        }
+        Arrays.fill(tag, 11, 19, (byte) 0);
+        tag[21] = (byte) (delay >>> 4);
+        tag[22] = (byte) ((delay << 4) | (padding >>> 8));
+        tag[23] = (byte) padding;
+        return tag;
+    }
+
+    /**
+     * 生成 Xing（VBR）或 Info（CBR）信息帧：沿用第一帧的版本、采样率和声道模式，不带 CRC，
+     * 选择能放下 Xing 数据（和 LAME 标签）的最小码率；字节数和寻址表从信息帧开头算起
+     * @param lameTag 要写入的 LAME 标签，null 表示不写；音乐长度和标签 CRC 在这里填入
+     */
+    private static ByteBuffer infoFrame(int template, List<Run> runs, int frames, long audioBytes, boolean cbr,
+                                        byte[] lameTag) throws IOException {
+        int xingOffset = 4 + Mp3FrameIndex.sideInfoSize(template);
+        int lameOffset = xingOffset + 4 + 4 + 4 + 4 + TOC_ENTRIES;
+        int needed = lameOffset + (lameTag != null ? Mp3FrameIndex.LAME_TAG_SIZE : 0);
+        int header = 0;
+        int length = 0;
+        int base = withoutCrc(template) & ~(0xF << 12) & ~(1 << 9);
+        for (int bitrateIndex = 1; bitrateIndex < 15; bitrateIndex++) {
+            int candidate = base | (bitrateIndex << 12);
+            if (cbr && bitrateIndex != Mp3FrameIndex.bitrateIndex(template)) {
+                // CBR 文件的 Info 帧使用相同码率，按恒定码率计算时长的播放器不会出错
+                continue;
+            }
+            length = Mp3FrameIndex.frameLength(candidate);
+            if (length >= needed) {
+                header = candidate;
+                break;
+            }
+        }
+        if (header == 0) {
+            if (!cbr) {
+                throw new IOException("无法生成信息帧");
+            }
+            return infoFrame(template, runs, frames, audioBytes, false, lameTag);
+        }
+
+        long totalBytes = length + audioBytes;
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(0, header);
+        buffer.position(xingOffset);
+        buffer.putInt(cbr ? 0x496E666F : 0x58696E67); // "Info" / "Xing"
+        buffer.putInt(XING_FLAGS);
+        buffer.putInt(frames);
+        buffer.putInt((int) Math.min(totalBytes, 0xFFFFFFFFL));
+        buffer.put(toc(runs, frames, length, totalBytes));
+        if (lameTag != null) {
+            // 音乐长度为信息帧加全部音频帧；音乐 CRC 需要读出全部音频数据，不计算，填0
+            buffer.put(lameTag);
+            buffer.putInt(lameOffset + 28, (int) Math.min(totalBytes, 0xFFFFFFFFL));
+            buffer.putShort(lameOffset + 32, (short) 0);
+            buffer.putShort(lameOffset + 34, (short) crc16Reflected(buffer.array(), lameOffset + 34));
+        }
+        buffer.position(0);
+        return buffer;
+    }
+
+    /**
+     * LAME 标签 CRC：CRC-16/ARC（反射多项式 0xA001，初值0），覆盖信息帧开头到 CRC 字段之前的全部字节
+     */
+    private static int crc16Reflected(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc ^= data[i] & 0xFF;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+        return crc;
+    }
+
+    private static int withoutCrc(int header) {
+        return header | (1 << 16);
+    }
+
+    /**
+     * 寻址表：第 i 项为 i% 时长处的帧在文件中的位置 × 256 / 总字节数
+     */
+    private static byte[] toc(List<Run> runs, int frames, long infoBytes, long totalBytes) {
+        byte[] toc = new byte[TOC_ENTRIES];
+        int entry = 0;
+        int frame = 0;
+        long position = infoBytes;
+        for (Run run : runs) {
+            for (int i = 0; i < run.count && entry < TOC_ENTRIES; i++) {
+                while (entry < TOC_ENTRIES && (long) entry * frames <= (long) frame * TOC_ENTRIES) {
+                    toc[entry++] = (byte) Math.min(255, position * 256 / totalBytes);
+                }
+                position += run.index.getSize(run.first + i);
+                frame++;
+            }
+        }
+        while (entry < TOC_ENTRIES) {
+            toc[entry++] = (byte) 255;
+        }
+        return toc;
+    }
+
+    private static void copy(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(position + done, count - done, out);
+            if (n <= 0) {
+                throw new IOException("输入文件在拼接过程中被截断");
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * 一个输入片段：[start, end) 帧
+     */
+    private static final class Segment {
+        final Mp3FrameIndex index;
+        final int start;
+        final int end;
+
+        Segment(Mp3FrameIndex index, int start, int end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * 输出中的一段帧：源文件中连续的 count 帧，或一个需要静音的前导帧
+     */
+    private static final class Run {
+        final Mp3FrameIndex index;
+        final int first;
+        final int count;
+        final long bytes;
+        final boolean muted;
+
+        Run(Mp3FrameIndex index, int first, int count, long bytes, boolean muted) {
+            this.index = index;
+            this.first = first;
+            this.count = count;
+            this.bytes = bytes;
+            this.muted = muted;
+        }
+    }
+}
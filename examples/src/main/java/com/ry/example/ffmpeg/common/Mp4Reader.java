@@ -0,0 +1,513 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MP4/MOV（ISO-BMFF）元数据读取器
+ * 在进程内直接解析 moov 下的 mvhd/trak/tkhd/mdhd/hdlr/stsd/stts/stsz，
+ * 只读取需要的 box，不启动 ffprobe；结果与 {@link MediaProbe} 相同，是一个 {@link MediaInfo}，
+ * 字段名沿用 ffprobe 的 key（duration、r_frame_rate、nb_frames 等）。
+ *
+ * 只覆盖常用字段，不是 MP4 文件、分片 MP4（moof）或 moov 不完整时返回 null，由调用方改用 ffprobe。
+ */
+public final class Mp4Reader {
+
+    /** ffprobe 对 mov 解封装器报告的格式名 */
+    private static final String FORMAT_NAME = "mov,mp4,m4a,3gp,3g2,mj2";
+
+    /** stsd、stts 超过此大小时不读取（正常文件只有几十到几千字节） */
+    private static final int MAX_TABLE_BYTES = 4 * 1024 * 1024;
+
+    private static final Map<String, String> CODEC_NAMES = new HashMap<>();
+    static {
+        CODEC_NAMES.put("avc1", "h264");
+        CODEC_NAMES.put("avc3", "h264");
+        CODEC_NAMES.put("hvc1", "hevc");
+        CODEC_NAMES.put("hev1", "hevc");
+        CODEC_NAMES.put("av01", "av1");
+        CODEC_NAMES.put("vp08", "vp8");
+        CODEC_NAMES.put("vp09", "vp9");
+        CODEC_NAMES.put("mp4v", "mpeg4");
+        CODEC_NAMES.put("jpeg", "mjpeg");
+        CODEC_NAMES.put("apch", "prores");
+        CODEC_NAMES.put("apcn", "prores");
+        CODEC_NAMES.put("apcs", "prores");
+        CODEC_NAMES.put("apco", "prores");
+        CODEC_NAMES.put("ap4h", "prores");
+        CODEC_NAMES.put("mp4a", "aac");
+        CODEC_NAMES.put(".mp3", "mp3");
+        CODEC_NAMES.put("Opus", "opus");
+        CODEC_NAMES.put("fLaC", "flac");
+        CODEC_NAMES.put("alac", "alac");
+        CODEC_NAMES.put("ac-3", "ac3");
+        CODEC_NAMES.put("ec-3", "eac3");
+        CODEC_NAMES.put("sowt", "pcm_s16le");
+        CODEC_NAMES.put("twos", "pcm_s16be");
+        CODEC_NAMES.put("tx3g", "mov_text");
+        CODEC_NAMES.put("wvtt", "webvtt");
+    }
+
+    private static final List<String> TOP_LEVEL_TYPES =
+            Arrays.asList("ftyp", "moov", "mdat", "free", "skip", "wide", "pnot", "uuid");
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private Mp4Reader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+    }
+
+    /**
+     * 读取MP4/MOV文件的元数据
+     * @param path 文件路径
+     * @return 媒体信息；不是MP4/MOV或无法完整解析时返回null
+     * @throws IOException 文件读取失败
+     */
+    public static MediaInfo read(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(path).toPath(), StandardOpenOption.READ)) {
+            return new Mp4Reader(channel).parse(path);
+        }
+    }
+
+    private MediaInfo parse(String path) throws IOException {
+        Map<String, String> formatTags = new LinkedHashMap<>();
+        Box moov = null;
+        long pos = 0;
+        boolean first = true;
+        while (pos + 8 <= fileSize) {
+            Box box = readBox(pos, fileSize);
+            if (box == null || (first && !TOP_LEVEL_TYPES.contains(box.type))) {
+                return null;
+            }
+            first = false;
+            if ("ftyp".equals(box.type)) {
+                readBrands(box, formatTags);
+            } else if ("moov".equals(box.type)) {
+                moov = box;
+            }
+            pos = box.end;
+        }
+        if (moov == null) {
+            return null;
+        }
+
+        long movieTimescale = 0;
+        long movieDuration = 0;
+        List<StreamInfo> streams = new ArrayList<>();
+        for (Box child : children(moov)) {
+            if ("mvhd".equals(child.type)) {
+                ByteBuffer buf = content(child, 32);
+                int version = buf.get(0);
+                movieTimescale = uint32(buf, version == 1 ? 20 : 12);
+                movieDuration = version == 1 ? buf.getLong(24) : uint32(buf, 16);
+            } else if ("mvex".equals(child.type)) {
+                // 分片MP4的样本表在 moof 中，交给ffprobe
+                return null;
+            } else if ("trak".equals(child.type)) {
+                StreamInfo stream = readTrack(child, streams.size());
+                if (stream != null) {
+                    streams.add(stream);
+                }
+            }
+        }
+        if (movieTimescale <= 0 || movieDuration <= 0) {
+            return null;
+        }
+
+        double duration = (double) movieDuration / movieTimescale;
+        Map<String, String> format = new LinkedHashMap<>();
+        format.put("filename", path);
+        format.put("nb_streams", String.valueOf(streams.size()));
+        format.put("format_name", FORMAT_NAME);
+        format.put("duration", String.format(Locale.ROOT, "%.6f", duration));
+        format.put("size", String.valueOf(fileSize));
+        format.put("bit_rate", String.valueOf((long) (fileSize * 8 / duration)));
+        return new MediaInfo(path, format, formatTags, streams);
+    }
+
+    private void readBrands(Box ftyp, Map<String, String> tags) throws IOException {
+        ByteBuffer buf = content(ftyp, (int) Math.min(ftyp.end - ftyp.contentStart, 256));
+        if (buf.limit() < 8) {
+            return;
+        }
+        tags.put("major_brand", fourcc(buf, 0));
+        tags.put("minor_version", String.valueOf(uint32(buf, 4)));
+        StringBuilder brands = new StringBuilder();
+        for (int i = 8; i + 4 <= buf.limit(); i += 4) {
+            brands.append(fourcc(buf, i));
+        }
+        tags.put("compatible_brands", brands.toString());
+    }
+
+    private StreamInfo readTrack(Box trak, int index) throws IOException {
+        Track track = new Track();
+        for (Box child : children(trak)) {
+            if ("tkhd".equals(child.type)) {
+                readTrackHeader(child, track);
+            } else if ("mdia".equals(child.type)) {
+                for (Box mdia : children(child)) {
+                    if ("mdhd".equals(mdia.type)) {
+                        ByteBuffer buf = content(mdia, 36);
+                        int version = buf.get(0);
+                        track.timescale = uint32(buf, version == 1 ? 20 : 12);
+                        track.duration = version == 1 ? buf.getLong(24) : uint32(buf, 16);
+                        track.language = language(buf.getShort(version == 1 ? 32 : 20) & 0xFFFF);
+                    } else if ("hdlr".equals(mdia.type)) {
+                        ByteBuffer buf = content(mdia, (int) Math.min(mdia.end - mdia.contentStart, 256));
+                        track.handler = fourcc(buf, 8);
+                        if (buf.limit() > 24) {
+                            // QuickTime 的名称是带长度前缀的 Pascal 字符串
+                            boolean pascal = (buf.get(24) & 0xFF) == buf.limit() - 25;
+                            track.handlerName = cString(buf, pascal ? 25 : 24);
+                        }
+                    } else if ("minf".equals(mdia.type)) {
+                        Box stbl = find(mdia, "stbl");
+                        if (stbl != null) {
+                            readSampleTable(stbl, track);
+                        }
+                    }
+                }
+            }
+        }
+        if (track.timescale <= 0 || track.handler == null) {
+            return null;
+        }
+        return track.toStreamInfo(index);
+    }
+
+    private void readTrackHeader(Box tkhd, Track track) throws IOException {
+        ByteBuffer buf = content(tkhd, 96);
+        int version = buf.get(0);
+        int matrix = version == 1 ? 52 : 40;
+        if (buf.limit() < matrix + 44) {
+            return;
+        }
+        // 变换矩阵 {a, b, u, c, d, v, x, y, w}，a/b 为16.16定点数
+        double a = buf.getInt(matrix) / 65536.0;
+        double b = buf.getInt(matrix + 4) / 65536.0;
+        long degrees = Math.round(Math.toDegrees(Math.atan2(b, a)));
+        track.rotation = (int) ((degrees % 360 + 360) % 360);
+        track.displayWidth = buf.getInt(matrix + 36) >>> 16;
+        track.displayHeight = buf.getInt(matrix + 40) >>> 16;
+    }
+
+    private void readSampleTable(Box stbl, Track track) throws IOException {
+        for (Box box : children(stbl)) {
+            long length = box.end - box.contentStart;
+            if ("stsd".equals(box.type) && length <= MAX_TABLE_BYTES) {
+                readSampleDescription(content(box, (int) length), track);
+            } else if ("stts".equals(box.type) && length <= MAX_TABLE_BYTES) {
+                ByteBuffer buf = content(box, (int) length);
+                long entries = uint32(buf, 4);
+                long samples = 0;
+                long bestCount = 0;
+                for (int i = 0; i < entries && 8 + i * 8 + 8 <= buf.limit(); i++) {
+                    long count = uint32(buf, 8 + i * 8);
+                    long delta = uint32(buf, 12 + i * 8);
+                    samples += count;
+                    if (count > bestCount && delta > 0) {
+                        bestCount = count;
+                        track.commonDelta = delta;
+                    }
+                }
+                track.sampleCount = samples;
+            } else if (("stsz".equals(box.type) || "stz2".equals(box.type)) && track.sampleCount <= 0) {
+                track.sampleCount = uint32(content(box, 12), 8);
+            }
+        }
+    }
+
+    /**
+     * 只解析第一个样本描述：视频取宽高，音频取声道与采样率，mp4a 再从 esds 中区分 AAC/MP3 并取码率
+     */
+    private void readSampleDescription(ByteBuffer buf, Track track) {
+        if (buf.limit() < 16) {
+            return;
+        }
+        int entryStart = 8;
+        int entrySize = (int) Math.min(uint32(buf, entryStart), buf.limit() - entryStart);
+        track.fourcc = fourcc(buf, entryStart + 4);
+        int body = entryStart + 8;
+        if ("vide".equals(track.handler) && entrySize >= 36) {
+            track.width = buf.getShort(body + 24) & 0xFFFF;
+            track.height = buf.getShort(body + 26) & 0xFFFF;
+        } else if ("soun".equals(track.handler) && entrySize >= 36) {
+            int version = buf.getShort(body + 8) & 0xFFFF;
+            track.channels = buf.getShort(body + 16) & 0xFFFF;
+            track.sampleRate = uint32(buf, body + 24) >>> 16;
+            if (version == 2 || track.sampleRate == 0) {
+                // QuickTime v2 声音描述的采样率在扩展字段中，通常与 mdhd 时间刻度一致
+                track.sampleRate = track.timescale;
+            }
+            int esds = indexOf(buf, "esds", body + 28, entryStart + entrySize);
+            if (esds > 0) {
+                readEsds(buf, esds + 8, entryStart + entrySize, track);
+            }
+        }
+    }
+
+    private void readEsds(ByteBuffer buf, int pos, int end, Track track) {
+        pos += 4;
+        while (pos + 2 < end) {
+            int tag = buf.get(pos++) & 0xFF;
+            int length = 0;
+            for (int i = 0; i < 4 && pos < end; i++) {
+                int b = buf.get(pos++) & 0xFF;
+                length = (length << 7) | (b & 0x7F);
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (tag == 0x03) {
+                int flags = buf.get(pos + 2) & 0xFF;
+                pos += 3;
+                if ((flags & 0x80) != 0) {
+                    pos += 2;
+                }
+                if ((flags & 0x40) != 0) {
+                    pos += 1 + (buf.get(pos) & 0xFF);
+                }
+                if ((flags & 0x20) != 0) {
+                    pos += 2;
+                }
+            } else if (tag == 0x04 && pos + 13 <= end) {
+                int objectType = buf.get(pos) & 0xFF;
+                if (objectType == 0x69 || objectType == 0x6B) {
+                    track.codecName = "mp3";
+                } else if (objectType == 0xA5) {
+                    track.codecName = "ac3";
+                } else if (objectType == 0xA6) {
+                    track.codecName = "eac3";
+                }
+                track.bitRate = uint32(buf, pos + 9);
+                return;
+            } else {
+                pos += length;
+            }
+        }
+    }
+
+    private List<Box> children(Box parent) throws IOException {
+        List<Box> result = new ArrayList<>();
+        long pos = parent.contentStart;
+        while (pos + 8 <= parent.end) {
+            Box box = readBox(pos, parent.end);
+            if (box == null) {
+                break;
+            }
+            result.add(box);
+            pos = box.end;
+        }
+        return result;
+    }
+
+    private Box find(Box parent, String type) throws IOException {
+        for (Box box : children(parent)) {
+            if (type.equals(box.type)) {
+                return box;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取 box 头：32位大小 + 类型，大小为1时后跟64位大小，为0时延伸到父容器末尾
+     */
+    private Box readBox(long pos, long limit) throws IOException {
+        ByteBuffer header = readAt(pos, 16);
+        if (header.limit() < 8) {
+            return null;
+        }
+        long size = uint32(header, 0);
+        String type = fourcc(header, 4);
+        int headerSize = 8;
+        if (size == 1) {
+            if (header.limit() < 16) {
+                return null;
+            }
+            size = header.getLong(8);
+            headerSize = 16;
+        } else if (size == 0) {
+            size = limit - pos;
+        }
+        if (size < headerSize || pos + size > limit) {
+            return null;
+        }
+        return new Box(type, pos + headerSize, pos + size);
+    }
+
+    private ByteBuffer content(Box box, int maxBytes) throws IOException {
+        return readAt(box.contentStart, (int) Math.min(maxBytes, box.end - box.contentStart));
+    }
+
+    private ByteBuffer readAt(long pos, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.max(0, Math.min(length, fileSize - pos)));
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) {
+                break;
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+
+    private static long uint32(ByteBuffer buf, int index) {
+        return buf.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private static String fourcc(ByteBuffer buf, int index) {
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = buf.get(index + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String cString(ByteBuffer buf, int index) {
+        int end = index;
+        while (end < buf.limit() && buf.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - index];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(index + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    private static int indexOf(ByteBuffer buf, String type, int from, int to) {
+        for (int i = from; i + 4 <= to; i++) {
+            if (buf.get(i) == type.charAt(0) && fourcc(buf, i).equals(type)) {
+                return i - 4;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * mdhd 中的语言码：3个5位字符，每个加 0x60
+     */
+    private static String language(int packed) {
+        if (packed == 0 || packed == 0x7FFF) {
+            return "und";
+        }
+        char[] chars = {
+            (char) (((packed >> 10) & 0x1F) + 0x60),
+            (char) (((packed >> 5) & 0x1F) + 0x60),
+            (char) ((packed & 0x1F) + 0x60)
+        };
+        return new String(chars);
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    private static String rational(long num, long den) {
+        if (num <= 0 || den <= 0) {
+            return "0/0";
+        }
+        long g = gcd(num, den);
+        return (num / g) + "/" + (den / g);
+    }
+
+    private static final class Box {
+        final String type;
+        final long contentStart;
+        final long end;
+
+        Box(String type, long contentStart, long end) {
+            this.type = type;
+            this.contentStart = contentStart;
+            this.end = end;
+        }
+    }
+
+    /**
+     * 解析过程中累积的单轨信息
+     */
+    private static final class Track {
+        String handler;
+        String handlerName;
+        String fourcc;
+        String codecName;
+        String language = "und";
+        long timescale;
+        long duration;
+        long sampleCount;
+        long commonDelta;
+        long bitRate;
+        int width;
+        int height;
+        int displayWidth;
+        int displayHeight;
+        long sampleRate;
+        int channels;
+        int rotation;
+
+        StreamInfo toStreamInfo(int index) {
+            Map<String, String> props = new LinkedHashMap<>();
+            props.put("index", String.valueOf(index));
+            String codecType = codecType();
+            String name = codecName != null ? codecName : CODEC_NAMES.get(fourcc);
+            props.put("codec_name", name != null ? name : (fourcc != null ? fourcc.trim() : "unknown"));
+            props.put("codec_type", codecType);
+            if (fourcc != null) {
+                props.put("codec_tag_string", fourcc);
+            }
+            if (StreamInfo.TYPE_VIDEO.equals(codecType)) {
+                props.put("width", String.valueOf(width > 0 ? width : displayWidth));
+                props.put("height", String.valueOf(height > 0 ? height : displayHeight));
+                props.put("r_frame_rate", rational(timescale, commonDelta));
+                props.put("avg_frame_rate", rational(sampleCount * timescale, duration));
+            } else if (StreamInfo.TYPE_AUDIO.equals(codecType)) {
+                props.put("sample_rate", String.valueOf(sampleRate));
+                props.put("channels", String.valueOf(channels));
+            }
+            props.put("time_base", "1/" + timescale);
+            props.put("duration_ts", String.valueOf(duration));
+            props.put("duration", String.format(Locale.ROOT, "%.6f", (double) duration / timescale));
+            if (bitRate > 0) {
+                props.put("bit_rate", String.valueOf(bitRate));
+            }
+            if (sampleCount > 0) {
+                props.put("nb_frames", String.valueOf(sampleCount));
+            }
+
+            Map<String, String> tags = new LinkedHashMap<>();
+            tags.put("language", language);
+            if (handlerName != null && !handlerName.isEmpty()) {
+                tags.put("handler_name", handlerName);
+            }
+            return new StreamInfo(props, tags, rotation);
+        }
+
+        private String codecType() {
+            switch (handler) {
+                case "vide":
+                    return StreamInfo.TYPE_VIDEO;
+                case "soun":
+                    return StreamInfo.TYPE_AUDIO;
+                case "subt":
+                case "sbtl":
+                case "text":
+                    return StreamInfo.TYPE_SUBTITLE;
+                default:
+                    return "data";
+            }
+        }
+    }
+}
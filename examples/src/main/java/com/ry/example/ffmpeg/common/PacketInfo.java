@@ -0,0 +1,79 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ffprobe -show_packets 输出的单个数据包信息（不可变）
+ */
+public final class PacketInfo {
+    private final Map<String, String> properties;
+
+    private final String codecType;
+    private final int streamIndex;
+    private final long pts;
+    private final long dts;
+    private final double ptsTime;
+    private final double dtsTime;
+    private final double durationTime;
+    private final long size;
+    private final long pos;
+    private final String flags;
+
+    /**
+     * @param properties ffprobe 输出的字段（如 pts_time、size、flags）
+     */
+    public PacketInfo(Map<String, String> properties) {
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+
+        this.codecType = properties.getOrDefault("codec_type", "");
+        this.streamIndex = (int) StreamInfo.parseLong(properties.get("stream_index"));
+        this.pts = StreamInfo.parseLong(properties.get("pts"));
+        this.dts = StreamInfo.parseLong(properties.get("dts"));
+        this.ptsTime = StreamInfo.parseDouble(properties.get("pts_time"));
+        this.dtsTime = StreamInfo.parseDouble(properties.get("dts_time"));
+        this.durationTime = StreamInfo.parseDouble(properties.get("duration_time"));
+        this.size = StreamInfo.parseLong(properties.get("size"));
+        this.pos = StreamInfo.parseLong(properties.get("pos"));
+        this.flags = properties.getOrDefault("flags", "");
+    }
+
+    /**
+     * 是否为关键帧数据包（flags 含 K）
+     */
+    public boolean isKeyFrame() {
+        return flags.indexOf('K') >= 0;
+    }
+
+    /**
+     * 读取任意原始字段
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public Map<String, String> getProperties() { return properties; }
+    public String getCodecType() { return codecType; }
+    public int getStreamIndex() { return streamIndex; }
+    /** 时间戳（时间基准单位），未知时为 -1 */
+    public long getPts() { return pts; }
+    /** 解码时间戳（时间基准单位），未知时为 -1 */
+    public long getDts() { return dts; }
+    /** 显示时间（秒），未知时为 -1 */
+    public double getPtsTime() { return ptsTime; }
+    /** 解码时间（秒），未知时为 -1 */
+    public double getDtsTime() { return dtsTime; }
+    public double getDurationTime() { return durationTime; }
+    /** 数据大小（字节） */
+    public long getSize() { return size; }
+    /** 在文件中的字节偏移，未知时为 -1 */
+    public long getPos() { return pos; }
+    public String getFlags() { return flags; }
+
+    @Override
+    public String toString() {
+        return codecType + " #" + streamIndex + " pts=" + String.format("%.3f", ptsTime)
+                + " dts=" + String.format("%.3f", dtsTime) + " size=" + size + " pos=" + pos + " flags=" + flags;
+    }
+}
@@ -0,0 +1,305 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 原始 PCM（s16le）分析器
+ * 文件按帧对齐切成若干块，在 fork/join 线程池中并行处理；每块单独内存映射，
+ * 通过 ShortBuffer 视图批量读取到 short[] 后逐声道统计，一遍得到全部指标，结果见 {@link PcmStats}。
+ *
+ * 极值、和、平方和、削波计数在一个只有加法、乘法和比较的循环里完成，没有分支和对象分配，
+ * 单声道（步长为1）时 JIT 可以自动向量化；直方图按采样值散列写入，无法向量化，单独放在第二个循环，
+ * 不拖累前一个循环。映射按块进行，超过 2GB 的文件也能处理。
+ *
+ * 不需要落盘的场景使用 {@link #streaming()}，作为 {@link PcmPipeline} 的消费者边解码边统计。
+ */
+public final class PcmAnalyzer {
+
+    /** 默认直方图区间数 */
+    public static final int DEFAULT_HISTOGRAM_BINS = 64;
+
+    /** 每个任务处理的字节数上限 */
+    private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+
+    /** 从映射区批量复制到数组的采样数 */
+    private static final int BLOCK_SAMPLES = 16 * 1024;
+
+    private PcmAnalyzer() {
+    }
+
+    /**
+     * 分析 s16le 原始 PCM 文件
+     * @param pcmPath 文件路径
+     * @param sampleRate 采样率，只用于计算时长
+     * @param channels 声道数（交错存储）
+     * @throws IOException 文件读取失败
+     */
+    public static PcmStats analyze(String pcmPath, int sampleRate, int channels) throws IOException {
+        return analyze(pcmPath, sampleRate, channels, DEFAULT_HISTOGRAM_BINS);
+    }
+
+    /**
+     * 分析 s16le 原始 PCM 文件
+     * @param histogramBins 直方图区间数，必须是 2 的幂且不超过 65536
+     */
+    public static PcmStats analyze(String pcmPath, int sampleRate, int channels, int histogramBins)
+            throws IOException {
+        return analyze(pcmPath, 0, -1, sampleRate, channels, histogramBins);
+    }
+
+    /**
+     * 分析 WAV/RF64 文件或原始 PCM 的采样数据（由 {@link AudioHeader} 给出数据偏移和长度）
+     * @throws IllegalArgumentException 采样格式不是 s16le
+     * @throws IOException 文件读取失败
+     */
+    public static PcmStats analyze(AudioHeader header) throws IOException {
+        if (header.getEncoding() != AudioHeader.Encoding.S16LE) {
+            throw new IllegalArgumentException("只支持 s16le，实际为 " + header.getEncoding().getFormatName());
+        }
+        return analyze(header.getPath(), header.getDataOffset(), header.getDataBytes(),
+                header.getSampleRate(), header.getChannels(), DEFAULT_HISTOGRAM_BINS);
+    }
+
+    /**
+     * @param offset 采样数据的起始字节
+     * @param length 采样数据的字节数，-1 表示到文件末尾
+     */
+    private static PcmStats analyze(String pcmPath, long offset, long length, int sampleRate, int channels,
+                                    int histogramBins) throws IOException {
+        if (channels <= 0) {
+            throw new IllegalArgumentException("声道数必须大于0: " + channels);
+        }
+        checkHistogramBins(histogramBins);
+        int frameBytes = channels * 2;
+        int histogramShift = 16 - Integer.numberOfTrailingZeros(histogramBins);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(pcmPath), StandardOpenOption.READ)) {
+            long available = Math.max(0, channel.size() - offset);
+            long frames = (length < 0 ? available : Math.min(length, available)) / frameBytes;
+            long chunkBytes = Math.max(1, CHUNK_BYTES / frameBytes) * (long) frameBytes;
+            Accumulator total;
+            try {
+                total = ForkJoinPool.commonPool().invoke(new ChunkTask(channel, offset, offset + frames * frameBytes,
+                        chunkBytes, channels, histogramBins, histogramShift));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return total.toStats(sampleRate, frames);
+        }
+    }
+
+    /**
+     * 创建流式分析器（默认直方图区间数），在 {@link PcmPipeline} 结束后通过 {@link Streaming#getStats()} 取结果
+     */
+    public static Streaming streaming() {
+        return new Streaming(DEFAULT_HISTOGRAM_BINS);
+    }
+
+    private static void checkHistogramBins(int histogramBins) {
+        if (histogramBins <= 0 || histogramBins > 65536 || Integer.bitCount(histogramBins) != 1) {
+            throw new IllegalArgumentException("直方图区间数必须是不超过65536的2的幂: " + histogramBins);
+        }
+    }
+
+    /**
+     * 流式分析器：逐批累加，统计项与 {@link #analyze} 相同
+     */
+    public static final class Streaming implements PcmConsumer {
+        private final int histogramBins;
+        private final int histogramShift;
+        private int sampleRate;
+        private int channels;
+        private long samples;
+        private short[] block;
+        private Accumulator accumulator;
+        private volatile PcmStats stats;
+
+        /**
+         * @param histogramBins 直方图区间数，必须是 2 的幂且不超过 65536
+         */
+        public Streaming(int histogramBins) {
+            checkHistogramBins(histogramBins);
+            this.histogramBins = histogramBins;
+            this.histogramShift = 16 - Integer.numberOfTrailingZeros(histogramBins);
+        }
+
+        @Override
+        public void start(int sampleRate, int channels) {
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.samples = 0;
+            this.block = new short[(BLOCK_SAMPLES / channels) * channels];
+            this.accumulator = new Accumulator(channels, histogramBins);
+        }
+
+        @Override
+        public void accept(ShortBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                int count = Math.min(block.length, buffer.remaining());
+                buffer.get(block, 0, count);
+                accumulator.add(block, count, histogramShift);
+                samples += count;
+            }
+        }
+
+        @Override
+        public void finish() {
+            stats = accumulator.toStats(sampleRate, samples / channels);
+        }
+
+        /**
+         * 统计结果，流水线正常结束前为 null
+         */
+        public PcmStats getStats() {
+            return stats;
+        }
+    }
+
+    /**
+     * 按块二分，直到不超过 chunkBytes 后在当前线程处理
+     */
+    private static final class ChunkTask extends RecursiveTask<Accumulator> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long chunkBytes;
+        private final int channels;
+        private final int histogramBins;
+        private final int histogramShift;
+
+        ChunkTask(FileChannel channel, long start, long end, long chunkBytes,
+                  int channels, int histogramBins, int histogramShift) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.chunkBytes = chunkBytes;
+            this.channels = channels;
+            this.histogramBins = histogramBins;
+            this.histogramShift = histogramShift;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            long length = end - start;
+            if (length > chunkBytes) {
+                long middle = start + (length / chunkBytes / 2) * chunkBytes;
+                if (middle == start) {
+                    middle += chunkBytes;
+                }
+                ChunkTask left = new ChunkTask(channel, start, middle, chunkBytes,
+                        channels, histogramBins, histogramShift);
+                ChunkTask right = new ChunkTask(channel, middle, end, chunkBytes,
+                        channels, histogramBins, histogramShift);
+                left.fork();
+                Accumulator result = right.compute();
+                result.merge(left.join());
+                return result;
+            }
+
+            Accumulator accumulator = new Accumulator(channels, histogramBins);
+            if (length == 0) {
+                return accumulator;
+            }
+            try {
+                ShortBuffer samples = channel.map(FileChannel.MapMode.READ_ONLY, start, length)
+                        .order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                short[] block = new short[(BLOCK_SAMPLES / channels) * channels];
+                while (samples.hasRemaining()) {
+                    int count = Math.min(block.length, samples.remaining());
+                    samples.get(block, 0, count);
+                    accumulator.add(block, count, histogramShift);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return accumulator;
+        }
+    }
+
+    /**
+     * 单个任务的中间结果，可合并
+     */
+    private static final class Accumulator {
+        private final int channels;
+        private final int[] min;
+        private final int[] max;
+        private final long[] sum;
+        private final double[] sumOfSquares;
+        private final long[] clipped;
+        private final long[][] histogram;
+
+        Accumulator(int channels, int histogramBins) {
+            this.channels = channels;
+            this.min = new int[channels];
+            this.max = new int[channels];
+            this.sum = new long[channels];
+            this.sumOfSquares = new double[channels];
+            this.clipped = new long[channels];
+            this.histogram = new long[channels][histogramBins];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+        }
+
+        /**
+         * 统计一批交错采样，从声道0开始
+         */
+        void add(short[] block, int count, int histogramShift) {
+            for (int c = 0; c < channels; c++) {
+                int lo = min[c];
+                int hi = max[c];
+                long s = 0;
+                long squares = 0; // 一批最多 16K 个采样，平方和不会溢出
+                long clips = 0;
+                for (int i = c; i < count; i += channels) {
+                    int sample = block[i];
+                    lo = Math.min(lo, sample);
+                    hi = Math.max(hi, sample);
+                    s += sample;
+                    squares += sample * sample;
+                    clips += (sample >= Short.MAX_VALUE || sample <= Short.MIN_VALUE) ? 1 : 0;
+                }
+                long[] bins = histogram[c];
+                for (int i = c; i < count; i += channels) {
+                    bins[(block[i] + 32768) >>> histogramShift]++;
+                }
+                min[c] = lo;
+                max[c] = hi;
+                sum[c] += s;
+                sumOfSquares[c] += squares;
+                clipped[c] += clips;
+            }
+        }
+
+        void merge(Accumulator other) {
+            for (int c = 0; c < channels; c++) {
+                min[c] = Math.min(min[c], other.min[c]);
+                max[c] = Math.max(max[c], other.max[c]);
+                sum[c] += other.sum[c];
+                sumOfSquares[c] += other.sumOfSquares[c];
+                clipped[c] += other.clipped[c];
+                for (int b = 0; b < histogram[c].length; b++) {
+                    histogram[c][b] += other.histogram[c][b];
+                }
+            }
+        }
+
+        PcmStats toStats(int sampleRate, long frames) {
+            if (frames == 0) {
+                Arrays.fill(min, 0);
+                Arrays.fill(max, 0);
+            }
+            return new PcmStats(sampleRate, channels, frames, min, max, sum, sumOfSquares, clipped, histogram);
+        }
+    }
+}
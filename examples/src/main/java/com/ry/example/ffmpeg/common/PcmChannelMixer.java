@@ -0,0 +1,129 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+
+/**
+ * 声道混合矩阵，作为 {@link PcmPipeline} 中的一级，把混合后的数据转交给下游消费者
+ * 输出声道 o = Σ matrix[o][i] × 输入声道 i
+ */
+public class PcmChannelMixer implements PcmConsumer {
+
+    /** -3dB */
+    private static final double CENTER = Math.sqrt(0.5);
+
+    private final double[][] matrix;
+    private final PcmConsumer downstream;
+    private final int inputChannels;
+    private final int outputChannels;
+    private short[] output = new short[0];
+
+    /**
+     * @param matrix 混合系数 [输出声道][输入声道]
+     * @param downstream 接收混合结果的消费者
+     */
+    public PcmChannelMixer(double[][] matrix, PcmConsumer downstream) {
+        if (matrix.length == 0 || matrix[0].length == 0) {
+            throw new IllegalArgumentException("混合矩阵为空");
+        }
+        this.matrix = matrix;
+        this.downstream = downstream;
+        this.outputChannels = matrix.length;
+        this.inputChannels = matrix[0].length;
+    }
+
+    /**
+     * 使用 {@link #standardMatrix} 的常用声道转换
+     */
+    public static PcmChannelMixer forChannels(int inputChannels, int outputChannels, PcmConsumer downstream) {
+        return new PcmChannelMixer(standardMatrix(inputChannels, outputChannels), downstream);
+    }
+
+    /**
+     * {@link #standardMatrix} 是否支持该组合
+     */
+    public static boolean hasStandardMatrix(int inputChannels, int outputChannels) {
+        return inputChannels > 0 && outputChannels > 0
+                && (inputChannels == outputChannels || inputChannels == 1
+                    || (inputChannels == 2 && outputChannels == 1)
+                    || (inputChannels == 6 && (outputChannels == 2 || outputChannels == 1)));
+    }
+
+    /**
+     * 常用的声道转换矩阵：
+     * 相同声道数为单位矩阵；单声道复制到所有声道；立体声转单声道取平均；
+     * 5.1（FL FR FC LFE BL BR）转立体声按 ITU-R BS.775（中置和环绕 -3dB，舍弃 LFE，整体缩放避免削波），
+     * 5.1 转单声道为其立体声下混的平均
+     * @throws IllegalArgumentException 不支持的组合，此时需要自行提供矩阵
+     */
+    public static double[][] standardMatrix(int inputChannels, int outputChannels) {
+        double[][] matrix = new double[outputChannels][inputChannels];
+        if (inputChannels == outputChannels) {
+            for (int i = 0; i < inputChannels; i++) {
+                matrix[i][i] = 1.0;
+            }
+        } else if (inputChannels == 1) {
+            for (int o = 0; o < outputChannels; o++) {
+                matrix[o][0] = 1.0;
+            }
+        } else if (inputChannels == 2 && outputChannels == 1) {
+            matrix[0][0] = 0.5;
+            matrix[0][1] = 0.5;
+        } else if (inputChannels == 6 && (outputChannels == 2 || outputChannels == 1)) {
+            double scale = 1.0 / (1.0 + 2 * CENTER);
+            double[] left = {scale, 0, CENTER * scale, 0, CENTER * scale, 0};
+            double[] right = {0, scale, CENTER * scale, 0, 0, CENTER * scale};
+            if (outputChannels == 2) {
+                matrix[0] = left;
+                matrix[1] = right;
+            } else {
+                for (int i = 0; i < 6; i++) {
+                    matrix[0][i] = (left[i] + right[i]) / 2;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("不支持的声道转换: " + inputChannels + " -> " + outputChannels);
+        }
+        return matrix;
+    }
+
+    @Override
+    public void start(int sampleRate, int channels) throws IOException {
+        if (channels != inputChannels) {
+            throw new IllegalArgumentException("混合矩阵需要 " + inputChannels + " 个输入声道，实际为 " + channels);
+        }
+        downstream.start(sampleRate, outputChannels);
+    }
+
+    @Override
+    public void accept(ShortBuffer samples) throws IOException {
+        int frames = samples.remaining() / inputChannels;
+        if (output.length < frames * outputChannels) {
+            output = new short[frames * outputChannels];
+        }
+        int start = samples.position();
+        for (int f = 0; f < frames; f++) {
+            int in = start + f * inputChannels;
+            for (int o = 0; o < outputChannels; o++) {
+                double[] row = matrix[o];
+                double sum = 0;
+                for (int i = 0; i < inputChannels; i++) {
+                    sum += row[i] * samples.get(in + i);
+                }
+                long value = Math.round(sum);
+                output[f * outputChannels + o] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+        }
+        downstream.accept(ShortBuffer.wrap(output, 0, frames * outputChannels).asReadOnlyBuffer());
+    }
+
+    @Override
+    public void finish() throws IOException {
+        downstream.finish();
+    }
+
+    @Override
+    public void abort() {
+        downstream.abort();
+    }
+}
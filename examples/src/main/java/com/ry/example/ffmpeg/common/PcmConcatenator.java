@@ -0,0 +1,282 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * N 路 PCM/WAV 拼接，可在相邻文件之间交叉淡化
+ * 一遍顺序写出：每个文件不参与淡化的部分用 {@link FileChannel#transferTo} 整块复制，
+ * 只有交叉淡化窗口内的采样被读出并混合（线性曲线，与 acrossfade 的 c1=tri:c2=tri 相同）。
+ * 不解码、不生成中间文件，耗时与文件数量成线性关系且没有代际损失。
+ *
+ * 输入为 WAV 时要求所有文件的采样率、声道数和采样格式（16 位整数或 32 位浮点 PCM）一致，输出也为 WAV；
+ * 输入为原始 PCM 时用 {@link #rawFormat} 指定格式，输出也为原始 PCM。
+ */
+public class PcmConcatenator {
+
+    /** 交叉淡化时每次读取的帧数 */
+    private static final int CHUNK_FRAMES = 16 * 1024;
+
+    private double crossfadeSeconds;
+    private double appliedCrossfadeSeconds;
+    private int rawSampleRate;
+    private int rawChannels;
+    private PcmEffectChain.SampleFormat rawFormat;
+
+    /**
+     * 相邻文件之间的交叉淡化时长（秒），0 为直接拼接；
+     * 超过最短文件的长度（中间的文件为一半长度）时自动缩短
+     */
+    public PcmConcatenator crossfade(double seconds) {
+        this.crossfadeSeconds = Math.max(0.0, seconds);
+        return this;
+    }
+
+    /**
+     * 最近一次 {@link #concat} 实际使用的交叉淡化时长（秒）；输入过短时小于 {@link #crossfade} 设置的值
+     */
+    public double getAppliedCrossfade() {
+        return appliedCrossfadeSeconds;
+    }
+
+    /**
+     * 输入为不带文件头的原始 PCM 时指定格式
+     */
+    public PcmConcatenator rawFormat(int sampleRate, int channels, PcmEffectChain.SampleFormat format) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("参数无效: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.rawSampleRate = sampleRate;
+        this.rawChannels = channels;
+        this.rawFormat = format;
+        return this;
+    }
+
+    /**
+     * 检查文件是否都是格式一致的 PCM WAV，可以用 {@link #concat} 直接拼接
+     */
+    public static boolean isWavCompatible(List<String> inputs) {
+        Source first = null;
+        for (String input : inputs) {
+            try {
+                Source source = Source.wav(input);
+                if (first == null) {
+                    first = source;
+                } else if (!source.sameFormat(first)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return first != null;
+    }
+
+    /**
+     * 按顺序拼接
+     * @param inputs 输入文件，至少一个
+     * @param outputPath 输出文件（覆盖）
+     * @return 输出的帧数
+     * @throws IOException 读写失败，或输入格式不一致
+     */
+    public long concat(List<String> inputs, String outputPath) throws IOException {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("没有输入文件");
+        }
+        List<Source> sources = new ArrayList<>();
+        for (String input : inputs) {
+            Source source = rawFormat != null ? Source.raw(input, rawSampleRate, rawChannels, rawFormat) : Source.wav(input);
+            if (!sources.isEmpty() && !source.sameFormat(sources.get(0))) {
+                throw new IOException("输入格式不一致: " + input);
+            }
+            sources.add(source);
+        }
+        Source format = sources.get(0);
+        long window = crossfadeFrames(sources);
+        appliedCrossfadeSeconds = (double) window / format.sampleRate;
+        long totalFrames = -window * (sources.size() - 1);
+        for (Source source : sources) {
+            totalFrames += source.frames;
+        }
+
+        List<FileChannel> channels = new ArrayList<>();
+        try (FileChannel out = FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Source source : sources) {
+                channels.add(FileChannel.open(Paths.get(source.path), StandardOpenOption.READ));
+            }
+            if (rawFormat == null) {
+                SignalGenerator.writeFully(out, SignalGenerator.wavHeader(format.sampleRate, format.channels,
+                        format.format, totalFrames));
+            }
+            for (int i = 0; i < sources.size(); i++) {
+                Source source = sources.get(i);
+                long head = i > 0 ? window : 0;
+                long tail = i < sources.size() - 1 ? window : 0;
+                copy(channels.get(i), source.offset(head), (source.frames - head - tail) * source.frameBytes(), out);
+                if (tail > 0) {
+                    blend(channels.get(i), source.offset(source.frames - window),
+                          channels.get(i + 1), sources.get(i + 1).offset(0), window, format, out);
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+        return totalFrames;
+    }
+
+    /**
+     * 多个输入依次交叉淡化时允许的最大淡化长度：不超过首尾输入的长度和中间输入长度的一半，
+     * 保证相邻的两个淡化窗口不重叠
+     * @param lengths 各输入的长度（帧数或秒数均可），小于等于0表示未知，不参与限制
+     * @return 最大淡化长度，单位与参数相同；没有已知长度时为 Double.MAX_VALUE
+     */
+    public static double maxCrossfade(double[] lengths) {
+        double limit = Double.MAX_VALUE;
+        for (int i = 0; i < lengths.length; i++) {
+            if (lengths[i] <= 0) {
+                continue;
+            }
+            boolean middle = i > 0 && i < lengths.length - 1;
+            limit = Math.min(limit, middle ? lengths[i] / 2 : lengths[i]);
+        }
+        return limit;
+    }
+
+    /**
+     * 交叉淡化帧数，按 {@link #maxCrossfade(double[])} 限制
+     */
+    private long crossfadeFrames(List<Source> sources) {
+        if (sources.size() < 2 || crossfadeSeconds <= 0) {
+            return 0;
+        }
+        long requested = Math.round(crossfadeSeconds * sources.get(0).sampleRate);
+        double[] lengths = new double[sources.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = sources.get(i).frames;
+        }
+        long limit = (long) Math.floor(maxCrossfade(lengths));
+        return Math.min(requested, limit);
+    }
+
+    private static void copy(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long done = 0;
+        while (done < count) {
+            long n = in.transferTo(position + done, count - done, out);
+            if (n <= 0) {
+                throw new IOException("输入文件在拼接过程中被截断");
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * 第 k 帧（共 window 帧）：a × (1 - k/window) + b × k/window
+     */
+    private static void blend(FileChannel a, long positionA, FileChannel b, long positionB, long window,
+                              Source format, FileChannel out) throws IOException {
+        int frameBytes = format.frameBytes();
+        ByteBuffer bufferA = ByteBuffer.allocateDirect(CHUNK_FRAMES * frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer bufferB = ByteBuffer.allocateDirect(CHUNK_FRAMES * frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        boolean isFloat = format.format == PcmEffectChain.SampleFormat.F32LE;
+        for (long frame = 0; frame < window; frame += CHUNK_FRAMES) {
+            int frames = (int) Math.min(CHUNK_FRAMES, window - frame);
+            readFully(a, positionA + frame * frameBytes, bufferA, frames * frameBytes);
+            readFully(b, positionB + frame * frameBytes, bufferB, frames * frameBytes);
+            for (int f = 0; f < frames; f++) {
+                float t = (float) ((frame + f) / (double) window);
+                for (int c = 0; c < format.channels; c++) {
+                    if (isFloat) {
+                        int index = (f * format.channels + c) * 4;
+                        bufferA.putFloat(index, bufferA.getFloat(index) * (1 - t) + bufferB.getFloat(index) * t);
+                    } else {
+                        int index = (f * format.channels + c) * 2;
+                        int value = Math.round(bufferA.getShort(index) * (1 - t) + bufferB.getShort(index) * t);
+                        bufferA.putShort(index, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value)));
+                    }
+                }
+            }
+            bufferA.position(0).limit(frames * frameBytes);
+            SignalGenerator.writeFully(out, bufferA);
+        }
+    }
+
+    private static void readFully(FileChannel channel, long position, ByteBuffer buffer, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("输入文件在拼接过程中被截断");
+            }
+        }
+    }
+
+    /**
+     * 一个输入文件的采样数据范围
+     */
+    private static final class Source {
+        final String path;
+        final long dataOffset;
+        final long frames;
+        final int sampleRate;
+        final int channels;
+        final PcmEffectChain.SampleFormat format;
+
+        Source(String path, long dataOffset, long frames, int sampleRate, int channels,
+               PcmEffectChain.SampleFormat format) {
+            this.path = path;
+            this.dataOffset = dataOffset;
+            this.frames = frames;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+            this.format = format;
+        }
+
+        static Source raw(String path, int sampleRate, int channels, PcmEffectChain.SampleFormat format)
+                throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                return new Source(path, 0, channel.size() / ((long) channels * format.getBytes()),
+                        sampleRate, channels, format);
+            }
+        }
+
+        /**
+         * 由 {@link AudioHeader} 读取 WAV/RF64 文件头，只支持 16 位整数和 32 位浮点
+         */
+        static Source wav(String path) throws IOException {
+            AudioHeader header = AudioHeader.read(path);
+            if (header == null || header.getContainer() == AudioHeader.Container.AIFF) {
+                throw new IOException("不是PCM WAV文件: " + path);
+            }
+            PcmEffectChain.SampleFormat format;
+            if (header.getEncoding() == AudioHeader.Encoding.S16LE) {
+                format = PcmEffectChain.SampleFormat.S16LE;
+            } else if (header.getEncoding() == AudioHeader.Encoding.F32LE) {
+                format = PcmEffectChain.SampleFormat.F32LE;
+            } else {
+                throw new IOException("不支持的WAV采样格式(" + header.getEncoding().getFormatName() + "): " + path);
+            }
+            return new Source(path, header.getDataOffset(), header.getFrameCount(),
+                    header.getSampleRate(), header.getChannels(), format);
+        }
+
+        int frameBytes() {
+            return channels * format.getBytes();
+        }
+
+        long offset(long frame) {
+            return dataOffset + frame * frameBytes();
+        }
+
+        boolean sameFormat(Source other) {
+            return sampleRate == other.sampleRate && channels == other.channels && format == other.format;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PCM 流的消费者（分析、混音、写文件等），由 {@link PcmPipeline} 在独立线程中调用
+ */
+public interface PcmConsumer {
+
+    /**
+     * 第一批数据之前调用
+     */
+    default void start(int sampleRate, int channels) throws IOException {
+    }
+
+    /**
+     * 处理一批交错存储的 16 位采样
+     * @param samples 只读视图，只在本次调用内有效，需要保留时自行复制
+     */
+    void accept(ShortBuffer samples) throws IOException;
+
+    /**
+     * 数据结束后调用；前面出错时不会调用
+     */
+    default void finish() throws IOException {
+    }
+
+    /**
+     * 出错或流水线中止、没有正常 finish 时调用，用于释放文件等资源；不应抛出异常
+     */
+    default void abort() {
+    }
+
+    /**
+     * 把收到的采样按 s16le 写入文件
+     */
+    static PcmConsumer writeTo(String path) {
+        return new PcmConsumer() {
+            private FileChannel channel;
+            private ByteBuffer bytes;
+
+            @Override
+            public void start(int sampleRate, int channels) throws IOException {
+                channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            }
+
+            @Override
+            public void accept(ShortBuffer samples) throws IOException {
+                int length = samples.remaining() * 2;
+                if (bytes == null || bytes.capacity() < length) {
+                    bytes = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                bytes.clear();
+                bytes.asShortBuffer().put(samples);
+                bytes.limit(length);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+
+            @Override
+            public void finish() throws IOException {
+                channel.close();
+            }
+
+            @Override
+            public void abort() {
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException e) {
+                        // 已经在出错路径上，关闭失败不再上报
+                    }
+                }
+            }
+        };
+    }
+}
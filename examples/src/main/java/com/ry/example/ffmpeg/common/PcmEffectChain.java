@@ -0,0 +1,433 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 纯 Java 的 PCM 效果链（增益、淡入淡出、反转、标准化、去直流），处理原始 s16le/f32le 数据
+ * 不启动 ffmpeg 进程，短音频的简单处理在微秒到毫秒级完成。
+ *
+ * 全部效果合并为一次逐采样运算 (x - 直流偏移) × 增益(帧位置)，再按需反转帧顺序：
+ * <ul>
+ *   <li>文件：分块内存映射后原地修改，或写入另一个文件；反转时从文件末尾向前逐块映射</li>
+ *   <li>流：{@link #process(ShortBuffer, long, long)} 直接修改缓冲区，可在 {@link PcmConsumer} 中使用</li>
+ * </ul>
+ * 标准化和去直流需要先统计整段音频：处理文件时自动多扫描一遍，处理流时先调用 {@link #prepare(PcmStats)}。
+ */
+public class PcmEffectChain {
+
+    /**
+     * 采样格式
+     */
+    public enum SampleFormat {
+        S16LE(2, 32768.0),
+        F32LE(4, 1.0);
+
+        private final int bytes;
+        private final double fullScale;
+
+        SampleFormat(int bytes, double fullScale) {
+            this.bytes = bytes;
+            this.fullScale = fullScale;
+        }
+
+        public int getBytes() { return bytes; }
+    }
+
+    /**
+     * 淡入淡出曲线
+     */
+    public enum FadeCurve {
+        LINEAR,      // 幅度线性变化
+        LOGARITHMIC  // 电平从 -60dB 线性变化到 0dB，听感更均匀
+    }
+
+    /** 每次映射的帧数 */
+    private static final int CHUNK_FRAMES = 64 * 1024;
+
+    private final int sampleRate;
+    private final int channels;
+    private final SampleFormat format;
+
+    private double gain = 1.0;
+    private double fadeInSeconds;
+    private FadeCurve fadeInCurve = FadeCurve.LINEAR;
+    private double fadeOutSeconds;
+    private FadeCurve fadeOutCurve = FadeCurve.LINEAR;
+    private boolean reverse;
+    private boolean removeDc;
+    private double normalizeDbfs = Double.NaN;
+
+    /** prepare 之后的直流偏移（原始单位）与标准化增益 */
+    private double[] dcOffset;
+    private double normalizeGain = 1.0;
+    private boolean prepared;
+
+    /**
+     * @param sampleRate 采样率，用于把淡入淡出时长换算成帧数
+     * @param channels 声道数（交错存储）
+     * @param format 采样格式
+     */
+    public PcmEffectChain(int sampleRate, int channels, SampleFormat format) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("参数无效: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.format = format;
+    }
+
+    /**
+     * 增益（dB），可多次调用叠加
+     */
+    public PcmEffectChain gain(double db) {
+        gain *= Math.pow(10, db / 20);
+        return this;
+    }
+
+    public PcmEffectChain fadeIn(double seconds, FadeCurve curve) {
+        fadeInSeconds = seconds;
+        fadeInCurve = curve;
+        return this;
+    }
+
+    public PcmEffectChain fadeOut(double seconds, FadeCurve curve) {
+        fadeOutSeconds = seconds;
+        fadeOutCurve = curve;
+        return this;
+    }
+
+    /**
+     * 标准化：整体缩放使峰值达到 targetDbfs（在其他增益之后生效，替代它们的总和）
+     */
+    public PcmEffectChain normalize(double targetDbfs) {
+        normalizeDbfs = targetDbfs;
+        prepared = false;
+        return this;
+    }
+
+    /**
+     * 去除每个声道的直流偏移（减去平均值）
+     */
+    public PcmEffectChain removeDc() {
+        removeDc = true;
+        prepared = false;
+        return this;
+    }
+
+    /**
+     * 反转帧顺序；淡入淡出按反转后的时间轴计算
+     */
+    public PcmEffectChain reverse() {
+        reverse = true;
+        return this;
+    }
+
+    /**
+     * 用已有的统计结果计算直流偏移和标准化增益，处理流之前调用
+     */
+    public void prepare(PcmStats stats) {
+        double[] min = new double[channels];
+        double[] max = new double[channels];
+        double[] mean = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            min[c] = stats.getMin(c) / 32768.0 * format.fullScale;
+            max[c] = stats.getMax(c) / 32768.0 * format.fullScale;
+            mean[c] = stats.getDcOffset(c) * format.fullScale;
+        }
+        prepare(min, max, mean);
+    }
+
+    private void prepare(double[] min, double[] max, double[] mean) {
+        dcOffset = new double[channels];
+        double peak = 0;
+        for (int c = 0; c < channels; c++) {
+            dcOffset[c] = removeDc ? mean[c] : 0.0;
+            peak = Math.max(peak, Math.max(max[c] - dcOffset[c], dcOffset[c] - min[c]));
+        }
+        normalizeGain = 1.0;
+        if (!Double.isNaN(normalizeDbfs) && peak > 0) {
+            normalizeGain = Math.pow(10, normalizeDbfs / 20) * format.fullScale / peak / gain;
+        }
+        prepared = true;
+    }
+
+    /**
+     * 原地处理文件
+     * @param path 原始 PCM 文件
+     * @throws IOException 读写失败
+     */
+    public void applyInPlace(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long totalFrames = channel.size() / frameBytes();
+            prepareFromFile(channel, totalFrames);
+            float[] front = new float[CHUNK_FRAMES * channels];
+            if (!reverse) {
+                for (long frame = 0; frame < totalFrames; frame += CHUNK_FRAMES) {
+                    int frames = (int) Math.min(CHUNK_FRAMES, totalFrames - frame);
+                    MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, frame, frames);
+                    decode(buffer, front, frames);
+                    apply(front, frames, frame, totalFrames);
+                    buffer.clear();
+                    encode(front, frames, buffer);
+                }
+                return;
+            }
+
+            // 反转：两端各映射一块，交换后各自按新位置处理，向中间推进
+            float[] back = new float[CHUNK_FRAMES * channels];
+            long low = 0;
+            long high = totalFrames;
+            while (high - low > 1) {
+                int frames = (int) Math.min(CHUNK_FRAMES, (high - low) / 2);
+                MappedByteBuffer head = map(channel, FileChannel.MapMode.READ_WRITE, low, frames);
+                MappedByteBuffer tail = map(channel, FileChannel.MapMode.READ_WRITE, high - frames, frames);
+                decode(head, front, frames);
+                decode(tail, back, frames);
+                reverseFrames(front, frames);
+                reverseFrames(back, frames);
+                apply(back, frames, low, totalFrames);
+                apply(front, frames, high - frames, totalFrames);
+                head.clear();
+                tail.clear();
+                encode(back, frames, head);
+                encode(front, frames, tail);
+                low += frames;
+                high -= frames;
+            }
+            if (high - low == 1) {
+                MappedByteBuffer middle = map(channel, FileChannel.MapMode.READ_WRITE, low, 1);
+                decode(middle, front, 1);
+                apply(front, 1, low, totalFrames);
+                middle.clear();
+                encode(front, 1, middle);
+            }
+        }
+    }
+
+    /**
+     * 处理文件并写入另一个文件；两者相同时原地处理
+     * @param inputPath 输入 PCM 文件
+     * @param outputPath 输出 PCM 文件（覆盖）
+     * @throws IOException 读写失败
+     */
+    public void apply(String inputPath, String outputPath) throws IOException {
+        Path input = Paths.get(inputPath);
+        Path output = Paths.get(outputPath);
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            applyInPlace(inputPath);
+            return;
+        }
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long totalFrames = in.size() / frameBytes();
+            prepareFromFile(in, totalFrames);
+            float[] samples = new float[CHUNK_FRAMES * channels];
+            ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_FRAMES * frameBytes()).order(ByteOrder.LITTLE_ENDIAN);
+            for (long written = 0; written < totalFrames; ) {
+                int frames = (int) Math.min(CHUNK_FRAMES, totalFrames - written);
+                // 反转时从文件末尾向前逐块映射
+                long source = reverse ? totalFrames - written - frames : written;
+                decode(map(in, FileChannel.MapMode.READ_ONLY, source, frames), samples, frames);
+                if (reverse) {
+                    reverseFrames(samples, frames);
+                }
+                apply(samples, frames, written, totalFrames);
+                bytes.clear();
+                encode(samples, frames, bytes);
+                bytes.flip();
+                while (bytes.hasRemaining()) {
+                    out.write(bytes);
+                }
+                written += frames;
+            }
+        }
+    }
+
+    /**
+     * 原地处理一批 s16 交错采样（position 到 limit）；不支持反转
+     * @param firstFrame 这批采样第一帧在整段音频中的位置
+     * @param totalFrames 整段音频的帧数，用于计算淡出位置；未知时传 -1 忽略淡出
+     */
+    public void process(ShortBuffer samples, long firstFrame, long totalFrames) {
+        checkStreamable(SampleFormat.S16LE);
+        int start = samples.position();
+        int frames = samples.remaining() / channels;
+        for (int f = 0; f < frames; f++) {
+            double g = gainAt(firstFrame + f, totalFrames);
+            for (int c = 0; c < channels; c++) {
+                int index = start + f * channels + c;
+                samples.put(index, toShort((samples.get(index) - dcOffset[c]) * g));
+            }
+        }
+    }
+
+    /**
+     * 原地处理一批 f32 交错采样（position 到 limit）；不支持反转
+     */
+    public void process(FloatBuffer samples, long firstFrame, long totalFrames) {
+        checkStreamable(SampleFormat.F32LE);
+        int start = samples.position();
+        int frames = samples.remaining() / channels;
+        for (int f = 0; f < frames; f++) {
+            double g = gainAt(firstFrame + f, totalFrames);
+            for (int c = 0; c < channels; c++) {
+                int index = start + f * channels + c;
+                samples.put(index, (float) ((samples.get(index) - dcOffset[c]) * g));
+            }
+        }
+    }
+
+    private void checkStreamable(SampleFormat bufferFormat) {
+        if (bufferFormat != format) {
+            throw new IllegalStateException("缓冲区格式与效果链不一致: " + bufferFormat + " / " + format);
+        }
+        if (reverse) {
+            throw new IllegalStateException("流式处理不支持反转");
+        }
+        if (!prepared) {
+            if (removeDc || !Double.isNaN(normalizeDbfs)) {
+                throw new IllegalStateException("标准化和去直流需要先调用prepare(PcmStats)");
+            }
+            dcOffset = new double[channels];
+            normalizeGain = 1.0;
+            prepared = true;
+        }
+    }
+
+    /**
+     * 需要时先扫描一遍文件，得到每个声道的最小值、最大值和平均值
+     */
+    private void prepareFromFile(FileChannel channel, long totalFrames) throws IOException {
+        double[] min = new double[channels];
+        double[] max = new double[channels];
+        double[] mean = new double[channels];
+        if ((removeDc || !Double.isNaN(normalizeDbfs)) && totalFrames > 0) {
+            double[] sum = new double[channels];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            float[] samples = new float[CHUNK_FRAMES * channels];
+            for (long frame = 0; frame < totalFrames; frame += CHUNK_FRAMES) {
+                int frames = (int) Math.min(CHUNK_FRAMES, totalFrames - frame);
+                decode(map(channel, FileChannel.MapMode.READ_ONLY, frame, frames), samples, frames);
+                for (int i = 0; i < frames * channels; i++) {
+                    int c = i % channels;
+                    min[c] = Math.min(min[c], samples[i]);
+                    max[c] = Math.max(max[c], samples[i]);
+                    sum[c] += samples[i];
+                }
+            }
+            for (int c = 0; c < channels; c++) {
+                mean[c] = sum[c] / totalFrames;
+            }
+        }
+        prepare(min, max, mean);
+    }
+
+    /**
+     * 对一块按输出顺序排列的帧应用直流偏移和增益
+     * @param firstFrame 第一帧在输出中的位置
+     */
+    private void apply(float[] samples, int frames, long firstFrame, long totalFrames) {
+        boolean clamp = format == SampleFormat.S16LE;
+        for (int f = 0; f < frames; f++) {
+            double g = gainAt(firstFrame + f, totalFrames);
+            for (int c = 0; c < channels; c++) {
+                int i = f * channels + c;
+                double value = (samples[i] - dcOffset[c]) * g;
+                samples[i] = clamp ? toShort(value) : (float) value;
+            }
+        }
+    }
+
+    /**
+     * 第 frame 帧的总增益
+     */
+    private double gainAt(long frame, long totalFrames) {
+        double g = gain * normalizeGain;
+        long fadeInFrames = Math.round(fadeInSeconds * sampleRate);
+        if (frame < fadeInFrames) {
+            g *= curve(fadeInCurve, (double) frame / fadeInFrames);
+        }
+        long fadeOutFrames = Math.round(fadeOutSeconds * sampleRate);
+        if (totalFrames > 0 && frame >= totalFrames - fadeOutFrames) {
+            g *= curve(fadeOutCurve, (double) (totalFrames - 1 - frame) / fadeOutFrames);
+        }
+        return g;
+    }
+
+    private static double curve(FadeCurve curve, double position) {
+        if (position <= 0) {
+            return 0.0;
+        }
+        if (position >= 1) {
+            return 1.0;
+        }
+        return curve == FadeCurve.LOGARITHMIC ? Math.pow(10, 3 * (position - 1)) : position;
+    }
+
+    private static short toShort(double value) {
+        long rounded = Math.round(value);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded));
+    }
+
+    private void reverseFrames(float[] samples, int frames) {
+        for (int left = 0, right = frames - 1; left < right; left++, right--) {
+            for (int c = 0; c < channels; c++) {
+                float temp = samples[left * channels + c];
+                samples[left * channels + c] = samples[right * channels + c];
+                samples[right * channels + c] = temp;
+            }
+        }
+    }
+
+    private MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long frame, int frames)
+            throws IOException {
+        MappedByteBuffer buffer = channel.map(mode, frame * frameBytes(), (long) frames * frameBytes());
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private void decode(ByteBuffer source, float[] samples, int frames) {
+        int count = frames * channels;
+        if (format == SampleFormat.S16LE) {
+            ShortBuffer view = source.asShortBuffer();
+            for (int i = 0; i < count; i++) {
+                samples[i] = view.get(i);
+            }
+        } else {
+            source.asFloatBuffer().get(samples, 0, count);
+        }
+    }
+
+    /**
+     * 写回缓冲区（从 position 开始），s16 的值已在 apply 中取整并限幅
+     */
+    private void encode(float[] samples, int frames, ByteBuffer target) {
+        int count = frames * channels;
+        if (format == SampleFormat.S16LE) {
+            for (int i = 0; i < count; i++) {
+                target.putShort((short) samples[i]);
+            }
+        } else {
+            target.asFloatBuffer().put(samples, 0, count);
+            target.position(target.position() + count * 4);
+        }
+    }
+
+    private int frameBytes() {
+        return channels * format.bytes;
+    }
+}
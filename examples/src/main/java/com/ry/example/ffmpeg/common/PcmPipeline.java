@@ -0,0 +1,288 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 内存中的 PCM 流水线
+ * 解码线程调用 {@link #write} 把采样复制进固定数量的可复用缓冲区，每个 {@link PcmConsumer} 在各自的线程中读取，
+ * 所有消费者都处理完一块后该块才回到空闲队列。缓冲区用完时 write 会阻塞，
+ * 因此最慢的消费者决定解码速度（背压），内存占用固定为 缓冲区数 × 每块大小。
+ *
+ * 用法：
+ * <pre>
+ * try (PcmPipeline pipeline = new PcmPipeline(44100, 2)) {
+ *     pipeline.addConsumer(analyzer).addConsumer(PcmConsumer.writeTo("out.pcm")).start();
+ *     while (...) pipeline.write(samples);
+ *     pipeline.finish();
+ * }
+ * </pre>
+ */
+public class PcmPipeline implements AutoCloseable {
+
+    /** 默认每块 4096 帧 */
+    public static final int DEFAULT_BLOCK_FRAMES = 4096;
+
+    /** 默认缓冲区数量 */
+    public static final int DEFAULT_RING_SIZE = 16;
+
+    /** writeFile 每次映射的帧数 */
+    private static final int FILE_CHUNK_FRAMES = 256 * 1024;
+
+    /** 结束标记 */
+    private static final Block END = new Block(0);
+
+    private final int sampleRate;
+    private final int channels;
+    private final int ringSize;
+    private final BlockingQueue<Block> free;
+    private final List<PcmConsumer> consumers = new ArrayList<>();
+    private final List<BlockingQueue<Block>> queues = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Block current;
+    private boolean started;
+    private boolean finished;
+
+    public PcmPipeline(int sampleRate, int channels) {
+        this(sampleRate, channels, DEFAULT_BLOCK_FRAMES, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param sampleRate 采样率
+     * @param channels 声道数（交错存储）
+     * @param blockFrames 每块缓冲区的帧数
+     * @param ringSize 缓冲区数量，至少2个
+     */
+    public PcmPipeline(int sampleRate, int channels, int blockFrames, int ringSize) {
+        if (channels <= 0 || blockFrames <= 0 || ringSize < 2) {
+            throw new IllegalArgumentException("参数无效: channels=" + channels
+                    + ", blockFrames=" + blockFrames + ", ringSize=" + ringSize);
+        }
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.ringSize = ringSize;
+        this.free = new ArrayBlockingQueue<>(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            free.add(new Block(blockFrames * channels));
+        }
+    }
+
+    /**
+     * 添加消费者，必须在 {@link #start()} 之前调用
+     */
+    public PcmPipeline addConsumer(PcmConsumer consumer) {
+        if (started) {
+            throw new IllegalStateException("流水线已启动");
+        }
+        consumers.add(consumer);
+        return this;
+    }
+
+    /**
+     * 为每个消费者启动读取线程
+     */
+    public void start() {
+        if (started) {
+            throw new IllegalStateException("流水线已启动");
+        }
+        started = true;
+        for (int i = 0; i < consumers.size(); i++) {
+            PcmConsumer consumer = consumers.get(i);
+            BlockingQueue<Block> queue = new ArrayBlockingQueue<>(ringSize + 1);
+            Thread thread = new Thread(() -> consume(consumer, queue), "pcm-consumer-" + i);
+            thread.setDaemon(true);
+            queues.add(queue);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * 写入一批交错存储的采样（从 position 到 limit，不改变参数的 position）；没有空闲缓冲区时阻塞
+     * @throws IOException 某个消费者已经出错
+     * @throws InterruptedException 等待空闲缓冲区时线程被中断
+     */
+    public void write(ShortBuffer samples) throws IOException, InterruptedException {
+        if (!started || finished) {
+            throw new IllegalStateException("流水线未启动或已结束");
+        }
+        ShortBuffer source = samples.duplicate();
+        while (source.hasRemaining()) {
+            checkFailure();
+            if (current == null) {
+                current = free.take();
+                current.length = 0;
+            }
+            int count = Math.min(source.remaining(), current.data.length - current.length);
+            source.get(current.data, current.length, count);
+            current.length += count;
+            if (current.length == current.data.length) {
+                publish();
+            }
+        }
+    }
+
+    /**
+     * 写入 s16le 原始 PCM 文件的全部内容，按块内存映射读取
+     * @throws IOException 读取失败或某个消费者已经出错
+     * @throws InterruptedException 等待空闲缓冲区时线程被中断
+     */
+    public void writeFile(String pcmPath) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(Paths.get(pcmPath), StandardOpenOption.READ)) {
+            long frameBytes = channels * 2L;
+            long length = channel.size() / frameBytes * frameBytes;
+            long chunkBytes = FILE_CHUNK_FRAMES * frameBytes;
+            for (long position = 0; position < length; position += chunkBytes) {
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(chunkBytes, length - position));
+                write(chunk.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer());
+            }
+        }
+    }
+
+    /**
+     * 发送剩余数据并等待所有消费者处理完毕
+     * @throws IOException 某个消费者出错时抛出第一个错误
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public void finish() throws IOException, InterruptedException {
+        if (!started || finished) {
+            throw new IllegalStateException("流水线未启动或已结束");
+        }
+        if (current != null && current.length > 0) {
+            publish();
+        }
+        finished = true;
+        for (BlockingQueue<Block> queue : queues) {
+            queue.put(END);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        checkFailure();
+    }
+
+    /**
+     * 未正常结束时中止所有消费者线程
+     */
+    @Override
+    public void close() {
+        if (started && !finished) {
+            finished = true;
+            failure.compareAndSet(null, new IOException("流水线已中止"));
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+
+    private void publish() throws InterruptedException {
+        Block block = current;
+        current = null;
+        if (queues.isEmpty()) {
+            free.put(block);
+            return;
+        }
+        block.pending.set(queues.size());
+        for (BlockingQueue<Block> queue : queues) {
+            queue.put(block);
+        }
+    }
+
+    /**
+     * 消费者线程：出错后继续取出并释放缓冲区，不让生产者卡住，由 write/finish 把错误抛给调用方；
+     * 没有正常 finish 的消费者最后调用 {@link PcmConsumer#abort()} 释放资源
+     */
+    private void consume(PcmConsumer consumer, BlockingQueue<Block> queue) {
+        boolean healthy = true;
+        boolean finished = false;
+        try {
+            consumer.start(sampleRate, channels);
+        } catch (Throwable e) {
+            healthy = fail(e);
+        }
+        try {
+            while (true) {
+                Block block = queue.take();
+                if (block == END) {
+                    break;
+                }
+                try {
+                    if (healthy) {
+                        ShortBuffer view = ShortBuffer.wrap(block.data, 0, block.length).asReadOnlyBuffer();
+                        consumer.accept(view);
+                    }
+                } catch (Throwable e) {
+                    healthy = fail(e);
+                } finally {
+                    if (block.pending.decrementAndGet() == 0) {
+                        free.put(block);
+                    }
+                }
+            }
+            if (healthy && failure.get() == null) {
+                consumer.finish();
+                finished = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            if (!finished) {
+                abort(consumer);
+            }
+        }
+    }
+
+    private static void abort(PcmConsumer consumer) {
+        try {
+            consumer.abort();
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean fail(Throwable e) {
+        failure.compareAndSet(null, e);
+        return false;
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error != null) {
+            throw new IOException("PCM消费者处理失败", error);
+        }
+    }
+
+    /**
+     * 可复用的缓冲区
+     */
+    private static final class Block {
+        final short[] data;
+        final AtomicInteger pending = new AtomicInteger();
+        int length;
+
+        Block(int capacity) {
+            this.data = new short[capacity];
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 多相 FIR 重采样器，作为 {@link PcmPipeline} 中的一级，把重采样后的数据转交给下游消费者
+ *
+ * 采样率之比约分为 L/M（如 44100→48000 为 160/147），预先计算 L 组相位的滤波器系数
+ * （Kaiser 窗的 sinc，截止频率取两侧较低奈奎斯特频率的 95%，每组系数归一化为单位直流增益），
+ * 每个输出采样只需一组系数与输入窗口做一次点积。输入前后补零，输出与输入对齐且不丢尾部。
+ */
+public class PcmResampler implements PcmConsumer {
+
+    /** 默认每侧的过零点数，越大过渡带越窄 */
+    public static final int DEFAULT_ZERO_CROSSINGS = 32;
+
+    /** 相位数上限，超过时说明两个采样率几乎互质，系数表会过大 */
+    private static final int MAX_PHASES = 8192;
+
+    private static final double KAISER_BETA = 9.0;
+    private static final double ROLLOFF = 0.95;
+
+    /** 每次转交给下游的最大帧数 */
+    private static final int OUTPUT_FRAMES = 4096;
+
+    private final int outputRate;
+    private final int zeroCrossings;
+    private final PcmConsumer downstream;
+
+    private int channels;
+    private boolean passThrough;
+    private int upFactor;
+    private int downFactor;
+    private int halfTaps;
+    private int taps;
+    private float[] bank;
+
+    private float[] buffer;
+    private int bufferFrames;
+    private long bufferStart;
+    private long inputFrames;
+    private long nextOutput;
+    private short[] output;
+
+    public PcmResampler(int outputRate, PcmConsumer downstream) {
+        this(outputRate, DEFAULT_ZERO_CROSSINGS, downstream);
+    }
+
+    /**
+     * @param outputRate 输出采样率
+     * @param zeroCrossings 每侧的过零点数（8 为快速，32 为高质量）
+     * @param downstream 接收重采样结果的消费者
+     */
+    public PcmResampler(int outputRate, int zeroCrossings, PcmConsumer downstream) {
+        if (outputRate <= 0 || zeroCrossings <= 0) {
+            throw new IllegalArgumentException("参数无效: outputRate=" + outputRate + ", zeroCrossings=" + zeroCrossings);
+        }
+        this.outputRate = outputRate;
+        this.zeroCrossings = zeroCrossings;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public void start(int sampleRate, int channels) throws IOException {
+        this.channels = channels;
+        this.passThrough = sampleRate == outputRate;
+        if (!passThrough) {
+            int divisor = gcd(sampleRate, outputRate);
+            upFactor = outputRate / divisor;
+            downFactor = sampleRate / divisor;
+            if (upFactor > MAX_PHASES) {
+                throw new IllegalArgumentException("采样率之比过于复杂: " + sampleRate + " -> " + outputRate);
+            }
+            buildBank();
+
+            // 开头补 halfTaps-1 个零，第一个输出采样的窗口从负的下标开始
+            bufferFrames = halfTaps - 1;
+            bufferStart = -(halfTaps - 1);
+            buffer = new float[(taps + OUTPUT_FRAMES) * channels];
+            inputFrames = 0;
+            nextOutput = 0;
+            output = new short[OUTPUT_FRAMES * channels];
+        }
+        downstream.start(outputRate, channels);
+    }
+
+    @Override
+    public void accept(ShortBuffer samples) throws IOException {
+        if (passThrough) {
+            downstream.accept(samples);
+            return;
+        }
+        int frames = samples.remaining() / channels;
+        ensureCapacity(bufferFrames + frames);
+        int offset = bufferFrames * channels;
+        for (int i = 0; i < frames * channels; i++) {
+            buffer[offset + i] = samples.get();
+        }
+        bufferFrames += frames;
+        inputFrames += frames;
+        produce(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (!passThrough) {
+            // 结尾补零，输出帧数为 ceil(输入帧数 × L / M)
+            ensureCapacity(bufferFrames + halfTaps);
+            Arrays.fill(buffer, bufferFrames * channels, (bufferFrames + halfTaps) * channels, 0f);
+            bufferFrames += halfTaps;
+            produce((inputFrames * upFactor + downFactor - 1) / downFactor);
+        }
+        downstream.finish();
+    }
+
+    @Override
+    public void abort() {
+        downstream.abort();
+    }
+
+    /**
+     * 生成输入已足够覆盖窗口的输出采样，最多到 limit（不含）
+     */
+    private void produce(long limit) throws IOException {
+        int produced = 0;
+        while (nextOutput < limit) {
+            long position = nextOutput * downFactor;
+            long base = position / upFactor;
+            if (base + halfTaps >= bufferStart + bufferFrames) {
+                break;
+            }
+            int phase = (int) (position % upFactor);
+            int offset = (int) (base - halfTaps + 1 - bufferStart) * channels;
+            int coefficients = phase * taps;
+            for (int c = 0; c < channels; c++) {
+                float sum = 0f;
+                for (int j = 0, index = offset + c; j < taps; j++, index += channels) {
+                    sum += bank[coefficients + j] * buffer[index];
+                }
+                int value = Math.round(sum);
+                output[produced * channels + c] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+            }
+            nextOutput++;
+            if (++produced == OUTPUT_FRAMES) {
+                emit(produced);
+                produced = 0;
+            }
+        }
+        emit(produced);
+
+        // 丢弃之后的输出不再需要的输入帧
+        long keepFrom = (nextOutput * downFactor) / upFactor - halfTaps + 1;
+        int drop = (int) Math.max(0, Math.min(bufferFrames, keepFrom - bufferStart));
+        if (drop > 0) {
+            System.arraycopy(buffer, drop * channels, buffer, 0, (bufferFrames - drop) * channels);
+            bufferFrames -= drop;
+            bufferStart += drop;
+        }
+    }
+
+    private void emit(int frames) throws IOException {
+        if (frames > 0) {
+            downstream.accept(ShortBuffer.wrap(output, 0, frames * channels).asReadOnlyBuffer());
+        }
+    }
+
+    private void ensureCapacity(int frames) {
+        if (frames * channels > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(frames * channels, buffer.length * 2));
+        }
+    }
+
+    /**
+     * 系数表：bank[p][j] = g(p/L - (j - halfTaps + 1))，g 为 Kaiser 窗 sinc
+     */
+    private void buildBank() {
+        double ratio = Math.min(1.0, (double) upFactor / downFactor);
+        double cutoff = ratio * ROLLOFF;
+        halfTaps = (int) Math.ceil(zeroCrossings / ratio);
+        taps = halfTaps * 2;
+        bank = new float[upFactor * taps];
+        double normalizer = besselI0(KAISER_BETA);
+        for (int p = 0; p < upFactor; p++) {
+            double[] phase = new double[taps];
+            double sum = 0;
+            for (int j = 0; j < taps; j++) {
+                double u = (double) p / upFactor - (j - halfTaps + 1);
+                double x = u / halfTaps;
+                double window = Math.abs(x) >= 1 ? 0.0 : besselI0(KAISER_BETA * Math.sqrt(1 - x * x)) / normalizer;
+                phase[j] = cutoff * sinc(cutoff * u) * window;
+                sum += phase[j];
+            }
+            for (int j = 0; j < taps; j++) {
+                bank[p * taps + j] = (float) (phase[j] / sum);
+            }
+        }
+    }
+
+    private static double sinc(double x) {
+        return x == 0 ? 1.0 : Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    /**
+     * 第一类零阶修正贝塞尔函数（级数展开）
+     */
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
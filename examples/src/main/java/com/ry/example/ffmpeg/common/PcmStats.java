@@ -0,0 +1,106 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * PCM 统计结果（16位有符号整数采样）
+ * 按声道给出峰值、RMS、直流偏移、削波采样数和幅度直方图；
+ * 电平以满刻度 32768 归一化，dBFS 以满刻度为 0 dB。
+ */
+public final class PcmStats {
+
+    private static final double FULL_SCALE = 32768.0;
+
+    private final int sampleRate;
+    private final int channels;
+    private final long frameCount;
+    private final int[] min;
+    private final int[] max;
+    private final long[] sum;
+    private final double[] sumOfSquares;
+    private final long[] clipped;
+    private final long[][] histogram;
+
+    PcmStats(int sampleRate, int channels, long frameCount, int[] min, int[] max, long[] sum,
+             double[] sumOfSquares, long[] clipped, long[][] histogram) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.frameCount = frameCount;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.sumOfSquares = sumOfSquares;
+        this.clipped = clipped;
+        this.histogram = histogram;
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    /** 每个声道的采样数 */
+    public long getFrameCount() { return frameCount; }
+
+    public double getDurationSeconds() {
+        return sampleRate > 0 ? (double) frameCount / sampleRate : 0.0;
+    }
+
+    public int getMin(int channel) { return min[channel]; }
+    public int getMax(int channel) { return max[channel]; }
+
+    /**
+     * 峰值（0~1）
+     */
+    public double getPeak(int channel) {
+        return Math.max(Math.abs((long) min[channel]), Math.abs((long) max[channel])) / FULL_SCALE;
+    }
+
+    public double getPeakDbfs(int channel) {
+        return toDb(getPeak(channel));
+    }
+
+    /**
+     * 均方根电平（0~1）
+     */
+    public double getRms(int channel) {
+        return frameCount > 0 ? Math.sqrt(sumOfSquares[channel] / frameCount) / FULL_SCALE : 0.0;
+    }
+
+    public double getRmsDbfs(int channel) {
+        return toDb(getRms(channel));
+    }
+
+    /**
+     * 直流偏移，即采样平均值（-1~1）
+     */
+    public double getDcOffset(int channel) {
+        return frameCount > 0 ? sum[channel] / (double) frameCount / FULL_SCALE : 0.0;
+    }
+
+    /**
+     * 达到满刻度（32767 或 -32768）的采样数
+     */
+    public long getClippedSamples(int channel) { return clipped[channel]; }
+
+    /**
+     * 幅度直方图：第 i 个区间覆盖 [-32768 + i * 65536 / 区间数, ...)
+     */
+    public long[] getHistogram(int channel) {
+        return Arrays.copyOf(histogram[channel], histogram[channel].length);
+    }
+
+    private static double toDb(double level) {
+        return level > 0 ? 20 * Math.log10(level) : Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%d声道 %d帧 %.2f秒", channels, frameCount, getDurationSeconds()));
+        for (int c = 0; c < channels; c++) {
+            text.append(String.format(Locale.ROOT,
+                    "%n  声道%d: 峰值 %.2f dBFS, RMS %.2f dBFS, 直流偏移 %.5f, 削波 %d, 范围 [%d, %d]",
+                    c, getPeakDbfs(c), getRmsDbfs(c), getDcOffset(c), clipped[c], min[c], max[c]));
+        }
+        return text.toString();
+    }
+}
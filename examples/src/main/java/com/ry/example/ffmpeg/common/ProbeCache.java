@@ -0,0 +1,247 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 探测结果缓存
+ * 同一个源文件在流水线中会被反复探测，缓存以 文件路径 + 大小 + 修改时间 为键，
+ * 文件被改写后大小或修改时间变化，旧结果自动失效。
+ *
+ * 内存中保留最近使用的有限条目（LRU），可选地把 ffprobe 的原始 JSON 写入磁盘目录，
+ * 进程重启后仍可命中。不是本地文件的输入（如 URL）不缓存。
+ */
+public class ProbeCache {
+
+    /** 内存缓存条目数上限，例如 -Dffmpeg.probeCache.maxEntries=1024 */
+    public static final String MAX_ENTRIES_PROPERTY = "ffmpeg.probeCache.maxEntries";
+
+    /** 磁盘缓存目录，未设置时只使用内存缓存，例如 -Dffmpeg.probeCache.dir=/tmp/probe-cache */
+    public static final String DIR_PROPERTY = "ffmpeg.probeCache.dir";
+
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+    private static final String DISK_SUFFIX = ".probe";
+
+    private static volatile ProbeCache defaultCache;
+
+    private final int maxEntries;
+    private final File diskDirectory;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * 创建缓存
+     * @param maxEntries 内存中最多保留的条目数
+     * @param diskDirectory 磁盘缓存目录，为null时不落盘
+     */
+    public ProbeCache(int maxEntries, File diskDirectory) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries必须大于0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.diskDirectory = diskDirectory;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ProbeCache.this.maxEntries;
+            }
+        };
+        if (diskDirectory != null) {
+            diskDirectory.mkdirs();
+        }
+    }
+
+    /**
+     * 获取全局共享的缓存，{@link MediaProbe#probe} 默认经过此缓存
+     */
+    public static ProbeCache getDefault() {
+        ProbeCache cache = defaultCache;
+        if (cache == null) {
+            synchronized (ProbeCache.class) {
+                cache = defaultCache;
+                if (cache == null) {
+                    int maxEntries = Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES);
+                    String dir = System.getProperty(DIR_PROPERTY);
+                    cache = new ProbeCache(maxEntries, dir == null || dir.isEmpty() ? null : new File(dir));
+                    defaultCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * 获取媒体信息，缓存未命中或已失效时调用 ffprobe
+     * @param path 文件路径
+     * @throws IOException ffprobe 执行失败或输出无法解析
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    public MediaInfo get(String path) throws IOException, InterruptedException {
+        File file = new File(path);
+        if (!file.isFile()) {
+            misses.incrementAndGet();
+            return MediaProbe.parse(path, MediaProbe.probeJson(path));
+        }
+
+        String key = file.getAbsolutePath();
+        long size = file.length();
+        long lastModified = file.lastModified();
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.matches(size, lastModified)) {
+                hits.incrementAndGet();
+                return entry.info;
+            }
+        }
+
+        MediaInfo info = readDisk(path, key, size, lastModified);
+        if (info != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            String json = MediaProbe.probeJson(path);
+            info = MediaProbe.parse(path, json);
+            writeDisk(key, size, lastModified, json);
+        }
+
+        synchronized (entries) {
+            entries.put(key, new Entry(size, lastModified, info));
+        }
+        return info;
+    }
+
+    /**
+     * 移除指定文件的缓存（内存和磁盘）
+     */
+    public void invalidate(String path) {
+        String key = new File(path).getAbsolutePath();
+        synchronized (entries) {
+            entries.remove(key);
+        }
+        if (diskDirectory != null) {
+            diskFile(key).delete();
+        }
+    }
+
+    /**
+     * 清空内存缓存并重置计数，磁盘缓存保留
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        hits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public File getDiskDirectory() { return diskDirectory; }
+    /** 内存命中次数 */
+    public long getHitCount() { return hits.get(); }
+    /** 内存未命中但磁盘命中的次数 */
+    public long getDiskHitCount() { return diskHits.get(); }
+    /** 实际调用 ffprobe 的次数 */
+    public long getMissCount() { return misses.get(); }
+
+    /**
+     * 命中率（内存 + 磁盘），没有请求时为0
+     */
+    public double getHitRate() {
+        long hit = hits.get() + diskHits.get();
+        long total = hit + misses.get();
+        return total == 0 ? 0.0 : (double) hit / total;
+    }
+
+    /**
+     * 磁盘文件格式：第一行 路径，第二行 大小，第三行 修改时间，其余为 ffprobe 的 JSON 输出
+     */
+    private MediaInfo readDisk(String path, String key, long size, long lastModified) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        File file = diskFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            String[] header = content.split("\n", 4);
+            if (header.length < 4 || !header[0].equals(key)
+                    || Long.parseLong(header[1]) != size || Long.parseLong(header[2]) != lastModified) {
+                return null;
+            }
+            return MediaProbe.parse(path, header[3]);
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("读取探测缓存失败: " + file + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, long size, long lastModified, String json) {
+        if (diskDirectory == null) {
+            return;
+        }
+        File target = diskFile(key);
+        File temp = new File(diskDirectory, target.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(key + "\n" + size + "\n" + lastModified + "\n");
+                writer.write(json);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("写入探测缓存失败: " + target + " - " + e.getMessage());
+            temp.delete();
+        }
+    }
+
+    private File diskFile(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest.digest(key.getBytes(StandardCharsets.UTF_8))) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(diskDirectory, name + DISK_SUFFIX);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        final long size;
+        final long lastModified;
+        final MediaInfo info;
+
+        Entry(long size, long lastModified, MediaInfo info) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.info = info;
+        }
+
+        boolean matches(long size, long lastModified) {
+            return this.size == size && this.lastModified == lastModified;
+        }
+    }
+}
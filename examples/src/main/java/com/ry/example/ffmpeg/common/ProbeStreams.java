@@ -0,0 +1,210 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 逐帧 / 逐包的惰性读取
+ * ffprobe 的输出一行一行按需解析，消费方关闭 Stream 时立即结束 ffprobe 进程，
+ * 只取前 N 条记录时不会在后台把整个文件读完。
+ *
+ * 返回的 Stream 持有子进程，必须用 try-with-resources 关闭：
+ * <pre>
+ * try (Stream&lt;PacketInfo&gt; packets = ProbeStreams.packets("input.mp4", 100)) {
+ *     packets.forEach(System.out::println);
+ * }
+ * </pre>
+ *
+ * 这些进程由消费方驱动，不经过 {@link FFmpegExecutor} 的工作线程池。
+ */
+public final class ProbeStreams {
+
+    private static final String FRAME_ENTRIES =
+            "frame=media_type,stream_index,key_frame,pts,pts_time,best_effort_timestamp_time,"
+            + "duration_time,pkt_pos,pkt_size,pict_type,width,height,sample_rate,nb_samples";
+
+    private static final String PACKET_ENTRIES =
+            "packet=codec_type,stream_index,pts,pts_time,dts,dts_time,duration_time,size,pos,flags";
+
+    private ProbeStreams() {
+    }
+
+    /**
+     * 读取第一个视频流的前 limit 帧
+     * 通过 -read_intervals 限制 ffprobe 只读取 limit 个数据包
+     */
+    public static Stream<FrameInfo> frames(String path, int limit) throws IOException {
+        return frames(path, "v:0", "%+#" + limit).limit(limit);
+    }
+
+    /**
+     * 读取帧信息
+     * @param path 文件路径
+     * @param streamSpecifier 流选择，如 "v:0"、"a:0"，为null时读取所有流
+     * @param readIntervals -read_intervals 参数，如 "10%+5"、"%+#100"，为null时读取整个文件
+     */
+    public static Stream<FrameInfo> frames(String path, String streamSpecifier, String readIntervals)
+            throws IOException {
+        return open(path, "-show_frames", FRAME_ENTRIES, streamSpecifier, readIntervals, FrameInfo::new);
+    }
+
+    /**
+     * 读取所有流的前 limit 个数据包
+     */
+    public static Stream<PacketInfo> packets(String path, int limit) throws IOException {
+        return packets(path, null, "%+#" + limit).limit(limit);
+    }
+
+    /**
+     * 读取数据包信息（只解封装，不解码）
+     * @param path 文件路径
+     * @param streamSpecifier 流选择，为null时读取所有流
+     * @param readIntervals -read_intervals 参数，为null时读取整个文件
+     */
+    public static Stream<PacketInfo> packets(String path, String streamSpecifier, String readIntervals)
+            throws IOException {
+        return open(path, "-show_packets", PACKET_ENTRIES, streamSpecifier, readIntervals, PacketInfo::new);
+    }
+
+    private static <T> Stream<T> open(String path, String showOption, String entries, String streamSpecifier,
+                                      String readIntervals, Function<Map<String, String>, T> mapper)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("ffprobe");
+        command.add("-v");
+        command.add("error");
+        if (streamSpecifier != null) {
+            command.add("-select_streams");
+            command.add(streamSpecifier);
+        }
+        if (readIntervals != null) {
+            command.add("-read_intervals");
+            command.add(readIntervals);
+        }
+        command.add(showOption);
+        command.add("-show_entries");
+        command.add(entries);
+        command.add("-of");
+        command.add("compact=p=0");
+        command.add(path);
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        RowIterator rows = new RowIterator(process);
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return mapper.apply(rows.next());
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(rows::close);
+    }
+
+    /**
+     * 解析 compact 格式的一行：key=value|key=value，值中的 | 和 \ 以 \ 转义
+     */
+    static Map<String, String> parseCompact(String line) {
+        Map<String, String> row = new LinkedHashMap<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i <= line.length(); i++) {
+            char c = i < line.length() ? line.charAt(i) : '|';
+            if (c == '\\' && i + 1 < line.length()) {
+                field.append(line.charAt(++i));
+            } else if (c == '|') {
+                int eq = field.indexOf("=");
+                if (eq > 0) {
+                    row.put(field.substring(0, eq), field.substring(eq + 1));
+                }
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * 按需读取 ffprobe 输出的行，读完或关闭时结束进程
+     */
+    private static final class RowIterator implements Iterator<Map<String, String>> {
+        private final Process process;
+        private final BufferedReader reader;
+        private Map<String, String> nextRow;
+        private boolean closed;
+
+        RowIterator(Process process) {
+            this.process = process;
+            this.reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextRow != null) {
+                return true;
+            }
+            if (closed) {
+                return false;
+            }
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        nextRow = parseCompact(line);
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, String> row = nextRow;
+            nextRow = null;
+            return row;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            process.destroyForcibly();
+            try {
+                reader.close();
+            } catch (IOException e) {
+                // 进程已结束，关闭失败可以忽略
+            }
+        }
+    }
+}
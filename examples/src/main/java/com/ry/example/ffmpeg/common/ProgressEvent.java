@@ -0,0 +1,85 @@
+package com.ry.example.ffmpeg.common;
+
+/**
+ * ffmpeg -progress 输出的一次进度快照
+ * 字段对应 ffmpeg 每个进度块中的 key=value，未知的值为 -1
+ */
+public final class ProgressEvent {
+    private final long jobId;
+    private final long frame;
+    private final double fps;
+    private final long outTimeMicros;
+    private final double speed;
+    private final double bitrateKbps;
+    private final long totalSize;
+    private final long dupFrames;
+    private final long dropFrames;
+    private final boolean end;
+    private final double totalSeconds;
+    private final double etaSeconds;
+
+    public ProgressEvent(long jobId, long frame, double fps, long outTimeMicros, double speed,
+                         double bitrateKbps, long totalSize, long dupFrames, long dropFrames,
+                         boolean end, double totalSeconds, double etaSeconds) {
+        this.jobId = jobId;
+        this.frame = frame;
+        this.fps = fps;
+        this.outTimeMicros = outTimeMicros;
+        this.speed = speed;
+        this.bitrateKbps = bitrateKbps;
+        this.totalSize = totalSize;
+        this.dupFrames = dupFrames;
+        this.dropFrames = dropFrames;
+        this.end = end;
+        this.totalSeconds = totalSeconds;
+        this.etaSeconds = etaSeconds;
+    }
+
+    /**
+     * 已输出的媒体时长（秒）
+     */
+    public double getOutTimeSeconds() {
+        return outTimeMicros < 0 ? -1 : outTimeMicros / 1_000_000.0;
+    }
+
+    /**
+     * 完成百分比 (0-100)，总时长未知时返回 -1
+     */
+    public double getPercent() {
+        if (end) {
+            return 100.0;
+        }
+        if (totalSeconds <= 0 || outTimeMicros < 0) {
+            return -1;
+        }
+        return Math.min(100.0, getOutTimeSeconds() / totalSeconds * 100.0);
+    }
+
+    /**
+     * 速度低于实时的指定倍数（例如 0.5 表示慢于半速）
+     */
+    public boolean isSlowerThan(double realtimeFactor) {
+        return speed >= 0 && speed < realtimeFactor;
+    }
+
+    public long getJobId() { return jobId; }
+    public long getFrame() { return frame; }
+    public double getFps() { return fps; }
+    public long getOutTimeMicros() { return outTimeMicros; }
+    public double getSpeed() { return speed; }
+    public double getBitrateKbps() { return bitrateKbps; }
+    public long getTotalSize() { return totalSize; }
+    public long getDupFrames() { return dupFrames; }
+    public long getDropFrames() { return dropFrames; }
+    public boolean isEnd() { return end; }
+    public double getTotalSeconds() { return totalSeconds; }
+    public double getEtaSeconds() { return etaSeconds; }
+
+    @Override
+    public String toString() {
+        return String.format("job=%d frame=%d fps=%.1f time=%.2fs speed=%.2fx bitrate=%.1fkbps dup=%d drop=%d%s%s",
+                jobId, frame, fps, getOutTimeSeconds(), speed, bitrateKbps, dupFrames, dropFrames,
+                getPercent() >= 0 ? String.format(" progress=%.1f%%", getPercent()) : "",
+                etaSeconds >= 0 ? String.format(" eta=%.1fs", etaSeconds) : "");
+    }
+}
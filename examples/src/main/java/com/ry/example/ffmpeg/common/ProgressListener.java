@@ -0,0 +1,15 @@
+package com.ry.example.ffmpeg.common;
+
+/**
+ * 进度监听器
+ * 在读取进程输出的线程中回调，实现中不要执行耗时操作
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * 收到一个完整的进度块
+     * @param event 进度快照
+     */
+    void onProgress(ProgressEvent event);
+}
@@ -0,0 +1,166 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 解析 ffmpeg -progress 输出
+ * 每个进度块由若干 key=value 行组成，以 progress=continue/end 结尾
+ */
+class ProgressParser {
+
+    private static final Pattern DURATION = Pattern.compile("^\\s*Duration: (\\d+):(\\d+):(\\d+(?:\\.\\d+)?)");
+    private static final Pattern STREAM_QUALITY = Pattern.compile("stream_\\d+_\\d+_q");
+
+    private final long jobId;
+    private final EtaEstimator estimator;
+    private final Consumer<ProgressEvent> sink;
+    private final double outputLimitSeconds;
+    private final double startOffsetSeconds;
+
+    private long frame = -1;
+    private double fps = -1;
+    private long outTimeMicros = -1;
+    private double speed = -1;
+    private double bitrateKbps = -1;
+    private long totalSize = -1;
+    private long dupFrames = -1;
+    private long dropFrames = -1;
+    private boolean inputDurationSeen;
+
+    /**
+     * @param outputLimitSeconds 命令中 -t 指定的时长，没有时为 -1
+     * @param startOffsetSeconds 命令中 -ss 指定的起点，没有时为 0
+     */
+    ProgressParser(long jobId, EtaEstimator estimator, Consumer<ProgressEvent> sink,
+                   double outputLimitSeconds, double startOffsetSeconds) {
+        this.jobId = jobId;
+        this.estimator = estimator;
+        this.sink = sink;
+        this.outputLimitSeconds = outputLimitSeconds;
+        this.startOffsetSeconds = startOffsetSeconds;
+        if (estimator.getTotalSeconds() <= 0 && outputLimitSeconds > 0) {
+            estimator.setTotalSeconds(outputLimitSeconds);
+        }
+    }
+
+    /**
+     * 处理一行输出
+     * @return 该行是否属于进度信息（属于时不应再作为普通日志保存）
+     */
+    synchronized boolean accept(String line) {
+        int eq = line.indexOf('=');
+        if (eq <= 0) {
+            acceptLog(line);
+            return false;
+        }
+        String key = line.substring(0, eq).trim();
+        String value = line.substring(eq + 1).trim();
+
+        switch (key) {
+            case "frame":
+                frame = parseLong(value);
+                return true;
+            case "fps":
+                fps = parseDouble(value);
+                return true;
+            case "bitrate":
+                bitrateKbps = parseDouble(value.replace("kbits/s", ""));
+                return true;
+            case "total_size":
+                totalSize = parseLong(value);
+                return true;
+            case "out_time_us":
+            case "out_time_ms":
+                // 旧版本 ffmpeg 的 out_time_ms 实际单位也是微秒
+                outTimeMicros = parseLong(value);
+                return true;
+            case "out_time":
+                return true;
+            case "dup_frames":
+                dupFrames = parseLong(value);
+                return true;
+            case "drop_frames":
+                dropFrames = parseLong(value);
+                return true;
+            case "speed":
+                speed = parseDouble(value.replace("x", ""));
+                return true;
+            case "progress":
+                emit("end".equals(value));
+                return true;
+            default:
+                if (STREAM_QUALITY.matcher(key).matches()) {
+                    return true;
+                }
+                acceptLog(line);
+                return false;
+        }
+    }
+
+    /**
+     * 从第一个输入的 "Duration: 00:01:02.03" 日志推算总时长
+     */
+    synchronized void acceptLog(String line) {
+        if (inputDurationSeen) {
+            return;
+        }
+        Matcher m = DURATION.matcher(line);
+        if (!m.find()) {
+            return;
+        }
+        inputDurationSeen = true;
+        if (estimator.getTotalSeconds() > 0) {
+            return;
+        }
+        double seconds = Integer.parseInt(m.group(1)) * 3600 + Integer.parseInt(m.group(2)) * 60
+                + Double.parseDouble(m.group(3)) - startOffsetSeconds;
+        if (outputLimitSeconds > 0) {
+            seconds = Math.min(seconds, outputLimitSeconds);
+        }
+        if (seconds > 0) {
+            estimator.setTotalSeconds(seconds);
+        }
+    }
+
+    private void emit(boolean end) {
+        double outSeconds = outTimeMicros < 0 ? -1 : outTimeMicros / 1_000_000.0;
+        double eta = end ? 0 : estimator.update(outSeconds, speed);
+        sink.accept(new ProgressEvent(jobId, frame, fps, outTimeMicros, speed, bitrateKbps, totalSize,
+                dupFrames, dropFrames, end, estimator.getTotalSeconds(), eta));
+    }
+
+    /**
+     * 解析 ffmpeg 时间参数：纯秒数或 [HH:]MM:SS[.xxx]
+     * @return 秒数，无法解析时返回 -1
+     */
+    static double parseTime(String value) {
+        try {
+            String[] parts = value.split(":");
+            double seconds = 0;
+            for (String part : parts) {
+                seconds = seconds * 60 + Double.parseDouble(part);
+            }
+            return seconds;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ry.example.ffmpeg.common;
+
+/**
+ * 有理数，用于帧率（如 30000/1001）和时间基准（如 1/90000）
+ * 构造时约分并把符号放在分子上；分母为0（ffprobe 对未知值输出 0/0）时统一为 0/0，表示无效值，只与自身相等。
+ */
+public final class Rational {
+    public static final Rational ZERO = new Rational(0, 1);
+
+    private final long num;
+    private final long den;
+
+    public Rational(long num, long den) {
+        if (den == 0) {
+            this.num = 0;
+            this.den = 0;
+            return;
+        }
+        long gcd = gcd(Math.abs(num), Math.abs(den));
+        if (den < 0) {
+            num = -num;
+            den = -den;
+        }
+        this.num = num / gcd;
+        this.den = den / gcd;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * 解析 "30000/1001"、"1/90000" 或 "25" 格式
+     * @return 解析结果，无法解析时返回 {@link #ZERO}
+     */
+    public static Rational parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return ZERO;
+        }
+        try {
+            int slash = value.indexOf('/');
+            if (slash < 0) {
+                return new Rational(Long.parseLong(value.trim()), 1);
+            }
+            return new Rational(Long.parseLong(value.substring(0, slash).trim()),
+                    Long.parseLong(value.substring(slash + 1).trim()));
+        } catch (NumberFormatException e) {
+            return ZERO;
+        }
+    }
+
+    /**
+     * 转为浮点数，分母为0时返回0
+     */
+    public double toDouble() {
+        return den == 0 ? 0.0 : (double) num / den;
+    }
+
+    /**
+     * 是否为有效的正数（ffprobe 对未知值输出 0/0）
+     */
+    public boolean isValid() {
+        return num > 0 && den > 0;
+    }
+
+    public long getNum() { return num; }
+    public long getDen() { return den; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Rational)) {
+            return false;
+        }
+        Rational other = (Rational) o;
+        return num == other.num && den == other.den;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(num) + Long.hashCode(den);
+    }
+
+    @Override
+    public String toString() {
+        return num + "/" + den;
+    }
+}
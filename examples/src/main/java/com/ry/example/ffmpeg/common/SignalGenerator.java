@@ -0,0 +1,248 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 流式测试信号生成器
+ * 按固定大小的块生成并写入 FileChannel，内存占用与时长无关，可生成数小时的测试音。
+ *
+ * 正弦和扫频使用递推振荡器：每个采样只做一次复数乘法（把相位向量旋转一个步长），
+ * 每块开始时用精确相位重新校准，避免长时间累积误差；方波用相位累加器，噪声用 xorshift 随机数。
+ */
+public class SignalGenerator {
+
+    /**
+     * 信号类型
+     */
+    public enum Waveform {
+        SINE,   // 正弦波
+        SQUARE, // 方波
+        SWEEP,  // 线性扫频（从 frequency 到 endFrequency）
+        NOISE   // 白噪声，各声道独立
+    }
+
+    /** 每块的帧数 */
+    private static final int CHUNK_FRAMES = 8192;
+
+    private final Waveform waveform;
+    private final int sampleRate;
+    private final int channels;
+    private PcmEffectChain.SampleFormat format = PcmEffectChain.SampleFormat.S16LE;
+    private double frequency = 440.0;
+    private double endFrequency = 20000.0;
+    private double amplitude = 0.8;
+    private boolean wavHeader;
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    /**
+     * @param waveform 信号类型
+     * @param sampleRate 采样率
+     * @param channels 声道数，正弦、方波和扫频在每个声道上相同
+     */
+    public SignalGenerator(Waveform waveform, int sampleRate, int channels) {
+        if (sampleRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("参数无效: sampleRate=" + sampleRate + ", channels=" + channels);
+        }
+        this.waveform = waveform;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    public SignalGenerator format(PcmEffectChain.SampleFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * 频率（Hz），扫频时为起始频率
+     */
+    public SignalGenerator frequency(double frequency) {
+        this.frequency = frequency;
+        return this;
+    }
+
+    /**
+     * 扫频的结束频率（Hz）
+     */
+    public SignalGenerator endFrequency(double endFrequency) {
+        this.endFrequency = endFrequency;
+        return this;
+    }
+
+    /**
+     * 幅度（0~1，相对满刻度）
+     */
+    public SignalGenerator amplitude(double amplitude) {
+        this.amplitude = amplitude;
+        return this;
+    }
+
+    /**
+     * 是否在数据前写入 WAV 文件头
+     */
+    public SignalGenerator wavHeader(boolean wavHeader) {
+        this.wavHeader = wavHeader;
+        return this;
+    }
+
+    /**
+     * 噪声的随机种子，相同种子生成相同的数据
+     */
+    public SignalGenerator seed(long seed) {
+        this.seed = seed == 0 ? 1 : seed;
+        return this;
+    }
+
+    /**
+     * 生成信号并写入文件（覆盖）
+     * @param outputPath 输出文件
+     * @param seconds 时长（秒）
+     * @return 写入的帧数
+     * @throws IOException 写入失败
+     */
+    public long generate(String outputPath, double seconds) throws IOException {
+        long totalFrames = Math.round(seconds * sampleRate);
+        try (FileChannel channel = FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (wavHeader) {
+                writeFully(channel, wavHeader(sampleRate, channels, format, totalFrames));
+            }
+
+            int frameBytes = channels * format.getBytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_FRAMES * frameBytes).order(ByteOrder.LITTLE_ENDIAN);
+            double[] mono = new double[CHUNK_FRAMES];
+            long[] noiseState = new long[channels];
+            for (int c = 0; c < channels; c++) {
+                noiseState[c] = seed + c * 0x632BE59BD9B4E019L;
+            }
+            double squarePhase = 0.0;
+
+            for (long frame = 0; frame < totalFrames; frame += CHUNK_FRAMES) {
+                int frames = (int) Math.min(CHUNK_FRAMES, totalFrames - frame);
+                buffer.clear();
+                switch (waveform) {
+                    case SINE:
+                        oscillate(mono, frames, frame, 0.0);
+                        putMono(buffer, mono, frames);
+                        break;
+                    case SWEEP:
+                        double duration = Math.max(1, totalFrames - 1);
+                        oscillate(mono, frames, frame, (endFrequency - frequency) / duration);
+                        putMono(buffer, mono, frames);
+                        break;
+                    case SQUARE:
+                        double step = frequency / sampleRate;
+                        for (int i = 0; i < frames; i++) {
+                            mono[i] = squarePhase < 0.5 ? amplitude : -amplitude;
+                            squarePhase += step;
+                            squarePhase -= Math.floor(squarePhase);
+                        }
+                        putMono(buffer, mono, frames);
+                        break;
+                    case NOISE:
+                        for (int i = 0; i < frames; i++) {
+                            for (int c = 0; c < channels; c++) {
+                                long x = noiseState[c];
+                                x ^= x << 13;
+                                x ^= x >>> 7;
+                                x ^= x << 17;
+                                noiseState[c] = x;
+                                // 取高53位映射到 [-1, 1)
+                                put(buffer, amplitude * ((x >>> 11) * 0x1.0p-52 - 1.0));
+                            }
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("不支持的信号类型: " + waveform);
+                }
+                buffer.flip();
+                writeFully(channel, buffer);
+            }
+        }
+        return totalFrames;
+    }
+
+    /**
+     * 递推振荡器：第 n 帧的相位为 ω0·n + Δω·n(n-1)/2（Δω 为每帧的角频率增量，正弦时为0），
+     * 块首用精确相位初始化相位向量 (cos, sin) 和旋转量，块内每帧只做复数乘法
+     * @param chirp 每帧的频率增量（Hz）
+     */
+    private void oscillate(double[] out, int frames, long firstFrame, double chirp) {
+        double omega = 2 * Math.PI * frequency / sampleRate;
+        double deltaOmega = 2 * Math.PI * chirp / sampleRate;
+        double n = firstFrame;
+        double phase = omega * n + deltaOmega * n * (n - 1) / 2;
+        phase %= 2 * Math.PI;
+        double stepAngle = omega + deltaOmega * n;
+
+        double re = Math.cos(phase);
+        double im = Math.sin(phase);
+        double stepRe = Math.cos(stepAngle);
+        double stepIm = Math.sin(stepAngle);
+        double chirpRe = Math.cos(deltaOmega);
+        double chirpIm = Math.sin(deltaOmega);
+        for (int i = 0; i < frames; i++) {
+            out[i] = amplitude * im;
+            double nextRe = re * stepRe - im * stepIm;
+            im = re * stepIm + im * stepRe;
+            re = nextRe;
+            if (deltaOmega != 0) {
+                double nextStepRe = stepRe * chirpRe - stepIm * chirpIm;
+                stepIm = stepRe * chirpIm + stepIm * chirpRe;
+                stepRe = nextStepRe;
+            }
+        }
+    }
+
+    private void putMono(ByteBuffer buffer, double[] mono, int frames) {
+        for (int i = 0; i < frames; i++) {
+            for (int c = 0; c < channels; c++) {
+                put(buffer, mono[i]);
+            }
+        }
+    }
+
+    private void put(ByteBuffer buffer, double value) {
+        if (format == PcmEffectChain.SampleFormat.S16LE) {
+            long sample = Math.round(value * 32768.0);
+            buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sample)));
+        } else {
+            buffer.putFloat((float) value);
+        }
+    }
+
+    /**
+     * 44 字节的 WAV 头；数据超过 4GB 时长度字段填 0xFFFFFFFF
+     */
+    static ByteBuffer wavHeader(int sampleRate, int channels, PcmEffectChain.SampleFormat format, long totalFrames) {
+        int bytesPerSample = format.getBytes();
+        long dataBytes = totalFrames * channels * bytesPerSample;
+        boolean isFloat = format == PcmEffectChain.SampleFormat.F32LE;
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'R', 'I', 'F', 'F'})
+              .putInt((int) Math.min(0xFFFFFFFFL, dataBytes + 36))
+              .put(new byte[] {'W', 'A', 'V', 'E', 'f', 'm', 't', ' '})
+              .putInt(16)
+              .putShort((short) (isFloat ? 3 : 1))
+              .putShort((short) channels)
+              .putInt(sampleRate)
+              .putInt(sampleRate * channels * bytesPerSample)
+              .putShort((short) (channels * bytesPerSample))
+              .putShort((short) (bytesPerSample * 8))
+              .put(new byte[] {'d', 'a', 't', 'a'})
+              .putInt((int) Math.min(0xFFFFFFFFL, dataBytes));
+        header.flip();
+        return header;
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
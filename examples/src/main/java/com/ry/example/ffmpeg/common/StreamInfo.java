@@ -0,0 +1,141 @@
+package com.ry.example.ffmpeg.common;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单个音视频流的信息（不可变）
+ * 原始字段按 ffprobe 的 key 保存在 properties 中，常用字段提供类型化的访问方法
+ */
+public final class StreamInfo {
+    public static final String TYPE_VIDEO = "video";
+    public static final String TYPE_AUDIO = "audio";
+    public static final String TYPE_SUBTITLE = "subtitle";
+
+    private final Map<String, String> properties;
+    private final Map<String, String> tags;
+    private final int rotation;
+
+    private final int index;
+    private final String codecType;
+    private final String codecName;
+    private final int width;
+    private final int height;
+    private final Rational frameRate;
+    private final Rational avgFrameRate;
+    private final Rational timeBase;
+    private final int sampleRate;
+    private final int channels;
+    private final String channelLayout;
+    private final long bitRate;
+    private final double durationSeconds;
+    private final long nbFrames;
+
+    /**
+     * @param properties ffprobe 输出的标量字段（key 与 ffprobe 一致，如 codec_name、r_frame_rate）
+     * @param tags 流的标签（如 language、rotate）
+     * @param rotation 旋转角度（度），来自 rotate 标签或 Display Matrix
+     */
+    public StreamInfo(Map<String, String> properties, Map<String, String> tags, int rotation) {
+        this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.rotation = rotation;
+
+        this.index = (int) parseLong(properties.get("index"));
+        this.codecType = properties.getOrDefault("codec_type", "");
+        this.codecName = properties.getOrDefault("codec_name", "");
+        this.width = (int) parseLong(properties.get("width"));
+        this.height = (int) parseLong(properties.get("height"));
+        this.frameRate = Rational.parse(properties.get("r_frame_rate"));
+        this.avgFrameRate = Rational.parse(properties.get("avg_frame_rate"));
+        this.timeBase = Rational.parse(properties.get("time_base"));
+        this.sampleRate = (int) parseLong(properties.get("sample_rate"));
+        this.channels = (int) parseLong(properties.get("channels"));
+        this.channelLayout = properties.getOrDefault("channel_layout", "");
+        this.bitRate = parseLong(properties.get("bit_rate"));
+        this.durationSeconds = parseDouble(properties.get("duration"));
+        this.nbFrames = parseLong(properties.get("nb_frames"));
+    }
+
+    public boolean isVideo() {
+        return TYPE_VIDEO.equals(codecType);
+    }
+
+    public boolean isAudio() {
+        return TYPE_AUDIO.equals(codecType);
+    }
+
+    /**
+     * 语言标签，没有时返回空字符串
+     */
+    public String getLanguage() {
+        return tags.getOrDefault("language", "");
+    }
+
+    /**
+     * 读取任意原始字段
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    public Map<String, String> getProperties() { return properties; }
+    public Map<String, String> getTags() { return tags; }
+    public int getRotation() { return rotation; }
+    public int getIndex() { return index; }
+    public String getCodecType() { return codecType; }
+    public String getCodecName() { return codecName; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    /** 基础帧率 r_frame_rate */
+    public Rational getFrameRate() { return frameRate; }
+    public Rational getAvgFrameRate() { return avgFrameRate; }
+    public Rational getTimeBase() { return timeBase; }
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    public String getChannelLayout() { return channelLayout; }
+    /** 码率（bps），未知时为 -1 */
+    public long getBitRate() { return bitRate; }
+    /** 流时长（秒），未知时为 -1 */
+    public double getDurationSeconds() { return durationSeconds; }
+    /** 容器记录的帧数，未知时为 -1 */
+    public long getNbFrames() { return nbFrames; }
+
+    static long parseLong(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static double parseDouble(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("#").append(index).append(' ').append(codecType).append(' ').append(codecName);
+        if (isVideo()) {
+            sb.append(' ').append(width).append('x').append(height).append(" @ ").append(frameRate);
+        } else if (isAudio()) {
+            sb.append(' ').append(sampleRate).append("Hz ").append(channels).append("ch");
+            if (!channelLayout.isEmpty()) {
+                sb.append(" (").append(channelLayout).append(')');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 波形峰值金字塔生成器，作为 {@link PcmPipeline} 的消费者，解码一遍同时生成多个缩放级别的 min/max 文件
+ * （默认每个点 256/1024/4096 帧），由 {@link WaveformPeaks} 内存映射后按下标直接读取。
+ *
+ * 文件格式（小端）：文件头之后是连续的数据块，每块覆盖相同帧数的音频，块内依次存放各级别的点，
+ * 每个点为每个声道一对 (min, max) 的 short。总时长不需要预先知道，文件随解码按块增长，
+ * 任一级别第 i 个点的位置都可以直接算出。
+ *
+ * 每写完一个点就更新文件头中该级别的点数（release 写），读取方 acquire 读到的点数之内的数据都已写入，
+ * 因此解码过程中就可以打开文件绘制已经完成的部分。
+ */
+public class WaveformBuilder implements PcmConsumer {
+
+    /** 默认的各级别每点帧数 */
+    public static final int[] DEFAULT_SAMPLES_PER_BIN = {256, 1024, 4096};
+
+    static final int MAGIC = 0x59504657; // "WFPY"
+    static final int VERSION = 1;
+
+    /** 每个数据块包含最粗级别的点数 */
+    static final int TOP_BINS_PER_BLOCK = 64;
+
+    static final int FLAG_COMPLETE = 1;
+
+    // 文件头字段偏移，之后每个级别 16 字节：每点帧数(int)、保留(int)、已完成点数(long)
+    static final int OFFSET_MAGIC = 0;
+    static final int OFFSET_VERSION = 4;
+    static final int OFFSET_SAMPLE_RATE = 8;
+    static final int OFFSET_CHANNELS = 12;
+    static final int OFFSET_LEVELS = 16;
+    static final int OFFSET_TOP_BINS = 20;
+    static final int OFFSET_FLAGS = 24;
+    static final int OFFSET_TOTAL_FRAMES = 32;
+    static final int OFFSET_LEVEL_TABLE = 40;
+    static final int LEVEL_ENTRY_BYTES = 16;
+
+    /** 对映射缓冲区做带内存序的 long 读写 */
+    static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INT_VIEW = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final String outputPath;
+    private final int[] samplesPerBin;
+    private final int levels;
+
+    private int channels;
+    private int binBytes;
+    private long blockFrames;
+    private long blockBytes;
+    private int headerBytes;
+    private int[] binsPerBlock;
+    private int[] levelOffset;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer block;
+    private long mappedBlock = -1;
+
+    /** 每个级别当前点的累计 min/max 和已累计帧数 */
+    private int[][] min;
+    private int[][] max;
+    private int[] framesInBin;
+    private long[] binCount;
+    private long totalFrames;
+
+    public WaveformBuilder(String outputPath) {
+        this(outputPath, DEFAULT_SAMPLES_PER_BIN);
+    }
+
+    /**
+     * @param outputPath 金字塔文件路径（覆盖）
+     * @param samplesPerBin 各级别每个点的帧数，从细到粗，每一级必须是上一级的整数倍
+     */
+    public WaveformBuilder(String outputPath, int... samplesPerBin) {
+        if (samplesPerBin.length == 0 || samplesPerBin[0] <= 0) {
+            throw new IllegalArgumentException("级别参数无效: " + Arrays.toString(samplesPerBin));
+        }
+        for (int l = 1; l < samplesPerBin.length; l++) {
+            if (samplesPerBin[l] <= samplesPerBin[l - 1] || samplesPerBin[l] % samplesPerBin[l - 1] != 0) {
+                throw new IllegalArgumentException("每一级必须是上一级的整数倍: " + Arrays.toString(samplesPerBin));
+            }
+        }
+        this.outputPath = outputPath;
+        this.samplesPerBin = samplesPerBin.clone();
+        this.levels = samplesPerBin.length;
+    }
+
+    @Override
+    public void start(int sampleRate, int channels) throws IOException {
+        this.channels = channels;
+        binBytes = channels * 4;
+        blockFrames = (long) samplesPerBin[levels - 1] * TOP_BINS_PER_BLOCK;
+        binsPerBlock = new int[levels];
+        levelOffset = new int[levels];
+        blockBytes = 0;
+        for (int l = 0; l < levels; l++) {
+            binsPerBlock[l] = (int) (blockFrames / samplesPerBin[l]);
+            levelOffset[l] = (int) blockBytes;
+            blockBytes += (long) binsPerBlock[l] * binBytes;
+        }
+        headerBytes = headerBytes(levels);
+
+        min = new int[levels][channels];
+        max = new int[levels][channels];
+        framesInBin = new int[levels];
+        binCount = new long[levels];
+        for (int l = 0; l < levels; l++) {
+            resetBin(l);
+        }
+        totalFrames = 0;
+        mappedBlock = -1;
+
+        channel = FileChannel.open(Paths.get(outputPath), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerBytes);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(OFFSET_VERSION, VERSION)
+              .putInt(OFFSET_SAMPLE_RATE, sampleRate)
+              .putInt(OFFSET_CHANNELS, channels)
+              .putInt(OFFSET_LEVELS, levels)
+              .putInt(OFFSET_TOP_BINS, TOP_BINS_PER_BLOCK)
+              .putInt(OFFSET_FLAGS, 0)
+              .putLong(OFFSET_TOTAL_FRAMES, 0);
+        for (int l = 0; l < levels; l++) {
+            int entry = OFFSET_LEVEL_TABLE + l * LEVEL_ENTRY_BYTES;
+            header.putInt(entry, samplesPerBin[l]).putInt(entry + 4, 0).putLong(entry + 8, 0);
+        }
+        // 魔数最后写入，读取方看到魔数时其余字段已经就绪
+        INT_VIEW.setRelease(header, OFFSET_MAGIC, MAGIC);
+    }
+
+    @Override
+    public void accept(ShortBuffer samples) throws IOException {
+        int position = samples.position();
+        int frames = samples.remaining() / channels;
+        int[] levelMin = min[0];
+        int[] levelMax = max[0];
+        int done = 0;
+        while (done < frames) {
+            // 一次处理到当前最细级别点的边界
+            int run = Math.min(frames - done, samplesPerBin[0] - framesInBin[0]);
+            int start = position + done * channels;
+            for (int c = 0; c < channels; c++) {
+                int lo = levelMin[c];
+                int hi = levelMax[c];
+                for (int i = start + c, end = start + run * channels; i < end; i += channels) {
+                    int value = samples.get(i);
+                    lo = Math.min(lo, value);
+                    hi = Math.max(hi, value);
+                }
+                levelMin[c] = lo;
+                levelMax[c] = hi;
+            }
+            framesInBin[0] += run;
+            totalFrames += run;
+            done += run;
+            if (framesInBin[0] == samplesPerBin[0]) {
+                emit(0);
+            }
+        }
+    }
+
+    /**
+     * 写出各级别未满的最后一个点，标记文件已完成
+     */
+    @Override
+    public void finish() throws IOException {
+        try {
+            for (int l = 0; l < levels; l++) {
+                if (framesInBin[l] > 0) {
+                    emit(l);
+                }
+            }
+            LONG_VIEW.setRelease(header, OFFSET_TOTAL_FRAMES, totalFrames);
+            INT_VIEW.setRelease(header, OFFSET_FLAGS, FLAG_COMPLETE);
+            if (block != null) {
+                block.force();
+            }
+            header.force();
+        } finally {
+            channel.close();
+            block = null;
+            header = null;
+        }
+    }
+
+    /**
+     * 写出级别 l 的当前点，并把它合并进上一级；上一级满时继续向上写出
+     */
+    private void emit(int l) throws IOException {
+        long index = binCount[l];
+        MappedByteBuffer target = blockFor(index / binsPerBlock[l]);
+        int offset = levelOffset[l] + (int) (index % binsPerBlock[l]) * binBytes;
+        for (int c = 0; c < channels; c++) {
+            target.putShort(offset + c * 4, (short) min[l][c]);
+            target.putShort(offset + c * 4 + 2, (short) max[l][c]);
+        }
+        binCount[l] = index + 1;
+        LONG_VIEW.setRelease(header, OFFSET_LEVEL_TABLE + l * LEVEL_ENTRY_BYTES + 8, index + 1);
+        if (l == 0) {
+            LONG_VIEW.setRelease(header, OFFSET_TOTAL_FRAMES, totalFrames);
+        }
+
+        if (l + 1 < levels) {
+            for (int c = 0; c < channels; c++) {
+                min[l + 1][c] = Math.min(min[l + 1][c], min[l][c]);
+                max[l + 1][c] = Math.max(max[l + 1][c], max[l][c]);
+            }
+            framesInBin[l + 1] += framesInBin[l];
+        }
+        resetBin(l);
+        if (l + 1 < levels && framesInBin[l + 1] == samplesPerBin[l + 1]) {
+            emit(l + 1);
+        }
+    }
+
+    /**
+     * 各级别写出的点总在最细级别当前所在的块内，只需保留一个块的映射
+     */
+    private MappedByteBuffer blockFor(long blockIndex) throws IOException {
+        if (blockIndex != mappedBlock) {
+            if (block != null) {
+                block.force();
+            }
+            block = channel.map(FileChannel.MapMode.READ_WRITE, headerBytes + blockIndex * blockBytes, blockBytes);
+            block.order(ByteOrder.LITTLE_ENDIAN);
+            mappedBlock = blockIndex;
+        }
+        return block;
+    }
+
+    private void resetBin(int l) {
+        Arrays.fill(min[l], Integer.MAX_VALUE);
+        Arrays.fill(max[l], Integer.MIN_VALUE);
+        framesInBin[l] = 0;
+    }
+
+    /**
+     * 文件头长度，按 8 字节对齐
+     */
+    static int headerBytes(int levels) {
+        return OFFSET_LEVEL_TABLE + levels * LEVEL_ENTRY_BYTES;
+    }
+
+    public String getOutputPath() { return outputPath; }
+    public int[] getSamplesPerBin() { return samplesPerBin.clone(); }
+    /** 已处理的帧数 */
+    public long getTotalFrames() { return totalFrames; }
+}
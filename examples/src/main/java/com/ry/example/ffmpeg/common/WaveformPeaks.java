@@ -0,0 +1,190 @@
+package com.ry.example.ffmpeg.common;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link WaveformBuilder} 生成的波形金字塔文件的只读视图
+ * 整个文件内存映射，任一级别、任一点的 min/max 都按下标直接定位；
+ * 生成过程中也可以打开，{@link #getBinCount} 只返回已经写完的点数，文件增长后调用 {@link #refresh()} 重新映射。
+ *
+ * 用法（按每像素帧数选择级别）：
+ * <pre>
+ * try (WaveformPeaks peaks = WaveformPeaks.open("audio.wfp")) {
+ *     int level = peaks.levelFor(framesPerPixel);
+ *     int count = peaks.read(level, firstBin, width, 0, min, max);
+ * }
+ * </pre>
+ */
+public class WaveformPeaks implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int channels;
+    private final int[] samplesPerBin;
+    private final int[] binsPerBlock;
+    private final int[] levelOffset;
+    private final int headerBytes;
+    private final long blockBytes;
+    private final int binBytes;
+    private MappedByteBuffer buffer;
+
+    private WaveformPeaks(FileChannel channel) throws IOException {
+        this.channel = channel;
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                Math.min(channel.size(), WaveformBuilder.OFFSET_LEVEL_TABLE));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.limit() < WaveformBuilder.OFFSET_LEVEL_TABLE
+                || (int) WaveformBuilder.INT_VIEW.getAcquire(header, WaveformBuilder.OFFSET_MAGIC) != WaveformBuilder.MAGIC) {
+            throw new IOException("不是波形金字塔文件或文件头尚未写入");
+        }
+        if (header.getInt(WaveformBuilder.OFFSET_VERSION) != WaveformBuilder.VERSION) {
+            throw new IOException("不支持的波形文件版本: " + header.getInt(WaveformBuilder.OFFSET_VERSION));
+        }
+        sampleRate = header.getInt(WaveformBuilder.OFFSET_SAMPLE_RATE);
+        channels = header.getInt(WaveformBuilder.OFFSET_CHANNELS);
+        int levels = header.getInt(WaveformBuilder.OFFSET_LEVELS);
+        int topBins = header.getInt(WaveformBuilder.OFFSET_TOP_BINS);
+        headerBytes = WaveformBuilder.headerBytes(levels);
+        binBytes = channels * 4;
+
+        map();
+        samplesPerBin = new int[levels];
+        binsPerBlock = new int[levels];
+        levelOffset = new int[levels];
+        for (int l = 0; l < levels; l++) {
+            samplesPerBin[l] = buffer.getInt(WaveformBuilder.OFFSET_LEVEL_TABLE + l * WaveformBuilder.LEVEL_ENTRY_BYTES);
+        }
+        long blockFrames = (long) samplesPerBin[levels - 1] * topBins;
+        long bytes = 0;
+        for (int l = 0; l < levels; l++) {
+            binsPerBlock[l] = (int) (blockFrames / samplesPerBin[l]);
+            levelOffset[l] = (int) bytes;
+            bytes += (long) binsPerBlock[l] * binBytes;
+        }
+        blockBytes = bytes;
+    }
+
+    /**
+     * 打开波形文件
+     * @throws IOException 文件不存在或格式错误
+     */
+    public static WaveformPeaks open(String path) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        try {
+            return new WaveformPeaks(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 文件在生成过程中变大时重新映射
+     * @return 是否重新映射
+     */
+    public boolean refresh() throws IOException {
+        if (channel.size() == buffer.capacity()) {
+            return false;
+        }
+        map();
+        return true;
+    }
+
+    /**
+     * 已经写完的点数；生成过程中会增长，数据可能超出当前映射时先调用 {@link #refresh()}
+     */
+    public long getBinCount(int level) {
+        long count = (long) WaveformBuilder.LONG_VIEW.getAcquire(buffer,
+                WaveformBuilder.OFFSET_LEVEL_TABLE + level * WaveformBuilder.LEVEL_ENTRY_BYTES + 8);
+        // 只返回当前映射范围内的点
+        long mappedBlocks = (buffer.capacity() - headerBytes) / blockBytes;
+        long partial = (buffer.capacity() - headerBytes) % blockBytes;
+        long mappedBins = mappedBlocks * binsPerBlock[level]
+                + Math.max(0, Math.min(binsPerBlock[level], (partial - levelOffset[level]) / binBytes));
+        return Math.min(count, mappedBins);
+    }
+
+    /**
+     * 生成是否已经结束
+     */
+    public boolean isComplete() {
+        return ((int) WaveformBuilder.INT_VIEW.getAcquire(buffer, WaveformBuilder.OFFSET_FLAGS)
+                & WaveformBuilder.FLAG_COMPLETE) != 0;
+    }
+
+    /**
+     * 已处理的帧数，生成结束后为音频总帧数
+     */
+    public long getTotalFrames() {
+        return (long) WaveformBuilder.LONG_VIEW.getAcquire(buffer, WaveformBuilder.OFFSET_TOTAL_FRAMES);
+    }
+
+    /**
+     * 选择每点帧数不超过 framesPerPixel 的最粗级别，都超过时返回最细的级别0
+     */
+    public int levelFor(double framesPerPixel) {
+        int level = 0;
+        for (int l = 1; l < samplesPerBin.length; l++) {
+            if (samplesPerBin[l] <= framesPerPixel) {
+                level = l;
+            }
+        }
+        return level;
+    }
+
+    public short getMin(int level, long bin, int channel) {
+        return buffer.getShort(position(level, bin) + channel * 4);
+    }
+
+    public short getMax(int level, long bin, int channel) {
+        return buffer.getShort(position(level, bin) + channel * 4 + 2);
+    }
+
+    /**
+     * 读取一个声道连续的点，超出已写完的范围时截断
+     * @return 实际读取的点数
+     */
+    public int read(int level, long firstBin, int count, int channel, short[] min, short[] max) {
+        long available = getBinCount(level) - firstBin;
+        int n = (int) Math.max(0, Math.min(count, available));
+        for (int i = 0; i < n; i++) {
+            int offset = position(level, firstBin + i) + channel * 4;
+            min[i] = buffer.getShort(offset);
+            max[i] = buffer.getShort(offset + 2);
+        }
+        return n;
+    }
+
+    public int getSampleRate() { return sampleRate; }
+    public int getChannels() { return channels; }
+    public int getLevelCount() { return samplesPerBin.length; }
+    public int getSamplesPerBin(int level) { return samplesPerBin[level]; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int position(int level, long bin) {
+        long block = bin / binsPerBlock[level];
+        long offset = headerBytes + block * blockBytes + levelOffset[level] + (bin % binsPerBlock[level]) * binBytes;
+        return (int) offset;
+    }
+
+    /**
+     * 整个文件映射为一个缓冲区，文件超过 2GB（约数百小时的音频）时不支持
+     */
+    private void map() throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("波形文件过大: " + size);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+}